@@ -0,0 +1,131 @@
+#!/usr/bin/env bash
+# Confronto tra build JVM e nativa: tempo al primo request servito, tempo alla readiness e RSS,
+# con lo stesso carico sintetico (FakeCredemClient in modalità synthetic, stesso seed e stessa finestra).
+#
+# Uso:   scripts/startup-benchmark.sh [jvm|native|both]     (default: both)
+# Prima: ./mvnw package            -> target/quarkus-app/quarkus-run.jar
+#        ./mvnw package -Dnative   -> target/*-runner
+# PostgreSQL deve essere raggiungibile come da application.properties: con flyway clean-at-start ogni
+# avvio riparte da uno schema vuoto, quindi le esecuzioni JVM e native vedono lo stesso stato iniziale.
+#
+# Variabili: BENCH_RUNS (3), BENCH_PORT (8080), BENCH_DAYS (30, giorni scaricati al primo sync),
+#            BENCH_REQUESTS (500), BENCH_CONCURRENCY (8), JAVA_OPTS (opzioni della JVM)
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+MODE=${1:-both}
+RUNS=${BENCH_RUNS:-3}
+PORT=${BENCH_PORT:-8080}
+DAYS=${BENCH_DAYS:-30}
+REQUESTS=${BENCH_REQUESTS:-500}
+CONCURRENCY=${BENCH_CONCURRENCY:-8}
+BASE_URL="http://localhost:${PORT}"
+AUTH="user:userpassword"
+LOG_DIR=target/benchmark
+mkdir -p "$LOG_DIR"
+
+# Stesso carico per entrambe le build: primo sync dai movimenti sintetici, nessuna latenza o errore simulati
+APP_ARGS=(
+    "-Dquarkus.http.port=${PORT}"
+    "-Dfake.credem.mode=synthetic"
+    "-Dscheduler.load-from-file=false"
+    "-Dscheduler.daysback=${DAYS}"
+    "-Dfake.credem.latency=PT0S"
+    "-Dfake.credem.error-rate=0"
+    "-Dfake.credem.throttle-rate=0"
+)
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# VmRSS (corrente) o VmHWM (picco) in MB
+rss_mb() {
+    awk -v key="$2:" '$1 == key { printf "%.1f", $2 / 1024 }' "/proc/$1/status"
+}
+
+wait_for() {
+    local url=$1 auth=$2 deadline=$(( $(now_ms) + 120000 ))
+    until curl -fs -o /dev/null ${auth:+-u "$auth"} "$url"; do
+        if (( $(now_ms) > deadline )); then
+            echo "Timeout in attesa di $url" >&2
+            return 1
+        fi
+        sleep 0.01
+    done
+}
+
+run_once() {
+    local build=$1 run=$2 pid start first ready workload_start workload_ms
+    local log="$LOG_DIR/${build}-${run}.log"
+
+    start=$(now_ms)
+    if [[ $build == jvm ]]; then
+        # shellcheck disable=SC2086
+        java ${JAVA_OPTS:-} "${APP_ARGS[@]}" -jar target/quarkus-app/quarkus-run.jar > "$log" 2>&1 &
+    else
+        "$NATIVE_RUNNER" "${APP_ARGS[@]}" > "$log" 2>&1 &
+    fi
+    pid=$!
+    trap 'kill $pid 2>/dev/null || true' EXIT
+
+    wait_for "$BASE_URL/transactions" "$AUTH"
+    first=$(( $(now_ms) - start ))
+    local rss_first
+    rss_first=$(rss_mb "$pid" VmRSS)
+
+    # Readiness: primo sync e warm-up conclusi
+    wait_for "$BASE_URL/q/health/ready" ""
+    ready=$(( $(now_ms) - start ))
+
+    workload_start=$(now_ms)
+    seq "$REQUESTS" | xargs -P "$CONCURRENCY" -I{} \
+        curl -fs -o /dev/null -u "$AUTH" "$BASE_URL/transactions?centerType=COSTO"
+    workload_ms=$(( $(now_ms) - workload_start ))
+
+    printf "%s\t%d\t%d\t%d\t%s\t%s\t%s\t%.1f\n" "$build" "$run" "$first" "$ready" "$rss_first" \
+        "$(rss_mb "$pid" VmRSS)" "$(rss_mb "$pid" VmHWM)" "$(awk -v n="$REQUESTS" -v ms="$workload_ms" 'BEGIN { print n * 1000 / ms }')"
+
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    trap - EXIT
+}
+
+builds=()
+case "$MODE" in
+    jvm) builds=(jvm) ;;
+    native) builds=(native) ;;
+    both) builds=(jvm native) ;;
+    *) echo "Uso: $0 [jvm|native|both]" >&2; exit 1 ;;
+esac
+
+if [[ " ${builds[*]} " == *" jvm "* && ! -f target/quarkus-app/quarkus-run.jar ]]; then
+    echo "Build JVM mancante: ./mvnw package" >&2
+    exit 1
+fi
+if [[ " ${builds[*]} " == *" native "* ]]; then
+    NATIVE_RUNNER=$(ls target/*-runner 2>/dev/null | head -n 1 || true)
+    if [[ -z $NATIVE_RUNNER ]]; then
+        echo "Build nativa mancante: ./mvnw package -Dnative" >&2
+        exit 1
+    fi
+fi
+
+results="$LOG_DIR/results.tsv"
+printf "build\trun\tfirst_request_ms\tready_ms\trss_first_mb\trss_after_mb\trss_peak_mb\treq_per_s\n" | tee "$results"
+# Esecuzioni alternate JVM/nativo, così eventuali variazioni della macchina pesano su entrambe
+for run in $(seq "$RUNS"); do
+    for build in "${builds[@]}"; do
+        run_once "$build" "$run" | tee -a "$results"
+    done
+done
+
+echo
+echo "Mediane ($RUNS esecuzioni, $REQUESTS richieste con concorrenza $CONCURRENCY):"
+for build in "${builds[@]}"; do
+    for column in 3 4 5 6 7 8; do
+        awk -F'\t' -v b="$build" -v c="$column" 'NR > 1 && $1 == b { print $c }' "$results" | sort -n \
+            | awk '{ v[NR] = $1 } END { printf "%s%s", (NR % 2 ? v[(NR + 1) / 2] : (v[NR / 2] + v[NR / 2 + 1]) / 2), "\t" }'
+    done | awk -v b="$build" -F'\t' '{ printf "%-6s primo request %s ms, ready %s ms, RSS %s MB dopo il primo request, %s MB dopo il carico (picco %s), %s req/s\n", b, $1, $2, $3, $4, $5, $6 }'
+done
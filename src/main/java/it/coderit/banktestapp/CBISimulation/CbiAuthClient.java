@@ -15,8 +15,8 @@ import jakarta.ws.rs.core.MediaType;
 @Path("/oauth/token")
 @RegisterRestClient(configKey = "cbi-auth")
 public interface CbiAuthClient {
-    //interfaccia per simulare il client CBI per ottenere il token di accesso
-    //questo client è mockato e non fa chiamate reali, ma restituisce un token statico
+    //interfaccia del client CBI per ottenere il token di accesso (grant client_credentials)
+    //viene usato da CbiTokenManager; in locale risponde MockCbiTokenResource
     @POST
     @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
     @Produces(MediaType.APPLICATION_JSON)
@@ -0,0 +1,207 @@
+package it.coderit.banktestapp.CBISimulation;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Gestisce il token TPP ottenuto da CbiAuthClient (grant client_credentials).
+ * Il token viene tenuto in memoria e rinnovato in background prima della scadenza
+ * ('cbi.oauth.refresh-ahead'): le chiamate verso la banca non attendono mai il rinnovo,
+ * tranne quando il token manca o è già scaduto. Richieste di rinnovo concorrenti
+ * condividono un'unica chiamata al token endpoint. C'è al più un rinnovo pianificato alla volta;
+ * se il rinnovo fallisce viene ripianificato con backoff esponenziale ('cbi.oauth.retry-*-backoff').
+ * Con 'cbi.oauth.enabled=false' restituisce il token statico di MockCbiAuthService.
+ */
+@ApplicationScoped
+public class CbiTokenManager {
+
+    private static final Logger log = LoggerFactory.getLogger(CbiTokenManager.class);
+    private static final String GRANT_TYPE = "client_credentials";
+
+    @Inject
+    @RestClient
+    CbiAuthClient cbiAuthClient;
+
+    @Inject
+    MockCbiAuthService mockCbiAuthService;
+
+    @ConfigProperty(name = "cbi.oauth.enabled", defaultValue = "false")
+    boolean oauthEnabled;
+
+    @ConfigProperty(name = "cbi.client-id")
+    String clientId;
+
+    @ConfigProperty(name = "cbi.client-secret")
+    String clientSecret;
+
+    @ConfigProperty(name = "cbi.oauth.refresh-ahead", defaultValue = "PT60S")
+    Duration refreshAhead;
+
+    // Usata se il token endpoint non restituisce expires_in
+    @ConfigProperty(name = "cbi.oauth.default-expires-in", defaultValue = "PT5M")
+    Duration defaultExpiresIn;
+
+    @ConfigProperty(name = "cbi.oauth.retry-initial-backoff", defaultValue = "PT1S")
+    Duration retryInitialBackoff;
+
+    @ConfigProperty(name = "cbi.oauth.retry-max-backoff", defaultValue = "PT60S")
+    Duration retryMaxBackoff;
+
+    private volatile CachedToken current;
+    private volatile ScheduledFuture<?> scheduledRefresh;
+    private int consecutiveFailures;
+    private final AtomicReference<CompletableFuture<CachedToken>> inFlight = new AtomicReference<>();
+    private ScheduledExecutorService refreshExecutor;
+
+    @PostConstruct
+    void init() {
+        refreshExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cbi-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Restituisce l'header Authorization ("Bearer ...") da usare verso l'ASPSP.
+     */
+    public String getAccessToken() {
+        if (!oauthEnabled) {
+            return mockCbiAuthService.getAccessToken();
+        }
+        CachedToken token = current;
+        Instant now = Instant.now();
+        if (token != null && now.isBefore(token.expiresAt())) {
+            if (!now.isBefore(token.refreshAt())) {
+                refreshAsync(); // refresh-ahead: si continua a usare il token valido
+            }
+            return token.authorizationHeader();
+        }
+        // Token assente o scaduto: si attende l'unico rinnovo in corso
+        try {
+            return refreshAsync().join().authorizationHeader();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Scarta il token corrente (es. dopo un 401 dalla banca); il prossimo accesso ne richiede uno nuovo.
+     */
+    public void invalidate() {
+        current = null;
+    }
+
+    CompletableFuture<CachedToken> refreshAsync() {
+        while (true) {
+            CompletableFuture<CachedToken> existing = inFlight.get();
+            if (existing != null) {
+                return existing;
+            }
+            CompletableFuture<CachedToken> created = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, created)) {
+                refreshExecutor.execute(() -> refresh(created));
+                return created;
+            }
+        }
+    }
+
+    // Gira sempre sul thread di refreshExecutor, che è l'unico a toccare scheduledRefresh e consecutiveFailures
+    private void refresh(CompletableFuture<CachedToken> result) {
+        try {
+            CachedToken token = fetchToken();
+            current = token;
+            consecutiveFailures = 0;
+            // Rinnovo proattivo anche in assenza di traffico
+            scheduleRefresh(Duration.between(Instant.now(), token.refreshAt()));
+            inFlight.set(null);
+            result.complete(token);
+        } catch (Exception e) {
+            Duration retryIn = retryBackoff(++consecutiveFailures);
+            log.error("Errore durante il rinnovo del token CBI: {}. Nuovo tentativo tra {} ms.",
+                    e.getMessage(), retryIn.toMillis(), e);
+            scheduleRefresh(retryIn);
+            inFlight.set(null);
+            result.completeExceptionally(new RuntimeException("Impossibile ottenere il token CBI.", e));
+        }
+    }
+
+    // Un solo rinnovo pianificato: quello precedente viene annullato
+    private void scheduleRefresh(Duration delay) {
+        ScheduledFuture<?> previous = scheduledRefresh;
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        if (!refreshExecutor.isShutdown()) {
+            scheduledRefresh = refreshExecutor.schedule(this::refreshAsync, Math.max(0, delay.toMillis()),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Backoff esponenziale dei tentativi dopo un errore, limitato a retryMaxBackoff
+    Duration retryBackoff(int failures) {
+        long millis = retryInitialBackoff.toMillis() << Math.min(failures - 1, 20);
+        return Duration.ofMillis(Math.min(retryMaxBackoff.toMillis(), millis));
+    }
+
+    ScheduledFuture<?> scheduledRefresh() {
+        return scheduledRefresh;
+    }
+
+    private CachedToken fetchToken() {
+        log.info("Richiesta nuovo token CBI per client {}.", clientId);
+        Map<String, Object> response = cbiAuthClient.getToken(GRANT_TYPE, clientId, clientSecret);
+        Object accessToken = response != null ? response.get("access_token") : null;
+        if (accessToken == null) {
+            throw new IllegalStateException("Risposta del token endpoint senza access_token.");
+        }
+        Object tokenType = response.getOrDefault("token_type", "Bearer");
+        Duration expiresIn = parseExpiresIn(response.get("expires_in"));
+
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(expiresIn);
+        // Se il token dura meno del margine di refresh-ahead si rinnova a metà della sua durata
+        Instant refreshAt = expiresIn.compareTo(refreshAhead) > 0 ? expiresAt.minus(refreshAhead) : now.plus(expiresIn.dividedBy(2));
+        log.info("Token CBI ottenuto, scade alle {} (rinnovo previsto alle {}).", expiresAt, refreshAt);
+        return new CachedToken(tokenType + " " + accessToken, expiresAt, refreshAt);
+    }
+
+    private Duration parseExpiresIn(Object expiresIn) {
+        if (expiresIn instanceof Number number) {
+            return Duration.ofSeconds(number.longValue());
+        }
+        if (expiresIn instanceof String text && !text.isBlank()) {
+            return Duration.ofSeconds(Long.parseLong(text.trim()));
+        }
+        return defaultExpiresIn;
+    }
+
+    record CachedToken(String authorizationHeader, Instant expiresAt, Instant refreshAt) {
+    }
+}
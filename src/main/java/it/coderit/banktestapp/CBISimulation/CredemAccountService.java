@@ -1,20 +1,32 @@
 package it.coderit.banktestapp.CBISimulation;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+
 import it.coderit.banktestapp.dto.CredemAccountResponse;
 import it.coderit.banktestapp.dto.CredemBalancesResponse;
 import it.coderit.banktestapp.dto.CredemSingleAccountResponse;
 import it.coderit.banktestapp.rest.CredemClient;
+import it.coderit.banktestapp.rest.CredemRateLimiter;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
@@ -26,7 +38,13 @@ public class CredemAccountService {
     CredemClient credemClient; // Il client REST per l'API Credem
 
     @Inject
-    MockCbiAuthService mockCbiAuthService; // Servizio per ottenere token mockati
+    MockCbiAuthService mockCbiAuthService; // Servizio per ottenere l'autorizzazione PSU mockata
+
+    @Inject
+    CbiTokenManager cbiTokenManager; // Token TPP
+
+    @Inject
+    CredemRateLimiter credemRateLimiter; // Rate limit e concorrenza verso la banca
 
     private static final Logger log = LoggerFactory.getLogger(CredemAccountService.class);
     private static final DateTimeFormatter HTTP_DATE_FORMATTER = DateTimeFormatter.RFC_1123_DATE_TIME;
@@ -48,21 +66,83 @@ public class CredemAccountService {
     @ConfigProperty(name = "cbi.consent-mock-id")
     String mockConsentId; // ID del consenso mockato
 
+    // --- CACHE (TTL e refresh-ahead configurabili) ---
+    @ConfigProperty(name = "credem.cache.accounts.ttl", defaultValue = "PT1H")
+    Duration accountsTtl;
+
+    @ConfigProperty(name = "credem.cache.accounts.refresh-after", defaultValue = "PT45M")
+    Duration accountsRefreshAfter;
+
+    @ConfigProperty(name = "credem.cache.details.ttl", defaultValue = "PT1H")
+    Duration detailsTtl;
+
+    @ConfigProperty(name = "credem.cache.details.refresh-after", defaultValue = "PT45M")
+    Duration detailsRefreshAfter;
+
+    @ConfigProperty(name = "credem.cache.balances.ttl", defaultValue = "PT5M")
+    Duration balancesTtl;
+
+    @ConfigProperty(name = "credem.cache.balances.refresh-after", defaultValue = "PT4M")
+    Duration balancesRefreshAfter;
+
+    @ConfigProperty(name = "credem.cache.maximum-size", defaultValue = "10000")
+    long cacheMaximumSize;
+
+    // I loader chiamano la banca in modo bloccante: girano sul worker pool, non sul ForkJoinPool comune
+    Executor cacheExecutor = Infrastructure.getDefaultWorkerPool();
+    Ticker ticker = Ticker.systemTicker();
+
+    private AsyncLoadingCache<String, CredemAccountResponse> accountsCache;
+    private AsyncLoadingCache<AccountDetailsKey, CredemSingleAccountResponse> detailsCache;
+    private AsyncLoadingCache<AccountKey, CredemBalancesResponse> balancesCache;
+
+    @PostConstruct
+    void initCaches() {
+        accountsCache = Caffeine.newBuilder()
+                .executor(cacheExecutor)
+                .ticker(ticker)
+                .expireAfterWrite(accountsTtl)
+                .refreshAfterWrite(accountsRefreshAfter)
+                .maximumSize(cacheMaximumSize)
+                .buildAsync(psu -> loadAccounts());
+        detailsCache = Caffeine.newBuilder()
+                .executor(cacheExecutor)
+                .ticker(ticker)
+                .expireAfterWrite(detailsTtl)
+                .refreshAfterWrite(detailsRefreshAfter)
+                .maximumSize(cacheMaximumSize)
+                .buildAsync(key -> loadAccountDetails(key.accountId(), key.withBalance()));
+        balancesCache = Caffeine.newBuilder()
+                .executor(cacheExecutor)
+                .ticker(ticker)
+                .expireAfterWrite(balancesTtl)
+                .refreshAfterWrite(balancesRefreshAfter)
+                .maximumSize(cacheMaximumSize)
+                .buildAsync(key -> loadBalances(key.accountId()));
+    }
+
     /**
      * Recupera la lista di tutti gli account disponibili tramite l'API Credem.
-     * Utilizza header mockati per l'autenticazione e la firma.
+     * Il risultato è in cache per PSU: chiamate concorrenti condividono la stessa richiesta
+     * e, dopo 'refresh-after', la lista viene aggiornata in background restituendo quella in cache.
      * @return CredemAccountResponse contenente la lista degli account.
      */
     public CredemAccountResponse fetchAccounts() {
+        return join(accountsCache.get(psuId));
+    }
+
+    // Chiamata reale a getAccounts. Utilizza header mockati per l'autenticazione e la firma.
+    private CredemAccountResponse loadAccounts() {
         log.info("Tentativo di recuperare la lista degli account da CredemClient.");
-        String token = mockCbiAuthService.getAccessToken(); // Ottiene il token TPP mockato
+        String token = cbiTokenManager.getAccessToken(); // Token TPP (in cache, rinnovato in background)
 
         String xRequestId = "req-" + UUID.randomUUID().toString();
         String dateHeader = OffsetDateTime.now(ZoneOffset.UTC).format(HTTP_DATE_FORMATTER);
         String psuAuthorization = mockCbiAuthService.getPsuAccessToken(psuId, mockConsentId);
 
         try {
-            CredemAccountResponse accountResponse = credemClient.getAccounts(
+            CredemAccountResponse accountResponse = credemRateLimiter.call(MOCK_ASPSP_CODE, mockConsentId,
+                    () -> credemClient.getAccounts(
                     psuId,
                     token, 
                     mockConsentId,
@@ -74,7 +154,7 @@ public class CredemAccountService {
                     psuAuthorization,
                     MOCK_PSU_IP_ADDRESS,
                     MOCK_ASPSP_CODE
-            );
+            ));
             return accountResponse;
         } catch (Exception e) {
             log.error("Errore durante il recupero degli account dal CredemClient: {}", e.getMessage(), e);
@@ -126,18 +206,30 @@ public class CredemAccountService {
     /**
      * Recupera i dettagli di un account specifico tramite l'API Credem.
      * @param accountId L'ID dell'account di cui recuperare i dettagli.
+     * Il risultato è in cache per PSU, account e flag withBalance.
      * @param withBalance Flag per indicare se includere i saldi nei dettagli.
      * @return CredemSingleAccountResponse contenente i dettagli dell'account.
      */
     public CredemSingleAccountResponse getSpecificAccountDetails(String accountId, Boolean withBalance) {
+        try {
+            return join(detailsCache.get(new AccountDetailsKey(psuId, accountId, Boolean.TRUE.equals(withBalance))));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Chiamata reale a getAccountDetails. In caso di errore lancia un'eccezione: il valore non viene messo
+    // in cache e, durante un refresh-ahead, Caffeine mantiene quello precedente (con null lo rimuoverebbe)
+    private CredemSingleAccountResponse loadAccountDetails(String accountId, Boolean withBalance) {
         log.info("Tentativo di recuperare i dettagli per l'account: {} con saldo: {}", accountId, withBalance);
         try {
-            String token = mockCbiAuthService.getAccessToken();
+            String token = cbiTokenManager.getAccessToken();
             String xRequestId = "req-" + UUID.randomUUID().toString();
             String dateHeader = OffsetDateTime.now(ZoneOffset.UTC).format(HTTP_DATE_FORMATTER);
             String psuAuthorization = mockCbiAuthService.getPsuAccessToken(psuId, mockConsentId);
 
-            CredemSingleAccountResponse response = credemClient.getAccountDetails(
+            CredemSingleAccountResponse response = credemRateLimiter.call(MOCK_ASPSP_CODE, mockConsentId,
+                    () -> credemClient.getAccountDetails(
                     accountId,
                     mockConsentId,
                     psuId,
@@ -151,7 +243,7 @@ public class CredemAccountService {
                     MOCK_PSU_IP_ADDRESS,
                     MOCK_ASPSP_CODE,
                     withBalance
-            );
+            ));
 
             if (response != null && response.account != null) {
                 log.info("Dettagli account recuperati per: {}. IBAN: {}", accountId, response.account.iban);
@@ -173,24 +265,53 @@ public class CredemAccountService {
             return response;
         } catch (Exception e) {
             log.error("Errore durante il recupero dei dettagli dell'account {}: {}", accountId, e.getMessage(), e);
-            return null;
+            throw new RuntimeException("Impossibile recuperare i dettagli dell'account " + accountId + ".", e);
         }
     }
 
     /**
      * Recupera i saldi per un account specifico tramite l'API Credem.
+     * Il risultato è in cache per PSU e account.
      * @param accountId L'ID dell'account di cui recuperare i saldi.
      * @return CredemBalancesResponse contenente i saldi dell'account.
      */
     public CredemBalancesResponse getBalancesForSpecificAccount(String accountId) {
+        try {
+            return join(balancesCache.get(new AccountKey(psuId, accountId)));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Recupera i saldi direttamente dalla banca, senza usare la cache, e aggiorna la cache con la risposta.
+     * Serve quando un valore vecchio di qualche minuto non basta (es. per decidere se sincronizzare).
+     * @return i saldi dell'account, oppure null in caso di errore.
+     */
+    public CredemBalancesResponse fetchFreshBalances(String accountId) {
+        CredemBalancesResponse response;
+        try {
+            response = loadBalances(accountId);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (response != null) {
+            balancesCache.put(new AccountKey(psuId, accountId), CompletableFuture.completedFuture(response));
+        }
+        return response;
+    }
+
+    // Chiamata reale a getAccountBalances; in caso di errore lancia un'eccezione, come loadAccountDetails
+    private CredemBalancesResponse loadBalances(String accountId) {
         log.info("Tentativo di recuperare i saldi per l'account: {}", accountId);
         try {
-            String token = mockCbiAuthService.getAccessToken();
+            String token = cbiTokenManager.getAccessToken();
             String xRequestId = "req-" + UUID.randomUUID().toString();
             String dateHeader = OffsetDateTime.now(ZoneOffset.UTC).format(HTTP_DATE_FORMATTER);
             String psuAuthorization = mockCbiAuthService.getPsuAccessToken(psuId, mockConsentId);
 
-            CredemBalancesResponse response = credemClient.getAccountBalances(
+            CredemBalancesResponse response = credemRateLimiter.call(MOCK_ASPSP_CODE, mockConsentId,
+                    () -> credemClient.getAccountBalances(
                     accountId,
                     mockConsentId,
                     psuId,
@@ -203,7 +324,7 @@ public class CredemAccountService {
                     psuAuthorization,
                     MOCK_PSU_IP_ADDRESS,
                     MOCK_ASPSP_CODE
-            );
+            ));
 
             if (response != null && response.balances != null && !response.balances.isEmpty()) {
                 log.info("Saldi recuperati per l'account: {}", accountId);
@@ -217,7 +338,35 @@ public class CredemAccountService {
             return response;
         } catch (Exception e) {
             log.error("Errore durante il recupero dei saldi dell'account {}: {}", accountId, e.getMessage(), e);
-            return null;
+            throw new RuntimeException("Impossibile recuperare i saldi dell'account " + accountId + ".", e);
         }
     }
+
+    /**
+     * Invalida dettagli e saldi in cache di un account (es. dopo una sincronizzazione
+     * che ha rilevato nuovi movimenti).
+     */
+    public void invalidateAccount(String accountId) {
+        detailsCache.synchronous().asMap().keySet().removeIf(key -> key.accountId().equals(accountId));
+        balancesCache.synchronous().asMap().keySet().removeIf(key -> key.accountId().equals(accountId));
+        log.debug("Cache invalidata per l'account {}.", accountId);
+    }
+
+    // Attende il caricamento e rilancia l'eccezione originale del loader
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private record AccountKey(String psuId, String accountId) {
+    }
+
+    private record AccountDetailsKey(String psuId, String accountId, boolean withBalance) {
+    }
 }
@@ -1,6 +1,14 @@
 package it.coderit.banktestapp.CBISimulation;
 
 import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -10,16 +18,111 @@ import it.coderit.banktestapp.dto.CredemTransactionResponse;
 import it.coderit.banktestapp.dto.CredemSingleAccountResponse;
 import it.coderit.banktestapp.dto.CredemBalancesResponse;
 import it.coderit.banktestapp.rest.CredemClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Priority;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
 
+// @RestClient + @Alternative: sostituisce il client REST generato nei punti di iniezione @RestClient CredemClient.
+// fake.credem.mode=files legge i JSON in test-data/, fake.credem.mode=synthetic genera movimenti deterministici
+// (SyntheticTransactionGenerator) rispettando limit/offset/date; latenza ed errori simulati valgono in entrambe le modalità.
 @ApplicationScoped
+@Alternative
+@Priority(1)
+@RestClient
 @IfBuildProperty(name = "use.fake.credem", stringValue = "true") // usa solo se configurato
 public class FakeCredemClient implements CredemClient {
 
     @Inject
     ObjectMapper objectMapper;
 
+    @ConfigProperty(name = "fake.credem.mode", defaultValue = "files")
+    String mode;
+
+    @ConfigProperty(name = "fake.credem.synthetic.seed", defaultValue = "42")
+    long seed;
+
+    @ConfigProperty(name = "fake.credem.synthetic.accounts", defaultValue = "IT001000000000000000001")
+    List<String> syntheticAccounts;
+
+    @ConfigProperty(name = "fake.credem.synthetic.rows-per-day", defaultValue = "20")
+    int rowsPerDay;
+
+    @ConfigProperty(name = "fake.credem.synthetic.history-days", defaultValue = "365")
+    int historyDays;
+
+    @ConfigProperty(name = "fake.credem.synthetic.merchants",
+            defaultValue = "Esselunga,Coop,Conad,Enel Energia,TIM,Amazon,Autostrade per l'Italia,Eni Station,Farmacia Comunale,Trenitalia")
+    List<String> merchants;
+
+    @ConfigProperty(name = "fake.credem.synthetic.amount-median", defaultValue = "35")
+    double amountMedian;
+
+    @ConfigProperty(name = "fake.credem.synthetic.amount-sigma", defaultValue = "0.9")
+    double amountSigma;
+
+    @ConfigProperty(name = "fake.credem.synthetic.income-ratio", defaultValue = "0.05")
+    double incomeRatio;
+
+    @ConfigProperty(name = "fake.credem.synthetic.income-median", defaultValue = "1500")
+    double incomeMedian;
+
+    @ConfigProperty(name = "fake.credem.latency", defaultValue = "PT0S")
+    Duration latency;
+
+    @ConfigProperty(name = "fake.credem.latency-jitter", defaultValue = "PT0S")
+    Duration latencyJitter;
+
+    // Frazione di chiamate che rispondono 503 (errore transitorio lato ASPSP)
+    @ConfigProperty(name = "fake.credem.error-rate", defaultValue = "0")
+    double errorRate;
+
+    // Frazione di chiamate che rispondono 429 con Retry-After
+    @ConfigProperty(name = "fake.credem.throttle-rate", defaultValue = "0")
+    double throttleRate;
+
+    @ConfigProperty(name = "fake.credem.retry-after-seconds", defaultValue = "1")
+    int retryAfterSeconds;
+
+    SyntheticTransactionGenerator generator;
+
+    @PostConstruct
+    void init() {
+        generator = new SyntheticTransactionGenerator(seed, rowsPerDay, merchants,
+                amountMedian, amountSigma, incomeRatio, incomeMedian);
+    }
+
+    boolean synthetic() {
+        return "synthetic".equalsIgnoreCase(mode);
+    }
+
+    // Latenza con jitter uniforme e risposte d'errore casuali, come farebbe un ASPSP sotto carico
+    void simulateNetwork() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delayMillis = latency.toMillis();
+        if (!latencyJitter.isZero()) {
+            long jitter = latencyJitter.toMillis();
+            delayMillis += random.nextLong(-jitter, jitter + 1);
+        }
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        double draw = random.nextDouble();
+        if (draw < throttleRate) {
+            throw new WebApplicationException(Response.status(429).header("Retry-After", retryAfterSeconds).build());
+        }
+        if (draw < throttleRate + errorRate) {
+            throw new WebApplicationException(Response.status(Response.Status.SERVICE_UNAVAILABLE).build());
+        }
+    }
+
     @Override
     public CredemTransactionResponse getTransactions(
             String psuId,
@@ -39,6 +142,12 @@ public class FakeCredemClient implements CredemClient {
             Integer limit,
             Integer offset) {
 
+        simulateNetwork();
+        if (synthetic()) {
+            LocalDate to = toBookingDate != null ? LocalDate.parse(toBookingDate) : LocalDate.now();
+            LocalDate from = fromBookingDate != null ? LocalDate.parse(fromBookingDate) : to.minusDays(historyDays);
+            return generator.page(accountId, from, to, offset != null ? offset : 0, limit != null ? limit : 100);
+        }
 
         String resourcePath;
         if (offset == null || offset == 0) {
@@ -84,6 +193,15 @@ public class FakeCredemClient implements CredemClient {
             String aspspCode 
             ) {
 
+        simulateNetwork();
+        if (synthetic()) {
+            CredemAccountResponse response = new CredemAccountResponse();
+            response.accounts = new ArrayList<>();
+            for (String accountId : syntheticAccounts) {
+                response.accounts.add(generator.account(accountId, false));
+            }
+            return response;
+        }
 
         String resourcePath = "test-data/accounts.json";
 
@@ -119,6 +237,13 @@ public class FakeCredemClient implements CredemClient {
             String aspspCode, 
             Boolean withBalance) {
 
+        simulateNetwork();
+        if (synthetic()) {
+            CredemSingleAccountResponse response = new CredemSingleAccountResponse();
+            response.account = generator.account(accountId, Boolean.TRUE.equals(withBalance));
+            return response;
+        }
+
             String resourcePath;
 
         if (Boolean.TRUE.equals(withBalance)) {
@@ -167,6 +292,15 @@ public class FakeCredemClient implements CredemClient {
             String aspspCode 
             ) {
 
+        simulateNetwork();
+        if (synthetic()) {
+            CredemBalancesResponse response = new CredemBalancesResponse();
+            response.account = new CredemBalancesResponse.BalancesAccountInfo();
+            response.account.iban = accountId;
+            response.account.currency = "EUR";
+            response.balances = List.of(generator.balance(accountId, LocalDate.now()));
+            return response;
+        }
 
         String resourcePath = "test-data/account_balances_" + accountId + ".json";
 
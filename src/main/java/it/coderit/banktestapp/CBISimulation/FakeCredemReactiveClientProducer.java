@@ -0,0 +1,65 @@
+package it.coderit.banktestapp.CBISimulation;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import it.coderit.banktestapp.rest.CredemClient;
+import it.coderit.banktestapp.rest.CredemReactiveClient;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+/**
+ * Versione Uni di FakeCredemClient: ogni metodo di CredemReactiveClient chiama il metodo omonimo
+ * (stessi parametri) di FakeCredemClient su un worker thread.
+ * Il client è un proxy dinamico e non una classe che implementa CredemReactiveClient: una classe che
+ * implementa un'interfaccia @Path verrebbe pubblicata anche come risorsa REST, con gli stessi
+ * endpoint GET /accounts/... già serviti da FakeCredemClient, e il build fallirebbe.
+ */
+@ApplicationScoped
+@IfBuildProperty(name = "use.fake.credem", stringValue = "true") // usa solo se configurato
+public class FakeCredemReactiveClientProducer {
+
+    @Inject
+    @RestClient
+    FakeCredemClient fakeCredemClient;
+
+    @Produces
+    @Singleton
+    @Alternative
+    @Priority(1)
+    @RestClient
+    CredemReactiveClient fakeCredemReactiveClient() {
+        return (CredemReactiveClient) Proxy.newProxyInstance(CredemReactiveClient.class.getClassLoader(),
+                new Class<?>[] { CredemReactiveClient.class }, (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(this, args);
+                    }
+                    Method blocking = CredemClient.class.getMethod(method.getName(), method.getParameterTypes());
+                    return Uni.createFrom().item(() -> invoke(blocking, args))
+                            .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+                });
+    }
+
+    private Object invoke(Method blocking, Object[] args) {
+        try {
+            return blocking.invoke(fakeCredemClient, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException; // es. WebApplicationException simulate da FakeCredemClient
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
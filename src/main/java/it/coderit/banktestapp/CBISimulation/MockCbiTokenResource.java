@@ -0,0 +1,67 @@
+package it.coderit.banktestapp.CBISimulation;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.quarkus.arc.properties.IfBuildProperty;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.FormParam;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Token endpoint OAuth locale che sostituisce quello CBI in sviluppo e nei test.
+ * Emette token casuali con durata configurabile per il grant client_credentials.
+ */
+@Path("/oauth/token")
+@ApplicationScoped
+@IfBuildProperty(name = "cbi.mock-token-endpoint.enabled", stringValue = "true") // usa solo se configurato
+public class MockCbiTokenResource {
+
+    @ConfigProperty(name = "cbi.client-id")
+    String clientId;
+
+    @ConfigProperty(name = "cbi.client-secret")
+    String clientSecret;
+
+    @ConfigProperty(name = "cbi.mock-token-endpoint.expires-in", defaultValue = "300")
+    long expiresIn;
+
+    private final AtomicInteger issuedTokens = new AtomicInteger();
+
+    @POST
+    @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response token(
+            @FormParam("grant_type") String grantType,
+            @FormParam("client_id") String requestClientId,
+            @FormParam("client_secret") String requestClientSecret) {
+
+        if (!"client_credentials".equals(grantType)) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("error", "unsupported_grant_type")).build();
+        }
+        if (!clientId.equals(requestClientId) || !clientSecret.equals(requestClientSecret)) {
+            return Response.status(Response.Status.UNAUTHORIZED)
+                    .entity(Map.of("error", "invalid_client")).build();
+        }
+
+        issuedTokens.incrementAndGet();
+        return Response.ok(Map.of(
+                "access_token", "MOCK_CBI_TOKEN_" + UUID.randomUUID(),
+                "token_type", "Bearer",
+                "expires_in", expiresIn)).build();
+    }
+
+    // Numero di token emessi, usato nei test per verificare il riuso/rinnovo
+    public int getIssuedTokens() {
+        return issuedTokens.get();
+    }
+}
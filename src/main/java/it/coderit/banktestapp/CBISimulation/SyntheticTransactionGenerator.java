@@ -0,0 +1,210 @@
+package it.coderit.banktestapp.CBISimulation;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import it.coderit.banktestapp.dto.CredemAccountResponse.AccountBalance;
+import it.coderit.banktestapp.dto.CredemAccountResponse.AccountData;
+import it.coderit.banktestapp.dto.CredemTransactionResponse;
+import it.coderit.banktestapp.dto.CredemTransactionResponse.TransactionData;
+import it.coderit.banktestapp.model.Currency;
+
+/**
+ * Generatore deterministico di transazioni sintetiche per i test di carico.
+ * Ogni giorno di ogni account ha un proprio generatore pseudo-casuale derivato da
+ * (seed, accountId, giorno): a parità di configurazione le stesse richieste restituiscono
+ * sempre le stesse righe, indipendentemente dall'ordine o dalla dimensione delle pagine.
+ * Il numero di righe di un giorno è la prima estrazione del suo generatore, quindi
+ * offset e conteggi si calcolano senza generare le righe dei giorni saltati.
+ */
+public class SyntheticTransactionGenerator {
+
+    private static final DateTimeFormatter ISO_FORMATTER = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+    private static final ZoneId ZONE = ZoneId.of("Europe/Rome");
+
+    private final long seed;
+    private final int rowsPerDay;
+    private final List<String> merchants;
+    private final double amountMedian;
+    private final double amountSigma;
+    private final double incomeRatio;
+    private final double incomeMedian;
+
+    /**
+     * @param rowsPerDay   numero medio di movimenti al giorno (il valore effettivo varia tra 0 e il doppio)
+     * @param merchants    vocabolario delle controparti usato per causali e nomi
+     * @param amountMedian mediana degli addebiti; gli importi seguono una log-normale
+     * @param amountSigma  dispersione (sigma) della log-normale
+     * @param incomeRatio  frazione di movimenti in accredito
+     * @param incomeMedian mediana degli accrediti
+     */
+    public SyntheticTransactionGenerator(long seed, int rowsPerDay, List<String> merchants,
+            double amountMedian, double amountSigma, double incomeRatio, double incomeMedian) {
+        if (rowsPerDay < 0) {
+            throw new IllegalArgumentException("rowsPerDay non può essere negativo");
+        }
+        if (merchants == null || merchants.isEmpty()) {
+            throw new IllegalArgumentException("Il vocabolario dei merchant non può essere vuoto");
+        }
+        this.seed = seed;
+        this.rowsPerDay = rowsPerDay;
+        this.merchants = List.copyOf(merchants);
+        this.amountMedian = amountMedian;
+        this.amountSigma = amountSigma;
+        this.incomeRatio = incomeRatio;
+        this.incomeMedian = incomeMedian;
+    }
+
+    /**
+     * Pagina di movimenti con data di contabilizzazione in [from, to], in ordine cronologico.
+     */
+    public CredemTransactionResponse page(String accountId, LocalDate from, LocalDate to, int offset, int limit) {
+        CredemTransactionResponse response = new CredemTransactionResponse();
+        response.booked = new ArrayList<>();
+        int skip = Math.max(offset, 0);
+        for (LocalDate day = from; !day.isAfter(to) && response.booked.size() < limit; day = day.plusDays(1)) {
+            int count = rowCount(accountId, day);
+            if (skip >= count) {
+                skip -= count;
+                continue;
+            }
+            List<TransactionData> rows = day(accountId, day);
+            for (int i = skip; i < rows.size() && response.booked.size() < limit; i++) {
+                response.booked.add(rows.get(i));
+            }
+            skip = 0;
+        }
+        return response;
+    }
+
+    /**
+     * Numero totale di movimenti nell'intervallo [from, to].
+     */
+    public int count(String accountId, LocalDate from, LocalDate to) {
+        int total = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            total += rowCount(accountId, day);
+        }
+        return total;
+    }
+
+    /**
+     * Ultimo movimento contabilizzato fino a 'upTo' compreso (cerca a ritroso fino a un anno), null se assente.
+     */
+    public TransactionData lastTransaction(String accountId, LocalDate upTo) {
+        for (LocalDate day = upTo; day.isAfter(upTo.minusYears(1)); day = day.minusDays(1)) {
+            List<TransactionData> rows = day(accountId, day);
+            if (!rows.isEmpty()) {
+                return rows.get(rows.size() - 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Anagrafica sintetica di un conto: l'IBAN coincide con il resourceId.
+     */
+    public AccountData account(String accountId, boolean withBalance) {
+        AccountData account = new AccountData();
+        account.resourceId = accountId;
+        account.iban = accountId;
+        account.currency = "EUR";
+        account.name = "Conto sintetico " + accountId;
+        account.cashAccountType = "CACC";
+        if (withBalance) {
+            account.balances = List.of(balance(accountId, LocalDate.now()));
+        }
+        return account;
+    }
+
+    /**
+     * Saldo contabile alla data indicata. Cambia solo quando compare un nuovo movimento:
+     * lastCommittedTransactionEntry è l'ultimo movimento generato, così sync.skip-if-unchanged
+     * si comporta come con un ASPSP reale.
+     */
+    public AccountBalance balance(String accountId, LocalDate referenceDate) {
+        TransactionData last = lastTransaction(accountId, referenceDate);
+        AccountBalance balance = new AccountBalance();
+        balance.balanceType = "closingBooked";
+        balance.currency = "EUR";
+        balance.amount = BigDecimal.valueOf(5000).setScale(2);
+        balance.referenceDate = referenceDate.toString();
+        if (last != null) {
+            balance.lastCommittedTransactionEntry = last.transactionId;
+            balance.lastChangeDateTime = OffsetDateTime.parse(last.bookingDate).withOffsetSameInstant(ZoneOffset.UTC);
+        }
+        return balance;
+    }
+
+    /**
+     * Movimenti di un singolo giorno, in ordine di orario.
+     */
+    public List<TransactionData> day(String accountId, LocalDate day) {
+        SplittableRandom random = random(accountId, day);
+        int count = nextCount(random);
+        List<TransactionData> rows = new ArrayList<>(count);
+        // orari crescenti distribuiti nella giornata lavorativa (08:00-20:00)
+        int minute = 8 * 60;
+        int step = count == 0 ? 0 : (12 * 60) / count;
+        for (int i = 0; i < count; i++) {
+            minute += random.nextInt(Math.max(step, 1));
+            rows.add(row(random, accountId, day, i, LocalTime.of(Math.min(minute / 60, 23), minute % 60)));
+        }
+        return rows;
+    }
+
+    int rowCount(String accountId, LocalDate day) {
+        return nextCount(random(accountId, day));
+    }
+
+    private TransactionData row(SplittableRandom random, String accountId, LocalDate day, int index, LocalTime time) {
+        String merchant = merchants.get(random.nextInt(merchants.size()));
+        boolean income = random.nextDouble() < incomeRatio;
+        double median = income ? incomeMedian : amountMedian;
+        double value = median * Math.exp(amountSigma * random.nextGaussian());
+        BigDecimal amount = BigDecimal.valueOf(Math.max(value, 0.01)).setScale(2, RoundingMode.HALF_UP);
+
+        TransactionData data = new TransactionData();
+        data.transactionId = "SYN-" + accountId + "-" + day.format(DateTimeFormatter.BASIC_ISO_DATE) + "-" + index;
+        data.accountId = accountId;
+        String timestamp = day.atTime(time).atZone(ZONE).toOffsetDateTime().format(ISO_FORMATTER);
+        data.bookingDate = timestamp;
+        data.valueDate = timestamp;
+        data.transactionAmount = new TransactionData.Amount();
+        data.transactionAmount.currency = Currency.EUR;
+        data.transactionAmount.amount = income ? amount : amount.negate();
+        if (income) {
+            data.remittanceInformationUnstructured = "Bonifico a vostro favore - fattura " + (1000 + random.nextInt(9000));
+            data.debtorName = merchant;
+            data.creditorName = "Titolare conto";
+            data.bankTransactionCode = "PMNT-RCDT-ESCT";
+        } else {
+            data.remittanceInformationUnstructured = "Pagamento POS - acquisto " + merchant;
+            data.creditorName = merchant;
+            data.debtorName = "Titolare conto";
+            data.bankTransactionCode = "PMNT-CCRD-POSD";
+        }
+        data.proprietaryBankTransactionCode = "CBI-" + String.format("%05d", random.nextInt(100000));
+        return data;
+    }
+
+    private int nextCount(SplittableRandom random) {
+        return rowsPerDay == 0 ? 0 : random.nextInt(2 * rowsPerDay + 1);
+    }
+
+    private SplittableRandom random(String accountId, LocalDate day) {
+        long mixed = seed;
+        mixed = mixed * 31 + accountId.hashCode();
+        mixed = mixed * 31 + day.toEpochDay();
+        return new SplittableRandom(mixed);
+    }
+}
@@ -0,0 +1,82 @@
+package it.coderit.banktestapp;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import it.coderit.banktestapp.dto.BackfillProgress;
+import it.coderit.banktestapp.dto.BookedTransactions;
+import it.coderit.banktestapp.dto.BulkClassificationRequest;
+import it.coderit.banktestapp.dto.BulkClassificationResult;
+import it.coderit.banktestapp.dto.CredemAccountResponse;
+import it.coderit.banktestapp.dto.CredemBalancesResponse;
+import it.coderit.banktestapp.dto.CredemSingleAccountResponse;
+import it.coderit.banktestapp.dto.CredemTransactionResponse;
+import it.coderit.banktestapp.dto.DownloadResult;
+import it.coderit.banktestapp.dto.RecordingInfo;
+import it.coderit.banktestapp.dto.RuleInput;
+import it.coderit.banktestapp.dto.TransactionSearchPage;
+import it.coderit.banktestapp.dto.TransactionView;
+import it.coderit.banktestapp.model.AccountCoverage;
+import it.coderit.banktestapp.model.AccountSyncMarker;
+import it.coderit.banktestapp.model.AspspPageSize;
+import it.coderit.banktestapp.model.BackfillWindow;
+import it.coderit.banktestapp.model.ClassificationRule;
+import it.coderit.banktestapp.model.DataVersion;
+import it.coderit.banktestapp.model.IngestionRun;
+import it.coderit.banktestapp.model.SyncCheckpoint;
+import it.coderit.banktestapp.model.Transaction;
+import it.coderit.banktestapp.repository.JdbcTimingListener;
+import it.coderit.banktestapp.rest.CredemClient;
+import it.coderit.banktestapp.rest.CredemReactiveClient;
+
+/**
+ * Classi usate via reflection che Quarkus non registra da solo nell'eseguibile nativo (mvn package -Dnative).
+ * <ul>
+ * <li>DTO Jackson letti con ObjectMapper (FakeCredemClient, PageFingerprintCache) o restituiti dentro una
+ * Response, il cui tipo non è visibile al build;</li>
+ * <li>entity Lombok serializzate in JSON dai controller (getter generati da @Data);</li>
+ * <li>TransactionView, istanziata da Hibernate con la constructor expression di project();</li>
+ * <li>JdbcTimingListener, creato da Hibernate a partire dal nome in hibernate.session.events.auto;</li>
+ * <li>i metodi di CredemClient, cercati per nome dal proxy di FakeCredemReactiveClientProducer
+ * (l'interfaccia del proxy dinamico è in META-INF/native-image/.../proxy-config.json).</li>
+ * </ul>
+ * I file JSON di test-data/ sono inclusi con quarkus.native.resources.includes.
+ */
+@RegisterForReflection(targets = {
+        BackfillProgress.class,
+        BookedTransactions.class,
+        BulkClassificationRequest.class,
+        BulkClassificationRequest.Item.class,
+        BulkClassificationRequest.Filter.class,
+        BulkClassificationResult.class,
+        BulkClassificationResult.ItemResult.class,
+        CredemAccountResponse.class,
+        CredemAccountResponse.AccountData.class,
+        CredemAccountResponse.AccountBalance.class,
+        CredemAccountResponse.LinkData.class,
+        CredemAccountResponse.ErrorManagement.class,
+        CredemAccountResponse.TppMessage.class,
+        CredemBalancesResponse.class,
+        CredemBalancesResponse.BalancesAccountInfo.class,
+        CredemSingleAccountResponse.class,
+        CredemTransactionResponse.class,
+        CredemTransactionResponse.TransactionData.class,
+        CredemTransactionResponse.TransactionData.Amount.class,
+        DownloadResult.class,
+        RecordingInfo.class,
+        RuleInput.class,
+        TransactionSearchPage.class,
+        TransactionView.class,
+        AccountCoverage.class,
+        AccountSyncMarker.class,
+        AspspPageSize.class,
+        BackfillWindow.class,
+        ClassificationRule.class,
+        DataVersion.class,
+        IngestionRun.class,
+        SyncCheckpoint.class,
+        Transaction.class,
+        JdbcTimingListener.class,
+        CredemClient.class,
+        CredemReactiveClient.class
+})
+public class NativeImageConfiguration {
+}
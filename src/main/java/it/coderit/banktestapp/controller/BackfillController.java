@@ -0,0 +1,83 @@
+package it.coderit.banktestapp.controller;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import it.coderit.banktestapp.dto.BackfillProgress;
+import it.coderit.banktestapp.service.BackfillService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+@Path("/backfill")
+@Produces(MediaType.APPLICATION_JSON)
+public class BackfillController {
+
+    private static final Logger log = LoggerFactory.getLogger(BackfillController.class);
+
+    @Inject
+    BackfillService backfillService;
+
+    @ConfigProperty(name = "credem.account-id")
+    String defaultAccountId;
+
+    // Avvia il backfill storico di un account tra 'from' e 'to' (YYYY-MM-DD), a finestre MONTH o WEEK.
+    // Risponde 202 con lo stato iniziale; l'avanzamento si legge da GET /backfill/{jobId}.
+    @POST
+    public Response startBackfill(@QueryParam("accountId") String accountId,
+            @QueryParam("from") String from,
+            @QueryParam("to") String to,
+            @QueryParam("granularity") @DefaultValue("MONTH") String granularity) {
+        if (from == null || to == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("I parametri 'from' e 'to' sono obbligatori.").build();
+        }
+        LocalDate fromDate;
+        LocalDate toDate;
+        try {
+            fromDate = LocalDate.parse(from);
+            toDate = LocalDate.parse(to);
+        } catch (DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Formato data non valido per 'from' o 'to'. Utilizzare il formato YYYY-MM-DD.").build();
+        }
+        BackfillService.Granularity windowGranularity;
+        try {
+            windowGranularity = BackfillService.Granularity.valueOf(granularity.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Granularità non valida. Valori possibili: MONTH, WEEK").build();
+        }
+        String targetAccountId = accountId == null || accountId.isBlank() ? defaultAccountId : accountId;
+
+        log.info("Richiesta backfill per accountId {} da {} a {} ({}).", targetAccountId, fromDate, toDate, windowGranularity);
+        try {
+            BackfillProgress progress = backfillService.start(targetAccountId, fromDate, toDate, windowGranularity);
+            return Response.accepted(progress).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+        }
+    }
+
+    // Avanzamento di un backfill.
+    @GET
+    @Path("/{jobId}")
+    public Response getProgress(@PathParam("jobId") String jobId) {
+        return backfillService.progress(jobId)
+                .map(progress -> Response.ok(progress).build())
+                .orElse(Response.status(Response.Status.NOT_FOUND).build());
+    }
+
+    // Backfill avviati da questa istanza, dal più recente.
+    @GET
+    public Response listBackfills() {
+        return Response.ok(backfillService.listProgress()).build();
+    }
+}
@@ -0,0 +1,50 @@
+package it.coderit.banktestapp.controller;
+
+import java.util.Date;
+
+import it.coderit.banktestapp.model.DataVersion;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+
+// Costruzione di ETag / Last-Modified / Cache-Control a partire dalla versione dei dati.
+final class CacheValidators {
+
+    private CacheValidators() {
+    }
+
+    // Se lo scope non è mai stato modificato la versione è 0
+    static EntityTag entityTag(String prefix, DataVersion version) {
+        return new EntityTag(prefix + "-" + (version != null ? version.getVersion() : 0L));
+    }
+
+    // Per le risposte filtrate il tag include un hash dei filtri normalizzati: la stessa versione dei dati
+    // con filtri diversi produce rappresentazioni diverse
+    static EntityTag entityTag(String prefix, DataVersion version, String filters) {
+        return new EntityTag(entityTag(prefix, version).getValue() + "-" + Integer.toHexString(filters.hashCode()));
+    }
+
+    static Date lastModified(DataVersion version) {
+        return version != null ? Date.from(version.getUpdatedAt().toInstant()) : null;
+    }
+
+    // Il client può conservare la risposta ma deve sempre rivalidarla con If-None-Match
+    static CacheControl revalidate() {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setNoCache(true);
+        cacheControl.setPrivate(true);
+        return cacheControl;
+    }
+
+    // Restituisce il builder della 304 se il client ha già la versione corrente, altrimenti null.
+    // Con If-None-Match si valuta solo l'ETag e If-Modified-Since viene ignorato (RFC 7232, sezione 6)
+    static Response.ResponseBuilder evaluate(Request request, HttpHeaders headers, EntityTag entityTag,
+            Date lastModified) {
+        if (lastModified == null || headers.getHeaderString(HttpHeaders.IF_NONE_MATCH) != null) {
+            return request.evaluatePreconditions(entityTag);
+        }
+        return request.evaluatePreconditions(lastModified, entityTag);
+    }
+}
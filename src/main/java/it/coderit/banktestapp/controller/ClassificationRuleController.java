@@ -3,21 +3,32 @@ package it.coderit.banktestapp.controller;
 import it.coderit.banktestapp.dto.RuleInput;
 import it.coderit.banktestapp.model.ClassificationRule;
 import it.coderit.banktestapp.model.CenterType;
+import it.coderit.banktestapp.model.DataVersion;
 import it.coderit.banktestapp.model.Transaction;
 import it.coderit.banktestapp.repository.ClassificationRuleRepository;
+import it.coderit.banktestapp.repository.DataVersionRepository;
 import it.coderit.banktestapp.repository.TransactionRepository;
 import it.coderit.banktestapp.service.RuleEngineService;
 import it.coderit.banktestapp.service.TransactionService;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import java.util.Date;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+// Ogni richiesta su un virtual thread: le query JPA bloccanti non occupano un thread del worker pool
 @Path("/rules")
+@PhaseTimed
+@RunOnVirtualThread
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class ClassificationRuleController {
@@ -36,13 +47,28 @@ public class ClassificationRuleController {
     @Inject
     RuleEngineService ruleEngineService; 
 
+    @Inject
+    DataVersionRepository dataVersionRepository;
+
     
     //Restituisce tutte le regole di classificazione presenti nel database.
      
+    // Con If-None-Match / If-Modified-Since aggiornati risponde 304 senza leggere le regole.
     @GET
-    public List<ClassificationRule> getAllRules() {
+    public Response getAllRules(@Context Request request, @Context HttpHeaders headers) {
         log.info("Richiesta di tutte le regole di classificazione.");
-        return ruleRepository.listAll();
+        DataVersion rulesVersion = dataVersionRepository.findVersion(DataVersionRepository.RULES_SCOPE).orElse(null);
+        EntityTag entityTag = CacheValidators.entityTag("rules", rulesVersion);
+        Date lastModified = CacheValidators.lastModified(rulesVersion);
+        Response.ResponseBuilder notModified = CacheValidators.evaluate(request, headers, entityTag, lastModified);
+        if (notModified != null) {
+            return notModified.cacheControl(CacheValidators.revalidate()).build();
+        }
+        return Response.ok(ruleRepository.listAll())
+                .tag(entityTag)
+                .lastModified(lastModified)
+                .cacheControl(CacheValidators.revalidate())
+                .build();
     }
 
     // Restituisce una regola di classificazione per il suo ID.
@@ -98,6 +124,7 @@ public class ClassificationRuleController {
                 .map(existingRule -> {
                     existingRule.setKeyword(ruleInput.getKeyword());
                     existingRule.setCenterType(ruleInput.getCenterType());
+                    dataVersionRepository.bumpRules();
                     log.info("Regola ID: {} aggiornata con successo.", id);
                     return Response.ok(existingRule).build();
                 })
@@ -112,6 +139,7 @@ public class ClassificationRuleController {
         log.info("Richiesta di cancellazione regola ID: {}", id);
         boolean deleted = ruleRepository.deleteById(id);
         if (deleted) {
+            dataVersionRepository.bumpRules();
             log.info("Regola ID: {} cancellata con successo.", id);
             return Response.noContent().build();
         } else {
@@ -122,14 +150,15 @@ public class ClassificationRuleController {
 
     /*
      * Aggiunge una nuova regola di classificazione (o verifica se esiste già) e riclassifica
-     * tutte le transazioni presenti nel database in base all'insieme di regole aggiornato.
+     * in base all'insieme di regole aggiornato le transazioni che contengono la keyword,
+     * le sole su cui la nuova regola può incidere.
      * Le transazioni classificate manualmente non verranno sovrascritte.
      */  
     @POST
     @Transactional
     @Path("/reclassify-all") // Nuovo path per riclassificare tutte le transazioni
     public Response reclassifyAllTransactions(RuleInput ruleInput) {
-        log.info("Richiesta di riclassificazione di TUTTE le transazioni con nuova regola: {}", ruleInput);
+        log.info("Richiesta di riclassificazione delle transazioni con nuova regola: {}", ruleInput);
 
         if (ruleInput.getKeyword() == null || ruleInput.getKeyword().trim().isEmpty()) {
             return Response.status(Response.Status.BAD_REQUEST).entity("La parola chiave non può essere vuota.").build();
@@ -146,13 +175,15 @@ public class ClassificationRuleController {
             ruleRepository.saveIfNotExists(ruleInput.getKeyword(), ruleInput.getCenterType());
             log.info("Regola '{}' con CenterType '{}' aggiunta o già esistente.", ruleInput.getKeyword(), ruleInput.getCenterType());
 
-            // 2. Recupera TUTTE le transazioni dal database
-            List<Transaction> allTransactions = transactionRepository.listAll();
-            log.info("Trovate {} transazioni totali da riclassificare.", allTransactions.size());
+            // 2. La nuova regola può cambiare solo le transazioni non manuali che contengono la keyword:
+            //    le candidate vengono cercate con gli indici trigram invece di leggere l'intera tabella
+            List<Transaction> candidates = transactionRepository.findReclassificationCandidates(ruleInput.getKeyword());
+            log.info("Trovate {} transazioni candidate da riclassificare per la keyword '{}'.", candidates.size(),
+                    ruleInput.getKeyword());
 
             int reclassifiedCount = 0;
-            // 3. Riclassifica ogni transazione
-            for (Transaction transaction : allTransactions) {
+            // 3. Riclassifica ogni transazione candidata
+            for (Transaction transaction : candidates) {
                 // Il metodo classifyTransaction ri-valuta tutte le regole e aggiorna la transazione
                 // Solo se la transazione non è stata classificata manualmente
                 if (Boolean.FALSE.equals(transaction.getIsManuallyClassified())) {
@@ -170,6 +201,10 @@ public class ClassificationRuleController {
                 }
             }
 
+            if (reclassifiedCount > 0) {
+                dataVersionRepository.bumpAllAccounts();
+            }
+
             log.info("Riclassificazione completata. {} transazioni sono state riclassificate/aggiornate.", reclassifiedCount);
             return Response.ok("Riclassificazione completata. " + reclassifiedCount + " transazioni sono state riclassificate/aggiornate.").build();
 
@@ -0,0 +1,41 @@
+package it.coderit.banktestapp.controller;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+
+/**
+ * Bucket SLO (metrics.http.slo) per http_server_requests e http.request.phase: su /q/metrics
+ * compare il numero di richieste sotto ogni soglia, da cui si calcolano gli obiettivi di latenza.
+ */
+@Singleton
+public class HttpMetricsConfiguration {
+
+    @ConfigProperty(name = "metrics.http.slo", defaultValue = "PT0.1S,PT0.5S,PT1S")
+    List<Duration> slo;
+
+    @Produces
+    @Singleton
+    MeterFilter httpServiceLevelObjectives() {
+        double[] boundaries = slo.stream().mapToDouble(Duration::toNanos).toArray();
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (!"http.server.requests".equals(id.getName()) && !RequestPhaseTimer.METRIC.equals(id.getName())) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .serviceLevelObjectives(boundaries)
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package it.coderit.banktestapp.controller;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import jakarta.ws.rs.NameBinding;
+
+/**
+ * Attiva RequestPhaseTimer sulle risorse annotate: tempi di query, idratazione e serializzazione JSON.
+ */
+@NameBinding
+@Target({ TYPE, METHOD })
+@Retention(RUNTIME)
+public @interface PhaseTimed {
+}
@@ -0,0 +1,88 @@
+package it.coderit.banktestapp.controller;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import it.coderit.banktestapp.dto.RecordingInfo;
+import it.coderit.banktestapp.service.ProfilingService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+// Profilazione on demand con Java Flight Recorder, riservata agli amministratori (vedi application.properties).
+@Path("/admin/profiling")
+@Produces(MediaType.APPLICATION_JSON)
+public class ProfilingController {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfilingController.class);
+
+    @Inject
+    ProfilingService profilingService;
+
+    // Avvia una registrazione a tempo. 'duration' in formato ISO-8601 (es. PT60S), 'settings' default, profile
+    // o nome di un file .jfc di profiling.jfr.settings-directory; se assenti valgono profiling.jfr.duration
+    // e profiling.jfr.settings.
+    // Risponde 202: il file si scarica da GET /admin/profiling/recordings/{name} quando la registrazione è conclusa.
+    @POST
+    @Path("/recordings")
+    public Response startRecording(@QueryParam("duration") String duration, @QueryParam("settings") String settings) {
+        Duration recordingDuration = null;
+        if (duration != null && !duration.isBlank()) {
+            try {
+                recordingDuration = Duration.parse(duration);
+            } catch (DateTimeParseException e) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Durata non valida. Utilizzare il formato ISO-8601, es. PT60S.").build();
+            }
+        }
+        try {
+            RecordingInfo info = profilingService.start(recordingDuration, settings, "manual");
+            return Response.accepted(info).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+        }
+    }
+
+    // Ferma in anticipo la registrazione in corso.
+    @POST
+    @Path("/recordings/stop")
+    public Response stopRecording() {
+        return profilingService.stop()
+                .map(info -> Response.ok(info).build())
+                .orElse(Response.status(Response.Status.NOT_FOUND)
+                        .entity("Nessuna registrazione JFR in corso.").build());
+    }
+
+    // Registrazione corrente e file .jfr disponibili, dal più recente.
+    @GET
+    @Path("/recordings")
+    public Response listRecordings() {
+        return Response.ok(profilingService.list()).build();
+    }
+
+    // Scarica il file .jfr di una registrazione conclusa (da aprire con JDK Mission Control o 'jfr print').
+    @GET
+    @Path("/recordings/{name}")
+    @Produces({ MediaType.APPLICATION_OCTET_STREAM, MediaType.TEXT_PLAIN })
+    public Response downloadRecording(@PathParam("name") String name) {
+        try {
+            return profilingService.file(name)
+                    .map(file -> {
+                        log.info("Download della registrazione JFR {}.", name);
+                        return Response.ok(file.toFile(), MediaType.APPLICATION_OCTET_STREAM)
+                                .header("Content-Disposition", "attachment; filename=\"" + name + "\"")
+                                .build();
+                    })
+                    .orElse(Response.status(Response.Status.NOT_FOUND).type(MediaType.TEXT_PLAIN)
+                            .entity("Registrazione non trovata: " + name).build());
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT).type(MediaType.TEXT_PLAIN).entity(e.getMessage()).build();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package it.coderit.banktestapp.controller;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+/**
+ * Scompone il tempo delle richieste delle risorse @PhaseTimed nel timer http.request.phase
+ * (tag endpoint e phase), esportato su /q/metrics insieme a http_server_requests:
+ * <ul>
+ * <li>query: esecuzione degli statement JDBC, misurata da JdbcTimingListener; il cursore JDBC
+ * dell'export CSV, che non passa da Hibernate, la riporta da sé (TransactionExportService);</li>
+ * <li>hydration: resto del metodo della risorsa, cioè lettura del ResultSet, costruzione di
+ * entity e proiezioni e la poca logica dei controller;</li>
+ * <li>serialization: scrittura del corpo della risposta (JSON, o CSV per /transactions/export),
+ * al netto delle query eseguite mentre si scrive.</li>
+ * </ul>
+ * Le richieste bloccanti girano su un worker thread dall'inizio alla fine, quindi il tempo JDBC
+ * si accumula in un ThreadLocal aperto dal filtro di richiesta.
+ */
+@Provider
+@PhaseTimed
+public class RequestPhaseTimer implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    static final String METRIC = "http.request.phase";
+
+    private static final String TIMINGS = RequestPhaseTimer.class.getName() + ".timings";
+    private static final ThreadLocal<Timings> CURRENT = new ThreadLocal<>();
+
+    @Inject
+    MeterRegistry registry;
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    // Tempi di una richiesta; il tempo JDBC è cumulativo, le fasi ne prendono la differenza
+    static final class Timings {
+        final String endpoint;
+        final long start = System.nanoTime();
+        long jdbcNanos;
+        long handlerNanos;
+        long handlerJdbcNanos;
+
+        Timings(String endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    /**
+     * Chiamato da JdbcTimingListener: ignorato fuori da una richiesta misurata (scheduler, sync asincrono).
+     */
+    public static void addJdbcNanos(long nanos) {
+        Timings timings = CURRENT.get();
+        if (timings != null) {
+            timings.jdbcNanos += nanos;
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        Timings timings = new Timings(endpoint());
+        request.setProperty(TIMINGS, timings);
+        CURRENT.set(timings);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        Timings timings = (Timings) request.getProperty(TIMINGS);
+        if (timings == null) {
+            return;
+        }
+        timings.handlerNanos = System.nanoTime() - timings.start;
+        timings.handlerJdbcNanos = timings.jdbcNanos;
+        // Senza corpo (304, 204, errori senza entity) l'interceptor di scrittura non viene chiamato
+        if (!response.hasEntity()) {
+            record(timings, 0, 0);
+            CURRENT.remove();
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        Timings timings = (Timings) context.getProperty(TIMINGS);
+        if (timings == null) {
+            context.proceed();
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            context.proceed();
+        } finally {
+            record(timings, System.nanoTime() - start, timings.jdbcNanos - timings.handlerJdbcNanos);
+            CURRENT.remove();
+        }
+    }
+
+    private void record(Timings timings, long writeNanos, long writeJdbcNanos) {
+        timer(timings.endpoint, "query").record(timings.jdbcNanos, TimeUnit.NANOSECONDS);
+        timer(timings.endpoint, "hydration")
+                .record(Math.max(timings.handlerNanos - timings.handlerJdbcNanos, 0), TimeUnit.NANOSECONDS);
+        timer(timings.endpoint, "serialization")
+                .record(Math.max(writeNanos - writeJdbcNanos, 0), TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String endpoint, String phase) {
+        return Timer.builder(METRIC)
+                .description("Durata delle fasi delle richieste HTTP: query, idratazione, serializzazione")
+                .tags("endpoint", endpoint, "phase", phase)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private String endpoint() {
+        if (resourceInfo == null || resourceInfo.getResourceMethod() == null) {
+            return "unknown";
+        }
+        return resourceInfo.getResourceClass().getSimpleName() + "." + resourceInfo.getResourceMethod().getName();
+    }
+}
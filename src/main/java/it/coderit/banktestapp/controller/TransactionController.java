@@ -1,27 +1,44 @@
 package it.coderit.banktestapp.controller;
 
+import it.coderit.banktestapp.dto.BulkClassificationRequest;
+import it.coderit.banktestapp.dto.BulkClassificationResult;
 import it.coderit.banktestapp.dto.CredemTransactionResponse;
 import it.coderit.banktestapp.dto.DownloadResult;
+import it.coderit.banktestapp.dto.TransactionSearchPage;
+import it.coderit.banktestapp.dto.TransactionView;
 import it.coderit.banktestapp.model.Transaction;
 import it.coderit.banktestapp.model.CenterType;
+import it.coderit.banktestapp.model.DataVersion;
+import it.coderit.banktestapp.repository.DataVersionRepository;
 import it.coderit.banktestapp.repository.TransactionRepository;
+import it.coderit.banktestapp.service.TransactionExportService;
 import it.coderit.banktestapp.service.TransactionService;
 import it.coderit.banktestapp.service.RuleEngineService;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
+// Endpoint JSON su virtual thread (@RunOnVirtualThread sui singoli metodi), l'export CSV resta sul worker pool
 @Path("/transactions")
+@PhaseTimed
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class TransactionController {
@@ -35,19 +52,30 @@ public class TransactionController {
     @Inject
     TransactionService transactionService;
 
+    @Inject
+    TransactionExportService transactionExportService;
+
+    @Inject
+    DataVersionRepository dataVersionRepository;
+
     @Inject
     Logger log;
 
     @ConfigProperty(name = "credem.account-id")
     String defaultAccountId;
 
+    private static final int MAX_SEARCH_LIMIT = 200;
+
     // --- ENDPOINT GET UNIFICATO PER INTERAGIRE CON I DATI SU DATABASE ---
     @GET
+    @RunOnVirtualThread
     @Produces(MediaType.APPLICATION_JSON)
     public Response transactions(
             @QueryParam("from") String dateFrom,              // Opzionale
             @QueryParam("to") String dateTo,                  // Opzionale
-            @QueryParam("centerType") String centerTypeStr) { // Opzionale
+            @QueryParam("centerType") String centerTypeStr,   // Opzionale
+            @Context Request request,
+            @Context HttpHeaders headers) {
 
         // 1. Determinazione dell'accountId effettivo
         final String effectiveAccountId = defaultAccountId;
@@ -56,61 +84,156 @@ public class TransactionController {
                     .entity("configurazione predefinita mancante").build();
         }
 
+        // 2-3. Parsing e validazione di date e CenterType
+        TransactionFilters filters = parseFilters(dateFrom, dateTo, centerTypeStr);
+
+        // 4. GET condizionale: se il client ha già la versione corrente dei dati dell'account
+        //    per gli stessi filtri risponde 304 senza eseguire la query né serializzare
+        DataVersion dataVersion = dataVersionRepository.findVersion(DataVersionRepository.accountScope(effectiveAccountId))
+                .orElse(null);
+        EntityTag entityTag = CacheValidators.entityTag("tx", dataVersion, filters.toString());
+        Date lastModified = CacheValidators.lastModified(dataVersion);
+        Response.ResponseBuilder notModified = CacheValidators.evaluate(request, headers, entityTag, lastModified);
+        if (notModified != null) {
+            return notModified.cacheControl(CacheValidators.revalidate()).build();
+        }
+
+        // 5. Logica di Recupero e Filtro dei Movimenti
+        try {
+            // Chiamata al service per cercare le transazioni
+            List<TransactionView> transactions = transactionService.searchTransactions(effectiveAccountId, filters.from(), filters.to(), filters.centerType());
+
+            if (transactions.isEmpty()) {
+                log.info("nessuna transazione trovata per account " + effectiveAccountId + " con i criteri specificati.");   
+            } else {
+                log.info("Trovate " + transactions.size() + " transazioni per account " + effectiveAccountId + " con i criteri specificati.");
+            }
+
+            return Response.ok(transactions)
+                    .tag(entityTag)
+                    .lastModified(lastModified)
+                    .cacheControl(CacheValidators.revalidate())
+                    .build();
+
+        } catch (Exception e) {
+            log.error("Errore durante il recupero/filtro dei movimenti per account " + effectiveAccountId + ": " + e.getMessage(), e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("Errore durante il recupero/filtro dei movimenti: " + e.getMessage()).build();
+        }
+    }
+
+    // --- EXPORT CSV IN STREAMING (stessi filtri della GET) ---
+    // Resta sul worker pool: quando il client legge lentamente, lo stream di risposta attende con
+    // synchronized/wait e su JDK 21 bloccherebbe il carrier del virtual thread (pinning).
+    @GET
+    @Path("/export")
+    @Produces({ "text/csv", "application/gzip" })
+    public Response export(
+            @QueryParam("from") String dateFrom,
+            @QueryParam("to") String dateTo,
+            @QueryParam("centerType") String centerTypeStr,
+            @QueryParam("gzip") @DefaultValue("false") boolean gzip) {
+
+        TransactionFilters filters = parseFilters(dateFrom, dateTo, centerTypeStr);
+
+        StreamingOutput stream = output -> {
+            if (gzip) {
+                try (GZIPOutputStream gzipOutput = new GZIPOutputStream(output, 64 * 1024)) {
+                    transactionExportService.exportCsv(defaultAccountId, filters.from(), filters.to(),
+                            filters.centerType(), gzipOutput);
+                }
+            } else {
+                transactionExportService.exportCsv(defaultAccountId, filters.from(), filters.to(),
+                        filters.centerType(), output);
+            }
+        };
+
+        String filename = "transactions_" + defaultAccountId + (gzip ? ".csv.gz" : ".csv");
+        return Response.ok(stream)
+                .type(gzip ? "application/gzip" : "text/csv; charset=UTF-8")
+                .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
+                .build();
+    }
+
+    /**
+     * Valida i filtri comuni (from/to/centerType) delle GET sulle transazioni.
+     * In caso di input non valido lancia una WebApplicationException con la risposta 400.
+     */
+    private TransactionFilters parseFilters(String dateFrom, String dateTo, String centerTypeStr) {
         LocalDate fromDateObj = null;
         LocalDate toDateObj = null;
 
-        // 2. Parsing e validazione delle date, solo se *entrambe* fornite
+        // Parsing e validazione delle date, solo se *entrambe* fornite
         if (dateFrom != null && !dateFrom.isEmpty() && dateTo != null && !dateTo.isEmpty()) {
             try {
                 fromDateObj = LocalDate.parse(dateFrom);
                 toDateObj = LocalDate.parse(dateTo);
             } catch (DateTimeParseException e) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity("Formato data non valido per 'from' o 'to'. Utilizzare il formato YYYY-MM-DD.").build();
+                throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Formato data non valido per 'from' o 'to'. Utilizzare il formato YYYY-MM-DD.").build());
             }
 
             if (fromDateObj.isAfter(toDateObj)) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity("La data 'from' non può essere successiva alla data 'to'.").build();
+                throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST)
+                        .entity("La data 'from' non può essere successiva alla data 'to'.").build());
             }
         } else if ((dateFrom != null && !dateFrom.isEmpty()) || (dateTo != null && !dateTo.isEmpty())) {
             // Se solo uno dei due parametri data è fornito, è un errore di input
-            return Response.status(Response.Status.BAD_REQUEST)
-                    .entity("Per il filtro per data, entrambi i parametri 'from' e 'to' sono obbligatori.").build();
+            throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Per il filtro per data, entrambi i parametri 'from' e 'to' sono obbligatori.").build());
         }
 
-        // 3. Parsing e validazione del CenterType, solo se fornito
+        // Parsing e validazione del CenterType, solo se fornito
         CenterType centerType = null;
         if (centerTypeStr != null && !centerTypeStr.isEmpty()) {
             try {
                 centerType = CenterType.fromName(centerTypeStr);
             } catch (IllegalArgumentException e) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity("Tipo center non valido. Valori possibili: COSTO, PROFITTO, UNDEFINED").build();
+                throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST)
+                        .entity("Tipo center non valido. Valori possibili: COSTO, PROFITTO, UNDEFINED").build());
             }
         }
 
-        // 4. Logica di Recupero e Filtro dei Movimenti
-        try {
-            // Chiamata al service per cercare le transazioni
-            List<Transaction> transactions = transactionService.searchTransactions(effectiveAccountId, fromDateObj, toDateObj, centerType);
+        return new TransactionFilters(fromDateObj, toDateObj, centerType);
+    }
 
-            if (transactions.isEmpty()) {
-                log.info("nessuna transazione trovata per account " + effectiveAccountId + " con i criteri specificati.");   
-            } else {
-                log.info("Trovate " + transactions.size() + " transazioni per account " + effectiveAccountId + " con i criteri specificati.");
-            }
+    private record TransactionFilters(LocalDate from, LocalDate to, CenterType centerType) {
+    }
 
-            return Response.ok(transactions).build();
+    // --- RICERCA TESTUALE SU CAUSALE E CONTROPARTI ---
+    @GET
+    @RunOnVirtualThread
+    @Path("/search")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response search(
+            @QueryParam("q") String text,
+            @QueryParam("limit") @DefaultValue("50") int limit,
+            @QueryParam("cursor") String cursor) {
 
+        if (text == null || text.isBlank()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Parametro q obbligatorio.").build();
+        }
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Il parametro limit deve essere compreso tra 1 e " + MAX_SEARCH_LIMIT + ".").build();
+        }
+
+        try {
+            TransactionSearchPage page = transactionService.searchFullText(defaultAccountId, text.trim(), limit, cursor);
+            log.info("Ricerca '" + text + "': " + page.items.size() + " transazioni trovate per account " + defaultAccountId + ".");
+            return Response.ok(page).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         } catch (Exception e) {
-            log.error("Errore durante il recupero/filtro dei movimenti per account " + effectiveAccountId + ": " + e.getMessage(), e);
+            log.error("Errore durante la ricerca dei movimenti per account " + defaultAccountId + ": " + e.getMessage(), e);
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("Errore durante il recupero/filtro dei movimenti: " + e.getMessage()).build();
+                    .entity("Errore durante la ricerca dei movimenti: " + e.getMessage()).build();
         }
     }
 
     @PUT
+    @RunOnVirtualThread
     @Path("/{transactionId}/manual-classify")
     @Transactional
     public Response manuallyClassify(
@@ -147,6 +270,7 @@ public class TransactionController {
                 transactionToUpdate.setIsManuallyClassified(true);
 
                 transactionRepository.persist(transactionToUpdate);
+                dataVersionRepository.bumpAccount(transactionToUpdate.getAccountId());
 
                 log.info("Transazione ID " + transactionId + " classificata manualmente come " + newCenterType + ".");
                 return Response.ok("Transazione ID: " + transactionId + " classificata manualmente come: " + newCenterType).build();
@@ -156,5 +280,65 @@ public class TransactionController {
                 .entity("Errore durante la classificazione manuale" + e.getMessage()).build();
             }
         }
-   
-}
\ No newline at end of file
+
+    // --- CLASSIFICAZIONE MANUALE MASSIVA ---
+    @PUT
+    @RunOnVirtualThread
+    @Path("/manual-classify")
+    public Response bulkManuallyClassify(BulkClassificationRequest request) {
+
+        if (request == null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Corpo della richiesta obbligatorio.").build();
+        }
+        boolean hasItems = request.items != null && !request.items.isEmpty();
+        if (hasItems == (request.filter != null)) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Specificare 'items' oppure 'filter', non entrambi.").build();
+        }
+
+        try {
+            BulkClassificationResult result;
+            if (hasItems) {
+                if (request.items.size() > TransactionService.MAX_BULK_ITEMS) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity("Massimo " + TransactionService.MAX_BULK_ITEMS + " transazioni per richiesta.").build();
+                }
+                result = transactionService.bulkManualClassify(request.items);
+            } else {
+                if (request.centerType == null) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity("Parametro centerType obbligatorio.").build();
+                }
+                if (request.centerType == CenterType.UNDEFINED) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity("Non si può impostare manualmente il cento UNDEFINED").build();
+                }
+                // Un filtro vuoto classificherebbe tutte le transazioni dell'account
+                if (request.filter.from == null && request.filter.to == null && request.filter.centerType == null
+                        && (request.filter.keyword == null || request.filter.keyword.isBlank())) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity("Il filtro deve indicare almeno un criterio: date, centerType o keyword.").build();
+                }
+                if ((request.filter.from == null) != (request.filter.to == null)) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity("Per il filtro per data, entrambi i parametri 'from' e 'to' sono obbligatori.").build();
+                }
+                if (request.filter.from != null && request.filter.from.isAfter(request.filter.to)) {
+                    return Response.status(Response.Status.BAD_REQUEST)
+                            .entity("La data 'from' non può essere successiva alla data 'to'.").build();
+                }
+                result = transactionService.bulkManualClassifyByFilter(defaultAccountId, request.filter, request.centerType);
+            }
+
+            log.info("Classificazione manuale massiva: " + result.updated + " transazioni aggiornate.");
+            return Response.ok(result).build();
+
+        } catch (Exception e) {
+            log.error("Errore durante la classificazione manuale massiva: " + e.getMessage(), e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("Errore durante la classificazione manuale massiva: " + e.getMessage()).build();
+        }
+    }
+
+}
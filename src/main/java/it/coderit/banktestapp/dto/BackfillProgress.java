@@ -0,0 +1,34 @@
+package it.coderit.banktestapp.dto;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+// Avanzamento di un backfill storico.
+// skippedWindows sono le finestre già completate da un backfill precedente, quindi non riscaricate.
+public class BackfillProgress {
+
+    public enum Status {
+        RUNNING, COMPLETED, COMPLETED_WITH_ERRORS
+    }
+
+    public String jobId;
+    public String accountId;
+    public LocalDate from;
+    public LocalDate to;
+    public String granularity;
+    public Status status;
+    public int totalWindows;
+    public int skippedWindows;
+    public int completedWindows;
+    public int failedWindows;
+    public long rows;
+    public int percent;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    public OffsetDateTime startedAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    public OffsetDateTime finishedAt;
+}
@@ -0,0 +1,35 @@
+package it.coderit.banktestapp.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import it.coderit.banktestapp.model.CenterType;
+
+// Richiesta di classificazione manuale massiva.
+// Due modalità alternative:
+//  - items: lista di coppie (transactionId, centerType)
+//  - filter + centerType: tutte le transazioni dell'account che rispettano il filtro
+//    vengono classificate con il centerType indicato
+public class BulkClassificationRequest {
+
+    public List<Item> items;
+
+    public Filter filter;
+
+    // CenterType da assegnare in modalità filtro
+    public CenterType centerType;
+
+    public static class Item {
+        public String transactionId;
+        public CenterType centerType;
+    }
+
+    public static class Filter {
+        public LocalDate from;
+        public LocalDate to;
+        // CenterType attuale delle transazioni da selezionare (es. UNDEFINED)
+        public CenterType centerType;
+        // Parola cercata nei campi usati dal motore regole
+        public String keyword;
+    }
+}
@@ -0,0 +1,35 @@
+package it.coderit.banktestapp.dto;
+
+import java.util.List;
+
+import it.coderit.banktestapp.model.CenterType;
+
+// Esito della classificazione manuale massiva, con il dettaglio per ogni transactionId.
+// Per la classificazione via filtro il dettaglio è limitato ai primi MAX_BULK_ITEMS id, mentre updated è il totale.
+public class BulkClassificationResult {
+
+    public int updated;
+
+    public List<ItemResult> results;
+
+    public BulkClassificationResult(int updated, List<ItemResult> results) {
+        this.updated = updated;
+        this.results = results;
+    }
+
+    public enum Status {
+        CLASSIFIED, NOT_FOUND, INVALID
+    }
+
+    public static class ItemResult {
+        public String transactionId;
+        public CenterType centerType;
+        public Status status;
+
+        public ItemResult(String transactionId, CenterType centerType, Status status) {
+            this.transactionId = transactionId;
+            this.centerType = centerType;
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package it.coderit.banktestapp.dto;
+
+import java.time.OffsetDateTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+// Registrazione Java Flight Recorder avviata da /admin/profiling o da una sincronizzazione lenta.
+// Il file .jfr si scarica da GET /admin/profiling/recordings/{name} quando status è COMPLETED.
+public class RecordingInfo {
+
+    public enum Status {
+        RUNNING, COMPLETED
+    }
+
+    public String name;
+    public Status status;
+    // Configurazione JFR usata (default, profile o percorso di un file .jfc); null per i file già su disco
+    public String settings;
+    public String reason;
+    public long durationSeconds;
+    public long sizeBytes;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    public OffsetDateTime startedAt;
+}
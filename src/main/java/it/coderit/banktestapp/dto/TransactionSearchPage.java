@@ -0,0 +1,18 @@
+package it.coderit.banktestapp.dto;
+
+import java.util.List;
+
+// Pagina di risultati della ricerca testuale, ordinata per rilevanza.
+// nextCursor va ripassato come parametro 'cursor' per ottenere la pagina successiva;
+// è null quando non ci sono altri risultati.
+public class TransactionSearchPage {
+
+    public List<TransactionView> items;
+
+    public String nextCursor;
+
+    public TransactionSearchPage(List<TransactionView> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,30 @@
+package it.coderit.banktestapp.dto;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import it.coderit.banktestapp.model.CenterType;
+
+// Modello di sola lettura per le GET sulle transazioni.
+// Viene popolato direttamente dalla query (constructor expression), quindi non passa
+// dal persistence context: niente dirty checking e niente equals/hashCode di Lombok.
+// I nomi dei componenti devono corrispondere ai campi dell'entity Transaction.
+public record TransactionView(
+        Long id,
+        String transactionId,
+        String accountId,
+        @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ssXXX") OffsetDateTime bookingDate,
+        @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ssXXX") OffsetDateTime valueDate,
+        String currency,
+        BigDecimal amount,
+        String remittanceInformation,
+        String creditorName,
+        String debtorName,
+        String bankTransactionCode,
+        String additionalInformation,
+        String proprietaryBankTransactionCode,
+        CenterType centerType,
+        Boolean isManuallyClassified) {
+}
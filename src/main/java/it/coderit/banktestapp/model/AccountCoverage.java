@@ -0,0 +1,27 @@
+package it.coderit.banktestapp.model;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Intervallo di date già scaricato per un account (vedi V10__account_coverage.sql).
+@Data
+@Entity
+@Table(name = "account_coverage")
+public class AccountCoverage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    public Long id;
+
+    @Column(name = "account_id", nullable = false, length = 255)
+    public String accountId;
+
+    @Column(name = "from_date", nullable = false)
+    public LocalDate fromDate;
+
+    @Column(name = "to_date", nullable = false)
+    public LocalDate toDate;
+}
@@ -0,0 +1,31 @@
+package it.coderit.banktestapp.model;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Marker dei saldi all'ultima sincronizzazione completata (vedi V08__account_sync_marker.sql).
+@Data
+@Entity
+@Table(name = "account_sync_marker")
+public class AccountSyncMarker {
+
+    @Id
+    @Column(name = "account_id", length = 255)
+    public String accountId;
+
+    @Column(name = "balance_marker", nullable = false, length = 2000)
+    public String balanceMarker;
+
+    // Finestra modificabile scaricata nella sincronizzazione che ha salvato il marker
+    @Column(name = "synced_from", nullable = false)
+    public LocalDate syncedFrom;
+
+    @Column(name = "synced_to", nullable = false)
+    public LocalDate syncedTo;
+
+    @Column(name = "updated_at", nullable = false)
+    public OffsetDateTime updatedAt;
+}
@@ -0,0 +1,26 @@
+package it.coderit.banktestapp.model;
+
+import java.time.OffsetDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Dimensione di pagina migliore per una banca (vedi V07__aspsp_page_size.sql).
+@Data
+@Entity
+@Table(name = "aspsp_page_size")
+public class AspspPageSize {
+
+    @Id
+    @Column(name = "aspsp_code", length = 255)
+    public String aspspCode;
+
+    @Column(name = "page_size", nullable = false)
+    public Integer pageSize;
+
+    @Column(name = "nanos_per_row")
+    public Double nanosPerRow;
+
+    @Column(name = "updated_at", nullable = false)
+    public OffsetDateTime updatedAt;
+}
@@ -0,0 +1,34 @@
+package it.coderit.banktestapp.model;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Finestra del backfill storico scaricata per intero (vedi V09__backfill_window.sql).
+@Data
+@Entity
+@Table(name = "backfill_window")
+public class BackfillWindow {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    public Long id;
+
+    @Column(name = "account_id", nullable = false, length = 255)
+    public String accountId;
+
+    @Column(name = "from_date", nullable = false)
+    public LocalDate fromDate;
+
+    @Column(name = "to_date", nullable = false)
+    public LocalDate toDate;
+
+    @Column(name = "row_count", nullable = false)
+    public Integer rowCount;
+
+    @Column(name = "completed_at", nullable = false)
+    public OffsetDateTime completedAt;
+}
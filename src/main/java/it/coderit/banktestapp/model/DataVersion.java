@@ -0,0 +1,24 @@
+package it.coderit.banktestapp.model;
+
+import java.time.OffsetDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Versione di un insieme di dati (regole o transazioni di un account).
+// Viene incrementata a ogni modifica ed esposta come ETag / Last-Modified sulle GET.
+@Data
+@Entity
+@Table(name = "data_version")
+public class DataVersion {
+
+    @Id
+    @Column(name = "scope", length = 255)
+    public String scope;
+
+    @Column(name = "version", nullable = false)
+    public Long version;
+
+    @Column(name = "updated_at", nullable = false)
+    public OffsetDateTime updatedAt;
+}
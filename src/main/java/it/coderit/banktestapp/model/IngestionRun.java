@@ -0,0 +1,72 @@
+package it.coderit.banktestapp.model;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Riepilogo di un'esecuzione di scaricamento movimenti (vedi V11__ingestion_run.sql).
+@Data
+@Entity
+@Table(name = "ingestion_run")
+public class IngestionRun {
+
+    public enum Status {
+        COMPLETED, // tutte le finestre scaricate
+        FAILED,    // interrotto: riprenderà dal checkpoint
+        SKIPPED    // nulla da scaricare (finestre già coperte o saldi invariati)
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    public Long id;
+
+    @Column(name = "account_id", nullable = false, length = 255)
+    public String accountId;
+
+    @Column(name = "aspsp_code", nullable = false, length = 255)
+    public String aspspCode;
+
+    // blocking, async o backfill
+    @Column(name = "mode", nullable = false, length = 20)
+    public String mode;
+
+    @Column(name = "from_date", nullable = false)
+    public LocalDate fromDate;
+
+    @Column(name = "to_date", nullable = false)
+    public LocalDate toDate;
+
+    @Column(name = "started_at", nullable = false)
+    public OffsetDateTime startedAt;
+
+    @Column(name = "finished_at", nullable = false)
+    public OffsetDateTime finishedAt;
+
+    @Column(name = "duration_ms", nullable = false)
+    public Long durationMs;
+
+    @Column(name = "pages", nullable = false)
+    public Integer pages;
+
+    @Column(name = "rows_mapped", nullable = false)
+    public Integer rowsMapped;
+
+    @Column(name = "rows_classified", nullable = false)
+    public Integer rowsClassified;
+
+    @Column(name = "rows_inserted", nullable = false)
+    public Integer rowsInserted;
+
+    @Column(name = "rows_duplicate", nullable = false)
+    public Integer rowsDuplicate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    public Status status;
+
+    @Column(name = "error_message")
+    public String errorMessage;
+}
@@ -0,0 +1,30 @@
+package it.coderit.banktestapp.model;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Punto di ripresa dello scaricamento movimenti di un account (vedi V06__sync_checkpoint.sql).
+@Data
+@Entity
+@Table(name = "sync_checkpoint")
+public class SyncCheckpoint {
+
+    @Id
+    @Column(name = "account_id", length = 255)
+    public String accountId;
+
+    @Column(name = "from_date", nullable = false)
+    public LocalDate fromDate;
+
+    @Column(name = "to_date", nullable = false)
+    public LocalDate toDate;
+
+    @Column(name = "next_offset", nullable = false)
+    public Integer nextOffset;
+
+    @Column(name = "updated_at", nullable = false)
+    public OffsetDateTime updatedAt;
+}
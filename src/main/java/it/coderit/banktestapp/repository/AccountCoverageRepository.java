@@ -0,0 +1,31 @@
+package it.coderit.banktestapp.repository;
+
+import java.util.List;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import io.quarkus.panache.common.Sort;
+import it.coderit.banktestapp.model.AccountCoverage;
+import jakarta.enterprise.context.ApplicationScoped;
+
+@ApplicationScoped
+public class AccountCoverageRepository implements PanacheRepository<AccountCoverage> {
+
+    public List<AccountCoverage> findByAccount(String accountId) {
+        return list("accountId", Sort.by("fromDate"), accountId);
+    }
+
+    /**
+     * Serializza, fino alla fine della transazione, gli aggiornamenti della copertura dello stesso account
+     * (es. finestre di backfill completate in parallelo).
+     */
+    public void lockAccount(String accountId) {
+        getEntityManager()
+                .createNativeQuery("SELECT 1 FROM (SELECT pg_advisory_xact_lock(hashtext(:accountId))) l")
+                .setParameter("accountId", accountId)
+                .getSingleResult();
+    }
+
+    public long deleteByAccount(String accountId) {
+        return delete("accountId", accountId);
+    }
+}
@@ -0,0 +1,25 @@
+package it.coderit.banktestapp.repository;
+
+import java.time.LocalDate;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import it.coderit.banktestapp.model.AccountSyncMarker;
+import jakarta.enterprise.context.ApplicationScoped;
+
+@ApplicationScoped
+public class AccountSyncMarkerRepository implements PanacheRepositoryBase<AccountSyncMarker, String> {
+
+    public void save(String accountId, String balanceMarker, LocalDate syncedFrom, LocalDate syncedTo) {
+        getEntityManager().createNativeQuery("""
+                INSERT INTO account_sync_marker (account_id, balance_marker, synced_from, synced_to, updated_at)
+                VALUES (:accountId, :marker, :syncedFrom, :syncedTo, now())
+                ON CONFLICT (account_id) DO UPDATE SET balance_marker = EXCLUDED.balance_marker,
+                    synced_from = EXCLUDED.synced_from, synced_to = EXCLUDED.synced_to, updated_at = now()
+                """)
+                .setParameter("accountId", accountId)
+                .setParameter("marker", balanceMarker)
+                .setParameter("syncedFrom", syncedFrom)
+                .setParameter("syncedTo", syncedTo)
+                .executeUpdate();
+    }
+}
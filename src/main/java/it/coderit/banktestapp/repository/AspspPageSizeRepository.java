@@ -0,0 +1,22 @@
+package it.coderit.banktestapp.repository;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import it.coderit.banktestapp.model.AspspPageSize;
+import jakarta.enterprise.context.ApplicationScoped;
+
+@ApplicationScoped
+public class AspspPageSizeRepository implements PanacheRepositoryBase<AspspPageSize, String> {
+
+    public void save(String aspspCode, int pageSize, double nanosPerRow) {
+        getEntityManager().createNativeQuery("""
+                INSERT INTO aspsp_page_size (aspsp_code, page_size, nanos_per_row, updated_at)
+                VALUES (:aspspCode, :pageSize, :nanosPerRow, now())
+                ON CONFLICT (aspsp_code) DO UPDATE SET page_size = EXCLUDED.page_size,
+                    nanos_per_row = EXCLUDED.nanos_per_row, updated_at = now()
+                """)
+                .setParameter("aspspCode", aspspCode)
+                .setParameter("pageSize", pageSize)
+                .setParameter("nanosPerRow", nanosPerRow)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,33 @@
+package it.coderit.banktestapp.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import it.coderit.banktestapp.model.BackfillWindow;
+import jakarta.enterprise.context.ApplicationScoped;
+
+@ApplicationScoped
+public class BackfillWindowRepository implements PanacheRepository<BackfillWindow> {
+
+    /**
+     * Finestre completate dell'account contenute nell'intervallo indicato.
+     */
+    public List<BackfillWindow> findCompleted(String accountId, LocalDate from, LocalDate to) {
+        return list("accountId = ?1 AND fromDate >= ?2 AND toDate <= ?3", accountId, from, to);
+    }
+
+    public void markCompleted(String accountId, LocalDate from, LocalDate to, int rowCount) {
+        getEntityManager().createNativeQuery("""
+                INSERT INTO backfill_window (account_id, from_date, to_date, row_count, completed_at)
+                VALUES (:accountId, :fromDate, :toDate, :rowCount, now())
+                ON CONFLICT (account_id, from_date, to_date) DO UPDATE SET row_count = EXCLUDED.row_count,
+                    completed_at = now()
+                """)
+                .setParameter("accountId", accountId)
+                .setParameter("fromDate", from)
+                .setParameter("toDate", to)
+                .setParameter("rowCount", rowCount)
+                .executeUpdate();
+    }
+}
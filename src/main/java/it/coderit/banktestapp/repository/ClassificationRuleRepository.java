@@ -30,11 +30,27 @@ public class ClassificationRuleRepository implements PanacheRepository<Classific
     @Inject
     EntityManager em;
 
+    @Inject
+    DataVersionRepository dataVersionRepository;
+
     @ConfigProperty(name = "classification.transaction-fields")
     List<String> configuratedFields;
 
     private Map<String, Function<Transaction, String>> fieldsGetters;
 
+    /**
+     * Regole in memoria con le keyword già in minuscolo, insieme al timbro dello scope "rules" da cui sono state lette.
+     * Ogni modifica alle regole incrementa la versione nella stessa transazione, quindi basta confrontare il timbro
+     * (una lettura per chiave primaria) per sapere se ricaricarle, anche con più istanze dell'applicazione.
+     */
+    public record RuleSet(String stamp, List<Rule> rules) {
+    }
+
+    public record Rule(Long id, String keyword, CenterType centerType) {
+    }
+
+    private volatile RuleSet ruleSet;
+
 
     @PostConstruct
     void init() {
@@ -50,8 +66,13 @@ public class ClassificationRuleRepository implements PanacheRepository<Classific
      * nei campi rilevanti della transazione (remittance information, creditor/debtor name, additional information).
      */
     public Optional<CenterType> findCenterByKeyword(Transaction transaction) {
-        List<ClassificationRule> allRules = listAll();
+        return findCenterByKeyword(transaction, rules());
+    }
 
+    /**
+     * Come {@link #findCenterByKeyword(Transaction)}, con un insieme di regole già letto (es. una volta per pagina).
+     */
+    public Optional<CenterType> findCenterByKeyword(Transaction transaction, RuleSet ruleSet) {
         List<String> transactionFieldsToSerach = configuratedFields.stream()
         .map(fieldName -> {
             Function<Transaction, String> getter = fieldsGetters.get(fieldName);
@@ -62,25 +83,42 @@ public class ClassificationRuleRepository implements PanacheRepository<Classific
             return null;
         }).filter(s -> s != null).map(String::toLowerCase).collect(Collectors.toList());
 
-        for (ClassificationRule rule : allRules) {
-            String ruleKeyword = rule.getKeyword().toLowerCase();
-            log.debug("Valutazione regola: ID={}, Keyword='{}', CenterType={}", rule.getId(),
-                    rule.getKeyword(), rule.getCenterType());
+        for (Rule rule : ruleSet.rules()) {
+            log.debug("Valutazione regola: ID={}, Keyword='{}', CenterType={}", rule.id(),
+                    rule.keyword(), rule.centerType());
 
             boolean keywordFound = transactionFieldsToSerach.stream()
-                    .anyMatch(fieldValue -> fieldValue.contains(ruleKeyword));
+                    .anyMatch(fieldValue -> fieldValue.contains(rule.keyword()));
 
             if (keywordFound) {
-                log.info("Regola ID={} con keyword '{}' ha trovato corrispondenza. Assegnato CenterType: {}",
-                        rule.getId(), rule.getKeyword(), rule.getCenterType());
-                return Optional.of(rule.getCenterType());
+                log.debug("Regola ID={} con keyword '{}' ha trovato corrispondenza. Assegnato CenterType: {}",
+                        rule.id(), rule.keyword(), rule.centerType());
+                return Optional.of(rule.centerType());
             }
         }
 
-        log.info("Nessuna regola di classificazione ha trovato corrispondenza per la transazione.");
+        log.debug("Nessuna regola di classificazione ha trovato corrispondenza per la transazione.");
         return Optional.empty();
     }
 
+    /**
+     * Regole correnti: dalla memoria se il timbro dello scope "rules" non è cambiato, altrimenti rilette dal DB.
+     */
+    public RuleSet rules() {
+        String stamp = dataVersionRepository.stamp(DataVersionRepository.RULES_SCOPE);
+        RuleSet current = ruleSet;
+        if (current != null && current.stamp().equals(stamp)) {
+            return current;
+        }
+        List<Rule> rules = listAll().stream()
+                .map(rule -> new Rule(rule.getId(), rule.getKeyword().toLowerCase(), rule.getCenterType()))
+                .toList();
+        RuleSet loaded = new RuleSet(stamp, rules);
+        ruleSet = loaded;
+        log.debug("Regole di classificazione caricate in memoria: {} regole (versione {}).", rules.size(), stamp);
+        return loaded;
+    }
+
     /**
      * Salva una nuova regola di classificazione se una regola con la stessa parola chiave (case-insensitive)
      * non esiste già.
@@ -90,6 +128,7 @@ public class ClassificationRuleRepository implements PanacheRepository<Classific
         if (!exist) {
             ClassificationRule rule = new ClassificationRule(keyword, center);
             persist(rule);
+            dataVersionRepository.bumpRules();
             log.info("Creata nuova regola di classificazione: Keyword='{}', CenterType={}", keyword, center);
         } else {
             log.info("Regola con keyword '{}' esistente, nessuna creazione.", keyword);
@@ -0,0 +1,69 @@
+package it.coderit.banktestapp.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import it.coderit.banktestapp.model.DataVersion;
+import jakarta.enterprise.context.ApplicationScoped;
+
+@ApplicationScoped
+public class DataVersionRepository implements PanacheRepositoryBase<DataVersion, String> {
+
+    public static final String RULES_SCOPE = "rules";
+    private static final String ACCOUNT_SCOPE_PREFIX = "account:";
+
+    public static String accountScope(String accountId) {
+        return ACCOUNT_SCOPE_PREFIX + accountId;
+    }
+
+    public Optional<DataVersion> findVersion(String scope) {
+        return findByIdOptional(scope);
+    }
+
+    /**
+     * Versione e data di aggiornamento dello scope lette dal DB con una query scalare, quindi aggiornate anche
+     * dopo un bump nella stessa transazione (findVersion può restituire l'entity già nel persistence context).
+     * "0" se lo scope non è mai stato modificato.
+     */
+    public String stamp(String scope) {
+        List<Object[]> rows = getEntityManager()
+                .createQuery("SELECT d.version, d.updatedAt FROM DataVersion d WHERE d.scope = :scope", Object[].class)
+                .setParameter("scope", scope)
+                .getResultList();
+        return rows.isEmpty() ? "0" : rows.get(0)[0] + "@" + rows.get(0)[1];
+    }
+
+    /**
+     * Incrementa la versione dello scope (creandolo alla prima modifica).
+     * Va chiamato nella stessa transazione della modifica ai dati.
+     */
+    public void bump(String scope) {
+        getEntityManager().createNativeQuery("""
+                INSERT INTO data_version (scope, version, updated_at) VALUES (:scope, 1, now())
+                ON CONFLICT (scope) DO UPDATE SET version = data_version.version + 1, updated_at = now()
+                """)
+                .setParameter("scope", scope)
+                .executeUpdate();
+    }
+
+    public void bumpAccount(String accountId) {
+        bump(accountScope(accountId));
+    }
+
+    public void bumpRules() {
+        bump(RULES_SCOPE);
+    }
+
+    // Per modifiche che possono toccare transazioni di qualunque account (riclassificazione completa).
+    // Crea anche le versioni degli account che non ne hanno ancora una.
+    public void bumpAllAccounts() {
+        getEntityManager().createNativeQuery("""
+                INSERT INTO data_version (scope, version, updated_at)
+                SELECT :prefix || a.account_id, 1, now() FROM (SELECT DISTINCT account_id FROM transaction) a
+                ON CONFLICT (scope) DO UPDATE SET version = data_version.version + 1, updated_at = now()
+                """)
+                .setParameter("prefix", ACCOUNT_SCOPE_PREFIX)
+                .executeUpdate();
+    }
+}
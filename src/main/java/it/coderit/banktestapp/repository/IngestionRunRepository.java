@@ -0,0 +1,9 @@
+package it.coderit.banktestapp.repository;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import it.coderit.banktestapp.model.IngestionRun;
+import jakarta.enterprise.context.ApplicationScoped;
+
+@ApplicationScoped
+public class IngestionRunRepository implements PanacheRepository<IngestionRun> {
+}
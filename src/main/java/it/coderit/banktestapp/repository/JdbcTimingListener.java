@@ -0,0 +1,36 @@
+package it.coderit.banktestapp.repository;
+
+import org.hibernate.SessionEventListener;
+
+import it.coderit.banktestapp.controller.RequestPhaseTimer;
+
+/**
+ * Listener di sessione Hibernate (hibernate.session.events.auto): misura il tempo passato
+ * nell'esecuzione degli statement JDBC e lo somma alla richiesta HTTP in corso sul thread.
+ * Hibernate ne crea un'istanza per sessione, quindi lo stato non è condiviso tra thread.
+ */
+public class JdbcTimingListener implements SessionEventListener {
+
+    private long statementStart;
+    private long batchStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        RequestPhaseTimer.addJdbcNanos(System.nanoTime() - statementStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        RequestPhaseTimer.addJdbcNanos(System.nanoTime() - batchStart);
+    }
+}
@@ -0,0 +1,44 @@
+package it.coderit.banktestapp.repository;
+
+import java.time.LocalDate;
+
+import io.quarkus.hibernate.orm.panache.PanacheRepositoryBase;
+import it.coderit.banktestapp.model.SyncCheckpoint;
+import jakarta.enterprise.context.ApplicationScoped;
+
+@ApplicationScoped
+public class SyncCheckpointRepository implements PanacheRepositoryBase<SyncCheckpoint, String> {
+
+    /**
+     * Offset da cui riprendere lo scaricamento della finestra indicata.
+     * Restituisce 0 se non c'è un checkpoint o se si riferisce a un'altra finestra.
+     */
+    public int findResumeOffset(String accountId, LocalDate from, LocalDate to) {
+        return findByIdOptional(accountId)
+                .filter(checkpoint -> checkpoint.fromDate.equals(from) && checkpoint.toDate.equals(to))
+                .map(checkpoint -> checkpoint.nextOffset)
+                .orElse(0);
+    }
+
+    /**
+     * Registra l'offset della prossima pagina da scaricare.
+     * Va chiamato nella stessa transazione del salvataggio della pagina.
+     */
+    public void save(String accountId, LocalDate from, LocalDate to, int nextOffset) {
+        getEntityManager().createNativeQuery("""
+                INSERT INTO sync_checkpoint (account_id, from_date, to_date, next_offset, updated_at)
+                VALUES (:accountId, :fromDate, :toDate, :nextOffset, now())
+                ON CONFLICT (account_id) DO UPDATE SET from_date = EXCLUDED.from_date, to_date = EXCLUDED.to_date,
+                    next_offset = EXCLUDED.next_offset, updated_at = now()
+                """)
+                .setParameter("accountId", accountId)
+                .setParameter("fromDate", from)
+                .setParameter("toDate", to)
+                .setParameter("nextOffset", nextOffset)
+                .executeUpdate();
+    }
+
+    public void clear(String accountId) {
+        deleteById(accountId);
+    }
+}
@@ -1,6 +1,7 @@
 package it.coderit.banktestapp.repository;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -8,10 +9,32 @@ import io.quarkus.hibernate.orm.panache.PanacheRepository;
 import it.coderit.banktestapp.model.Transaction;
 import it.coderit.banktestapp.model.CenterType;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.Query;
 
 @ApplicationScoped
 public class TransactionRepository implements PanacheRepository<Transaction> {
 
+    // Ricerca testuale: full-text (italiano + simple) sul search_vector oppure ILIKE sui campi
+    // coperti dagli indici trigram. Il rank combina ts_rank_cd e la word_similarity migliore.
+    private static final String SEARCH_SQL = """
+            SELECT ranked.id, ranked.rank FROM (
+                SELECT t.id,
+                       CAST(ts_rank_cd(t.search_vector, q.query)
+                            + GREATEST(word_similarity(:text, coalesce(t.remittance_information, '')),
+                                       word_similarity(:text, coalesce(t.creditor_name, '')),
+                                       word_similarity(:text, coalesce(t.debtor_name, '')),
+                                       word_similarity(:text, coalesce(t.additional_information, ''))) AS real) AS rank
+                FROM transaction t,
+                     (SELECT websearch_to_tsquery('italian', :text) || websearch_to_tsquery('simple', :text) AS query) q
+                WHERE t.account_id = :accountId
+                  AND (t.search_vector @@ q.query
+                       OR t.remittance_information ILIKE :pattern
+                       OR t.creditor_name ILIKE :pattern
+                       OR t.debtor_name ILIKE :pattern
+                       OR t.additional_information ILIKE :pattern)
+            ) ranked
+            """;
+
     public List<Transaction> findByCenterType(CenterType centerType) {
         // 'centerType' è il nome del campo direttamente nella classe Transaction
         return list("centerType = ?1", centerType);
@@ -28,4 +51,123 @@ public class TransactionRepository implements PanacheRepository<Transaction> {
         return list("accountId = ?1 AND bookingDate >= ?2 AND bookingDate <= ?3", accountId, fromDate, toDate);
     }
 
+    /**
+     * Ricerca testuale ordinata per rilevanza con paginazione keyset.
+     * Restituisce coppie [id, rank] ordinate per rank e id decrescenti; se afterRank/afterId
+     * sono valorizzati riparte dalla riga successiva a quella indicata dal cursore.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> searchRankedIds(String accountId, String text, Float afterRank, Long afterId, int limit) {
+        StringBuilder sql = new StringBuilder(SEARCH_SQL);
+        if (afterRank != null && afterId != null) {
+            sql.append(" WHERE ranked.rank < :afterRank OR (ranked.rank = :afterRank AND ranked.id < :afterId)");
+        }
+        sql.append(" ORDER BY ranked.rank DESC, ranked.id DESC LIMIT :limit");
+
+        Query query = getEntityManager().createNativeQuery(sql.toString())
+                .setParameter("text", text)
+                .setParameter("pattern", containsPattern(text))
+                .setParameter("accountId", accountId)
+                .setParameter("limit", limit);
+        if (afterRank != null && afterId != null) {
+            query.setParameter("afterRank", afterRank).setParameter("afterId", afterId);
+        }
+        return query.getResultList();
+    }
+
+    /**
+     * Trova le transazioni non classificate manualmente che contengono la keyword in uno dei campi
+     * usati dal motore regole. La ricerca ILIKE sfrutta gli indici trigram, così la riclassificazione
+     * per una keyword non deve scorrere l'intera tabella.
+     */
+    public List<Transaction> findReclassificationCandidates(String keyword) {
+        return list("isManuallyClassified = false AND (remittanceInformation ILIKE ?1 OR creditorName ILIKE ?1"
+                + " OR debtorName ILIKE ?1 OR additionalInformation ILIKE ?1)", containsPattern(keyword));
+    }
+
+    /**
+     * Classifica manualmente, con un'unica UPDATE ... RETURNING, le transazioni dell'account che rispettano
+     * il filtro: i transactionId restituiti sono tra quelli aggiornati. Le transazioni già classificate
+     * manualmente sono escluse. I parametri null non filtrano; fromBookingDate è incluso, toBookingDate escluso.
+     * L'aggiornamento riguarda tutte le righe del filtro, ma vengono restituiti al massimo maxIds transactionId
+     * (insieme al numero totale di righe aggiornate).
+     */
+    @SuppressWarnings("unchecked")
+    public FilterClassification classifyByFilter(String accountId, OffsetDateTime fromBookingDate,
+            OffsetDateTime toBookingDate, CenterType centerType, String keyword, CenterType newCenterType, int maxIds) {
+        StringBuilder sql = new StringBuilder("WITH updated AS (UPDATE transaction SET center_type = :newCenterType,"
+                + " is_manually_classified = true WHERE account_id = :accountId AND is_manually_classified = false");
+        if (fromBookingDate != null && toBookingDate != null) {
+            sql.append(" AND booking_date >= :fromBookingDate AND booking_date < :toBookingDate");
+        }
+        if (centerType != null) {
+            sql.append(" AND center_type = :centerType");
+        }
+        if (keyword != null) {
+            sql.append(" AND (remittance_information ILIKE :pattern OR creditor_name ILIKE :pattern"
+                    + " OR debtor_name ILIKE :pattern OR additional_information ILIKE :pattern)");
+        }
+        // La CTE che modifica i dati viene eseguita per intero anche con il LIMIT esterno
+        sql.append(" RETURNING transaction_id)"
+                + " SELECT transaction_id, CAST(count(*) OVER () AS integer) FROM updated LIMIT :maxIds");
+
+        Query query = getEntityManager().createNativeQuery(sql.toString())
+                .setParameter("newCenterType", newCenterType.name())
+                .setParameter("accountId", accountId)
+                .setParameter("maxIds", maxIds);
+        if (fromBookingDate != null && toBookingDate != null) {
+            query.setParameter("fromBookingDate", fromBookingDate).setParameter("toBookingDate", toBookingDate);
+        }
+        if (centerType != null) {
+            query.setParameter("centerType", centerType.name());
+        }
+        if (keyword != null) {
+            query.setParameter("pattern", containsPattern(keyword));
+        }
+        List<Object[]> rows = query.getResultList();
+        if (rows.isEmpty()) {
+            return new FilterClassification(0, List.of());
+        }
+        return new FilterClassification(((Number) rows.get(0)[1]).intValue(),
+                rows.stream().map(row -> (String) row[0]).toList());
+    }
+
+    // Esito di classifyByFilter: righe aggiornate in totale e i primi transactionId
+    public record FilterClassification(int updated, List<String> transactionIds) {
+    }
+
+    /**
+     * Restituisce, tra i transactionId indicati, quelli presenti nel database.
+     */
+    public List<String> findExistingTransactionIds(Collection<String> transactionIds) {
+        return getEntityManager()
+                .createQuery("SELECT transactionId FROM Transaction WHERE transactionId IN :ids", String.class)
+                .setParameter("ids", transactionIds)
+                .getResultList();
+    }
+
+    /**
+     * Restituisce gli account a cui appartengono i transactionId indicati.
+     */
+    public List<String> findAccountIds(Collection<String> transactionIds) {
+        return getEntityManager()
+                .createQuery("SELECT DISTINCT accountId FROM Transaction WHERE transactionId IN :ids", String.class)
+                .setParameter("ids", transactionIds)
+                .getResultList();
+    }
+
+    /**
+     * Classifica manualmente con un'unica UPDATE tutte le transazioni indicate.
+     * @return il numero di righe aggiornate.
+     */
+    public int markManuallyClassified(CenterType centerType, Collection<String> transactionIds) {
+        return update("centerType = ?1, isManuallyClassified = true WHERE transactionId IN ?2", centerType, transactionIds);
+    }
+
+    // Pattern '%testo%' con i caratteri jolly di LIKE escapati
+    public static String containsPattern(String text) {
+        String escaped = text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+
 }
@@ -0,0 +1,67 @@
+package it.coderit.banktestapp.rest;
+
+/**
+ * Limite di chiamate concorrenti verso una banca, regolato con AIMD:
+ * aumenta di circa 1 per ogni "finestra" di chiamate riuscite entro la soglia di latenza,
+ * si dimezza (decreaseFactor) su 429/503 o su latenze oltre la soglia.
+ */
+class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double decreaseFactor;
+    private double limit;
+    private int inFlight;
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos,
+            double decreaseFactor) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.decreaseFactor = decreaseFactor;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    // Attende che ci sia posto sotto il limite corrente
+    synchronized void acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Rilascia il posto e aggiorna il limite.
+     * @param latencyNanos durata della chiamata.
+     * @param overloaded true se la banca ha risposto 429 o 503.
+     */
+    synchronized void release(long latencyNanos, boolean overloaded) {
+        inFlight--;
+        if (overloaded || latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, limit * decreaseFactor);
+        } else if (inFlight + 1 >= (int) limit) {
+            // Cresce solo se il limite è stato effettivamente raggiunto
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        notifyAll();
+    }
+
+    // Rilascia il posto senza aggiornare il limite (errori non legati al carico della banca)
+    synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    synchronized int currentLimit() {
+        return (int) limit;
+    }
+}
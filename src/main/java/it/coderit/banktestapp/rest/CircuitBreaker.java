@@ -0,0 +1,57 @@
+package it.coderit.banktestapp.rest;
+
+/**
+ * Circuit breaker di un ASPSP.
+ * Dopo failureThreshold errori consecutivi si apre e rifiuta le chiamate per openDurationNanos;
+ * trascorso quel tempo lascia passare una sola chiamata di prova: se riesce si richiude,
+ * altrimenti si riapre. Il chiamante deve riportare ogni esito della chiamata di prova
+ * (onSuccess o onFailure), altrimenti il circuito resta HALF_OPEN.
+ */
+class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+
+    CircuitBreaker(int failureThreshold, long openDurationNanos) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationNanos = openDurationNanos;
+    }
+
+    synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAtNanos >= openDurationNanos) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default:
+                // HALF_OPEN: la chiamata di prova è già in corso
+                return false;
+        }
+    }
+
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+        }
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
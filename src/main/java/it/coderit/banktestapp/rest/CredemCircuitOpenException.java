@@ -0,0 +1,9 @@
+package it.coderit.banktestapp.rest;
+
+// Chiamata non effettuata perché il circuit breaker dell'ASPSP è aperto.
+public class CredemCircuitOpenException extends RuntimeException {
+
+    public CredemCircuitOpenException(String aspspCode) {
+        super("Circuit breaker aperto per ASPSP " + aspspCode + ": chiamata non effettuata.");
+    }
+}
@@ -1,5 +1,6 @@
 package it.coderit.banktestapp.rest;
 
+import org.eclipse.microprofile.rest.client.annotation.RegisterProvider;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 
 import it.coderit.banktestapp.dto.CredemAccountResponse;
@@ -13,6 +14,7 @@ import jakarta.ws.rs.*;
 @Path("/accounts")
 @Produces(MediaType.APPLICATION_JSON)
 @RegisterRestClient(configKey = "credem-api")
+@RegisterProvider(CredemRequestIdTracing.class)
 public interface CredemClient {
     
     @GET
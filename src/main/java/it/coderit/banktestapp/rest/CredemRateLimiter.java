@@ -0,0 +1,234 @@
+package it.coderit.banktestapp.rest;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+
+/**
+ * Limita le chiamate verso le API Credem/CBI.
+ * <ul>
+ * <li>token bucket per codice ASPSP e per consenso (credem.rate-limit.*, con override per singolo
+ * ASPSP o consenso);</li>
+ * <li>limite di concorrenza adattivo (AIMD) per ASPSP, ridotto su latenze elevate e risposte 429/503;</li>
+ * <li>pausa delle chiamate verso l'ASPSP per il tempo indicato nell'header Retry-After.</li>
+ * </ul>
+ * Tutte le chiamate a CredemClient e CredemReactiveClient devono passare da qui.
+ */
+@ApplicationScoped
+public class CredemRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(CredemRateLimiter.class);
+    private static final long ASYNC_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    @Inject
+    Config config;
+
+    @ConfigProperty(name = "credem.rate-limit.permits-per-second", defaultValue = "10")
+    double aspspPermitsPerSecond;
+
+    @ConfigProperty(name = "credem.rate-limit.burst", defaultValue = "10")
+    double aspspBurst;
+
+    @ConfigProperty(name = "credem.rate-limit.consent.permits-per-second", defaultValue = "5")
+    double consentPermitsPerSecond;
+
+    @ConfigProperty(name = "credem.rate-limit.consent.burst", defaultValue = "5")
+    double consentBurst;
+
+    @ConfigProperty(name = "credem.rate-limit.max-retry-after", defaultValue = "PT5M")
+    Duration maxRetryAfter;
+
+    @ConfigProperty(name = "credem.concurrency.initial", defaultValue = "4")
+    int initialConcurrency;
+
+    @ConfigProperty(name = "credem.concurrency.min", defaultValue = "1")
+    int minConcurrency;
+
+    @ConfigProperty(name = "credem.concurrency.max", defaultValue = "32")
+    int maxConcurrency;
+
+    @ConfigProperty(name = "credem.concurrency.latency-threshold", defaultValue = "PT2S")
+    Duration latencyThreshold;
+
+    @ConfigProperty(name = "credem.concurrency.decrease-factor", defaultValue = "0.5")
+    double decreaseFactor;
+
+    private final Map<String, TokenBucket> aspspBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> consentBuckets = new ConcurrentHashMap<>();
+    private final Map<String, AdaptiveConcurrencyLimit> concurrencyLimits = new ConcurrentHashMap<>();
+    private final Map<String, Long> pausedUntilNanos = new ConcurrentHashMap<>();
+
+    /**
+     * Esegue una chiamata bloccante rispettando rate limit, concorrenza e Retry-After.
+     */
+    public <T> T call(String aspspCode, String consentId, Supplier<T> call) {
+        sleepNanos(reserve(aspspCode, consentId));
+        AdaptiveConcurrencyLimit limit = concurrencyLimit(aspspCode);
+        try {
+            limit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Attesa del limite di concorrenza interrotta per ASPSP " + aspspCode, e);
+        }
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            limit.release(System.nanoTime() - start, false);
+            return result;
+        } catch (RuntimeException e) {
+            onFailure(aspspCode, limit, System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Versione non bloccante di {@link #call}: le attese sono ritardi Mutiny, non thread sospesi.
+     */
+    public <T> Uni<T> callAsync(String aspspCode, String consentId, Supplier<Uni<T>> call) {
+        return Uni.createFrom().deferred(() -> {
+            long waitNanos = reserve(aspspCode, consentId);
+            AdaptiveConcurrencyLimit limit = concurrencyLimit(aspspCode);
+            Uni<Void> gate = waitNanos > 0
+                    ? Uni.createFrom().voidItem().onItem().delayIt().by(Duration.ofNanos(waitNanos))
+                    : Uni.createFrom().voidItem();
+            return gate
+                    .chain(() -> acquireAsync(limit))
+                    .chain(() -> {
+                        long start = System.nanoTime();
+                        return Uni.createFrom().deferred(call::get)
+                                .onItem().invoke(() -> limit.release(System.nanoTime() - start, false))
+                                .onFailure().invoke(e -> onFailure(aspspCode, limit, System.nanoTime() - start, e))
+                                .onCancellation().invoke(limit::release);
+                    });
+        });
+    }
+
+    // Consuma un token dal bucket dell'ASPSP e da quello del consenso; restituisce l'attesa necessaria
+    long reserve(String aspspCode, String consentId) {
+        long waitNanos = aspspBucket(aspspCode).reserve();
+        if (consentId != null) {
+            waitNanos = Math.max(waitNanos, consentBucket(consentId).reserve());
+        }
+        Long pausedUntil = pausedUntilNanos.get(aspspCode);
+        if (pausedUntil != null) {
+            waitNanos = Math.max(waitNanos, pausedUntil - System.nanoTime());
+        }
+        return Math.max(0, waitNanos);
+    }
+
+    /**
+     * Limite di concorrenza corrente per l'ASPSP.
+     */
+    public int currentConcurrencyLimit(String aspspCode) {
+        return concurrencyLimit(aspspCode).currentLimit();
+    }
+
+    private void onFailure(String aspspCode, AdaptiveConcurrencyLimit limit, long latencyNanos, Throwable e) {
+        if (e instanceof WebApplicationException webException && webException.getResponse() != null) {
+            int status = webException.getResponse().getStatus();
+            if (status == 429 || status == 503) {
+                limit.release(latencyNanos, true);
+                pause(aspspCode, webException.getResponse().getHeaderString("Retry-After"));
+                log.warn("ASPSP {} ha risposto {}: limite di concorrenza ridotto a {}.",
+                        aspspCode, status, limit.currentLimit());
+                return;
+            }
+        }
+        limit.release();
+    }
+
+    // Sospende le chiamate verso l'ASPSP per il tempo indicato da Retry-After (secondi o data HTTP)
+    void pause(String aspspCode, String retryAfter) {
+        Duration delay = parseRetryAfter(retryAfter);
+        if (delay == null || delay.isNegative() || delay.isZero()) {
+            return;
+        }
+        if (delay.compareTo(maxRetryAfter) > 0) {
+            delay = maxRetryAfter;
+        }
+        long until = System.nanoTime() + delay.toNanos();
+        pausedUntilNanos.merge(aspspCode, until, Math::max);
+        log.warn("Chiamate verso ASPSP {} sospese per {} secondi (Retry-After).", aspspCode, delay.toSeconds());
+    }
+
+    static Duration parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Duration.between(ZonedDateTime.now(date.getZone()), date);
+            } catch (DateTimeParseException ex) {
+                log.warn("Header Retry-After non valido: {}", retryAfter);
+                return null;
+            }
+        }
+    }
+
+    private Uni<Void> acquireAsync(AdaptiveConcurrencyLimit limit) {
+        if (limit.tryAcquire()) {
+            return Uni.createFrom().voidItem();
+        }
+        return Uni.createFrom().voidItem().onItem().delayIt().by(Duration.ofNanos(ASYNC_RETRY_NANOS))
+                .chain(() -> acquireAsync(limit));
+    }
+
+    private TokenBucket aspspBucket(String aspspCode) {
+        return aspspBuckets.computeIfAbsent(aspspCode, code -> new TokenBucket(
+                doubleValue("credem.rate-limit.aspsp." + code + ".permits-per-second", aspspPermitsPerSecond),
+                doubleValue("credem.rate-limit.aspsp." + code + ".burst", aspspBurst)));
+    }
+
+    private TokenBucket consentBucket(String consentId) {
+        return consentBuckets.computeIfAbsent(consentId, id -> new TokenBucket(
+                doubleValue("credem.rate-limit.consent." + id + ".permits-per-second", consentPermitsPerSecond),
+                doubleValue("credem.rate-limit.consent." + id + ".burst", consentBurst)));
+    }
+
+    private AdaptiveConcurrencyLimit concurrencyLimit(String aspspCode) {
+        return concurrencyLimits.computeIfAbsent(aspspCode, code -> new AdaptiveConcurrencyLimit(
+                intValue("credem.concurrency.aspsp." + code + ".initial", initialConcurrency),
+                intValue("credem.concurrency.aspsp." + code + ".min", minConcurrency),
+                intValue("credem.concurrency.aspsp." + code + ".max", maxConcurrency),
+                latencyThreshold.toNanos(),
+                decreaseFactor));
+    }
+
+    private double doubleValue(String name, double defaultValue) {
+        return config.getOptionalValue(name, Double.class).orElse(defaultValue);
+    }
+
+    private int intValue(String name, int defaultValue) {
+        return config.getOptionalValue(name, Integer.class).orElse(defaultValue);
+    }
+
+    private static void sleepNanos(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Attesa del rate limit interrotta", e);
+        }
+    }
+}
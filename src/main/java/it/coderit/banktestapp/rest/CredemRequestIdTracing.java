@@ -0,0 +1,22 @@
+package it.coderit.banktestapp.rest;
+
+import io.opentelemetry.api.trace.Span;
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+
+/**
+ * Riporta l'X-Request-ID inviato alla banca sullo span OpenTelemetry corrente, così una traccia
+ * lenta si può confrontare con i log dell'ASPSP. Il traceparent W3C è propagato da Quarkus.
+ */
+public class CredemRequestIdTracing implements ClientRequestFilter {
+
+    static final String ATTRIBUTE = "credem.x_request_id";
+
+    @Override
+    public void filter(ClientRequestContext request) {
+        Object requestId = request.getHeaders().getFirst("X-Request-ID");
+        if (requestId != null) {
+            Span.current().setAttribute(ATTRIBUTE, requestId.toString());
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package it.coderit.banktestapp.rest;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.WebApplicationException;
+
+/**
+ * Retry con backoff esponenziale e jitter e circuit breaker per ASPSP attorno alle chiamate Credem.
+ * Ogni tentativo passa comunque da CredemRateLimiter. Vengono ritentati solo gli errori transitori
+ * (429, 408, 5xx, errori di connessione); gli altri 4xx vengono rilanciati subito.
+ * Il circuit breaker conta come errore ogni eccezione tranne le risposte 4xx non transitorie.
+ * Ogni chiamata logica è uno span "credem.call" (attesa del rate limit, tentativi e backoff compresi),
+ * padre degli span HTTP del client REST.
+ */
+@ApplicationScoped
+public class CredemResilience {
+
+    private static final Logger log = LoggerFactory.getLogger(CredemResilience.class);
+
+    @Inject
+    CredemRateLimiter credemRateLimiter;
+
+    @Inject
+    Tracer tracer;
+
+    @ConfigProperty(name = "credem.retry.max-attempts", defaultValue = "4")
+    int maxAttempts;
+
+    @ConfigProperty(name = "credem.retry.initial-backoff", defaultValue = "PT0.5S")
+    Duration initialBackoff;
+
+    @ConfigProperty(name = "credem.retry.max-backoff", defaultValue = "PT30S")
+    Duration maxBackoff;
+
+    @ConfigProperty(name = "credem.retry.jitter", defaultValue = "0.5")
+    double jitter;
+
+    @ConfigProperty(name = "credem.circuit-breaker.failure-threshold", defaultValue = "5")
+    int failureThreshold;
+
+    @ConfigProperty(name = "credem.circuit-breaker.open-duration", defaultValue = "PT1M")
+    Duration openDuration;
+
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    /**
+     * Esegue la chiamata bloccante con retry e circuit breaker.
+     * @param description descrizione della chiamata per i log (es. account e offset).
+     */
+    public <T> T call(String aspspCode, String consentId, String description, Supplier<T> call) {
+        Span span = startSpan(aspspCode, description);
+        try (Scope scope = span.makeCurrent()) {
+            return retry(aspspCode, consentId, description, call, span);
+        } catch (RuntimeException e) {
+            failSpan(span, e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private <T> T retry(String aspspCode, String consentId, String description, Supplier<T> call, Span span) {
+        CircuitBreaker circuitBreaker = circuitBreaker(aspspCode);
+        for (int attempt = 1; ; attempt++) {
+            span.setAttribute("credem.attempts", attempt);
+            if (!circuitBreaker.allowRequest()) {
+                throw new CredemCircuitOpenException(aspspCode);
+            }
+            try {
+                T result = credemRateLimiter.call(aspspCode, consentId, call);
+                circuitBreaker.onSuccess();
+                return result;
+            } catch (RuntimeException e) {
+                record(circuitBreaker, e);
+                if (!isTransient(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    log.error("Chiamata Credem {} fallita dopo {} tentativi: {}", description, attempt, e.getMessage());
+                    throw e;
+                }
+                Duration backoff = backoff(attempt);
+                log.warn("Chiamata Credem {} fallita (tentativo {}/{}): {}. Nuovo tentativo tra {} ms.",
+                        description, attempt, maxAttempts, e.getMessage(), backoff.toMillis());
+                span.addEvent("retry in " + backoff.toMillis() + " ms: " + e.getMessage());
+                sleep(backoff);
+            }
+        }
+    }
+
+    /**
+     * Versione non bloccante di {@link #call}: il backoff è un ritardo Mutiny.
+     * Il client REST reattivo invia la richiesta alla subscription, non quando crea la Uni: lo span
+     * credem.call resta corrente anche durante la subscription di ogni tentativo.
+     */
+    public <T> Uni<T> callAsync(String aspspCode, String consentId, String description, Supplier<Uni<T>> call) {
+        return Uni.createFrom().deferred(() -> {
+            Span span = startSpan(aspspCode, description);
+            Context context = Context.current().with(span);
+            Executor inSpan = context.wrap((Executor) Runnable::run);
+            AtomicInteger attempts = new AtomicInteger();
+            Supplier<Uni<T>> tracedCall = () -> {
+                span.setAttribute("credem.attempts", attempts.incrementAndGet());
+                try (Scope scope = context.makeCurrent()) {
+                    return call.get().runSubscriptionOn(inSpan);
+                }
+            };
+            return retryAsync(aspspCode, consentId, description, tracedCall)
+                    .onTermination().invoke((item, failure, cancelled) -> {
+                        if (failure != null) {
+                            failSpan(span, failure);
+                        }
+                        span.end();
+                    });
+        });
+    }
+
+    private <T> Uni<T> retryAsync(String aspspCode, String consentId, String description, Supplier<Uni<T>> call) {
+        CircuitBreaker circuitBreaker = circuitBreaker(aspspCode);
+        return Uni.createFrom().deferred(() -> {
+                    if (!circuitBreaker.allowRequest()) {
+                        return Uni.createFrom().<T>failure(new CredemCircuitOpenException(aspspCode));
+                    }
+                    return credemRateLimiter.callAsync(aspspCode, consentId, call)
+                            .onItem().invoke(circuitBreaker::onSuccess)
+                            .onFailure().invoke(e -> {
+                                record(circuitBreaker, e);
+                                if (isTransient(e)) {
+                                    log.warn("Chiamata Credem {} fallita: {}", description, e.getMessage());
+                                }
+                            });
+                })
+                .onFailure(CredemResilience::isTransient).retry()
+                .withBackOff(initialBackoff, maxBackoff).withJitter(jitter)
+                .atMost(Math.max(0, maxAttempts - 1));
+    }
+
+    /**
+     * Stato del circuit breaker dell'ASPSP (CLOSED, OPEN, HALF_OPEN).
+     */
+    public String circuitState(String aspspCode) {
+        return circuitBreaker(aspspCode).state().name();
+    }
+
+    // Backoff esponenziale limitato a maxBackoff, con jitter simmetrico di +/- jitter
+    Duration backoff(int attempt) {
+        double base = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() * Math.pow(2, attempt - 1));
+        double factor = 1 + jitter * (ThreadLocalRandom.current().nextDouble() * 2 - 1);
+        return Duration.ofMillis(Math.max(0, (long) (base * factor)));
+    }
+
+    /*
+     * Ogni esito della chiamata arriva al circuit breaker, altrimenti una chiamata di prova in HALF_OPEN
+     * terminata con un 4xx o con un'attesa interrotta lo lascerebbe HALF_OPEN per sempre.
+     * Un 4xx non transitorio è comunque una risposta dell'ASPSP e conta come successo.
+     */
+    private static void record(CircuitBreaker circuitBreaker, Throwable e) {
+        if (isBankRejection(e)) {
+            circuitBreaker.onSuccess();
+        } else {
+            circuitBreaker.onFailure();
+        }
+    }
+
+    static boolean isBankRejection(Throwable e) {
+        return e instanceof WebApplicationException webException && webException.getResponse() != null
+                && !isTransient(e);
+    }
+
+    static boolean isTransient(Throwable e) {
+        if (e instanceof CredemCircuitOpenException) {
+            return false;
+        }
+        if (e instanceof WebApplicationException webException && webException.getResponse() != null) {
+            int status = webException.getResponse().getStatus();
+            return status == 429 || status == 408 || status >= 500;
+        }
+        return e instanceof ProcessingException;
+    }
+
+    private Span startSpan(String aspspCode, String description) {
+        return tracer.spanBuilder("credem.call")
+                .setAttribute("credem.aspsp", aspspCode)
+                .setAttribute("credem.operation", description)
+                .startSpan();
+    }
+
+    private static void failSpan(Span span, Throwable e) {
+        span.recordException(e);
+        span.setStatus(StatusCode.ERROR, e.getMessage());
+    }
+
+    private CircuitBreaker circuitBreaker(String aspspCode) {
+        return circuitBreakers.computeIfAbsent(aspspCode,
+                code -> new CircuitBreaker(failureThreshold, openDuration.toNanos()));
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Attesa del retry interrotta", e);
+        }
+    }
+}
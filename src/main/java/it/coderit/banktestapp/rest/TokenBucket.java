@@ -0,0 +1,36 @@
+package it.coderit.banktestapp.rest;
+
+/**
+ * Token bucket con prenotazione: ogni chiamata consuma un token, anche se non ancora disponibile,
+ * e riceve il tempo da attendere prima di poter procedere. Così le attese non si accavallano
+ * e le richieste vengono distribuite alla velocità configurata.
+ */
+class TokenBucket {
+
+    private final double permitsPerSecond;
+    private final double burst;
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(double permitsPerSecond, double burst) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Prenota un token.
+     * @return i nanosecondi da attendere prima di effettuare la chiamata (0 se il token è già disponibile).
+     */
+    synchronized long reserve() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) / 1e9 * permitsPerSecond);
+        lastRefillNanos = now;
+        tokens -= 1;
+        if (tokens >= 0) {
+            return 0;
+        }
+        return (long) (-tokens / permitsPerSecond * 1e9);
+    }
+}
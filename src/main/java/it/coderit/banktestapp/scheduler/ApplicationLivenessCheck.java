@@ -0,0 +1,28 @@
+package it.coderit.banktestapp.scheduler;
+
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Liveness;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Liveness (/q/health/live): l'applicazione è avviata e risponde, indipendentemente dal primo scaricamento.
+ * Lo stato riporta "started, syncing" mentre la prima sincronizzazione è in corso, "started" altrimenti.
+ */
+@Liveness
+@ApplicationScoped
+public class ApplicationLivenessCheck implements HealthCheck {
+
+    @Inject
+    InitialSyncStatus status;
+
+    @Override
+    public HealthCheckResponse call() {
+        return HealthCheckResponse.named("banktestapp")
+                .up()
+                .withData("status", status.state() == InitialSyncStatus.State.SYNCING ? "started, syncing" : "started")
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package it.coderit.banktestapp.scheduler;
+
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Readiness (/q/health/ready): DOWN finché il primo scaricamento è in corso, UP a scaricamento concluso
+ * anche se fallito (i dati già salvati restano consultabili, l'errore è riportato in lastError).
+ */
+@Readiness
+@ApplicationScoped
+public class InitialSyncHealthCheck implements HealthCheck {
+
+    @Inject
+    InitialSyncStatus status;
+
+    @Override
+    public HealthCheckResponse call() {
+        HealthCheckResponseBuilder response = HealthCheckResponse.named("initial-sync")
+                .status(status.isReady())
+                .withData("state", status.state().name().toLowerCase())
+                .withData("deferred", status.isDeferred());
+        if (status.startedAt() != null) {
+            response.withData("startedAt", status.startedAt().toString());
+        }
+        if (status.finishedAt() != null) {
+            response.withData("finishedAt", status.finishedAt().toString());
+        }
+        if (status.lastError() != null) {
+            response.withData("lastError", status.lastError());
+        }
+        return response.build();
+    }
+}
@@ -0,0 +1,73 @@
+package it.coderit.banktestapp.scheduler;
+
+import java.time.OffsetDateTime;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Stato della prima sincronizzazione, eseguita in background dopo l'avvio da TransactionScheduler.
+ * Letto dagli health check: l'applicazione è "started" appena parte, "ready" quando il primo
+ * scaricamento è concluso (o subito, se è differito o disabilitato).
+ */
+@ApplicationScoped
+public class InitialSyncStatus {
+
+    public enum State {
+        STARTING, DISABLED, DEFERRED, SYNCING, READY
+    }
+
+    private volatile State state = State.STARTING;
+    // Con il primo sync differito l'applicazione è pronta anche mentre scarica
+    private volatile boolean deferred;
+    private volatile OffsetDateTime startedAt;
+    private volatile OffsetDateTime finishedAt;
+    private volatile String lastError;
+
+    void disabled() {
+        state = State.DISABLED;
+    }
+
+    void deferred() {
+        deferred = true;
+        state = State.DEFERRED;
+    }
+
+    void syncing() {
+        startedAt = OffsetDateTime.now();
+        state = State.SYNCING;
+    }
+
+    void finished(String error) {
+        lastError = error;
+        finishedAt = OffsetDateTime.now();
+        state = State.READY;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public boolean isReady() {
+        return switch (state) {
+            case READY, DISABLED, DEFERRED -> true;
+            case SYNCING -> deferred;
+            case STARTING -> false;
+        };
+    }
+
+    public boolean isDeferred() {
+        return deferred;
+    }
+
+    public OffsetDateTime startedAt() {
+        return startedAt;
+    }
+
+    public OffsetDateTime finishedAt() {
+        return finishedAt;
+    }
+
+    public String lastError() {
+        return lastError;
+    }
+}
@@ -1,13 +1,28 @@
 package it.coderit.banktestapp.scheduler;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.quarkus.runtime.StartupEvent;
 import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import it.coderit.banktestapp.model.IngestionRun;
+import it.coderit.banktestapp.service.AsyncTransactionIngestionService;
+import it.coderit.banktestapp.service.AsyncTransactionIngestionService.AccountResult;
 import it.coderit.banktestapp.service.TransactionService;
-import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Priority;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptor;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,6 +35,15 @@ public class TransactionScheduler {
     @Inject
     TransactionService transactionService;
 
+    @Inject
+    AsyncTransactionIngestionService asyncIngestionService;
+
+    @Inject
+    Tracer tracer;
+
+    @Inject
+    InitialSyncStatus initialSyncStatus;
+
     @ConfigProperty(name = "scheduler.daysback", defaultValue = "1")
     Integer daysBack;
 
@@ -29,29 +53,83 @@ public class TransactionScheduler {
     @ConfigProperty(name = "scheduler.enabled", defaultValue = "false")
     boolean schedulerEnabled;
 
+    // blocking = TransactionService.downloadAndSave, async = AsyncTransactionIngestionService
+    @ConfigProperty(name = "scheduler.ingestion-mode", defaultValue = "blocking")
+    String ingestionMode;
+
+    @ConfigProperty(name = "scheduler.initial-sync.enabled", defaultValue = "true")
+    boolean initialSyncEnabled;
+
+    // > 0: il primo download parte dopo il ritardo e l'app è subito ready
+    @ConfigProperty(name = "scheduler.initial-sync.delay", defaultValue = "PT0S")
+    Duration initialSyncDelay;
+
+    // Sync iniziale e cron scrivono gli stessi checkpoint e marcatori di saldo: una sola esecuzione alla volta
+    private final AtomicBoolean syncRunning = new AtomicBoolean();
+
     /**
-     * Download dei movimenti eseguito una volta sola all'avvio
+     * Download dei movimenti eseguito una volta sola all'avvio, in background sul worker pool:
+     * l'avvio non attende la banca né la quantità di dati da scaricare.
+     * Osserva lo StartupEvent dopo RegoleInizialiLoader e PageSizeTuner (priorità di default): la prima
+     * classificazione trova le regole di default già salvate.
      */
-    @PostConstruct
-    void loadOnceAtStartup() {
-        log.info("Esecuzione unica iniziale del download movimenti all'avvio dell'app.");
-        loadTransactions();
+    void loadOnceAtStartup(@Observes @Priority(Interceptor.Priority.APPLICATION + 1000) StartupEvent event) {
+        if (!initialSyncEnabled) {
+            log.info("Download iniziale dei movimenti disabilitato (scheduler.initial-sync.enabled=false).");
+            initialSyncStatus.disabled();
+            return;
+        }
+        boolean deferred = !initialSyncDelay.isZero() && !initialSyncDelay.isNegative();
+        if (deferred) {
+            log.info("Download iniziale dei movimenti differito di {} s.", initialSyncDelay.toSeconds());
+            initialSyncStatus.deferred();
+        } else {
+            initialSyncStatus.syncing();
+        }
+        Uni<Void> start = Uni.createFrom().voidItem();
+        if (deferred) {
+            start = start.onItem().delayIt().by(initialSyncDelay);
+        }
+        start.emitOn(Infrastructure.getDefaultWorkerPool())
+                .subscribe().with(ignored -> {
+                    log.info("Esecuzione unica iniziale del download movimenti all'avvio dell'app.");
+                    if (deferred) {
+                        initialSyncStatus.syncing();
+                    }
+                    initialSyncStatus.finished(loadTransactions("startup"));
+                });
     }
 
     /**
      * Download ciclico secondo cron, abilitato solo se scheduler.enabled = true
      */
-    @Scheduled(delayed = "5s", cron = "{transaction.scaricamento.cron}")
+    @Scheduled(delayed = "5s", cron = "{transaction.scaricamento.cron}",
+            concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
     void scaricaPeriodicamente() {
         if (schedulerEnabled) {
             log.info("Esecuzione periodica abilitata da scheduler.enabled=true");
-            loadTransactions();
+            loadTransactions("cron");
         } else {
             log.info("Esecuzione periodica disabilitata (scheduler.enabled=false)");
         }
     }
 
-    private void loadTransactions() {
+    // Ogni esecuzione è uno span radice "scheduler.sync": chiamate alla banca, classificazione e query ne sono figli.
+    // Restituisce il messaggio d'errore, null se lo scaricamento è andato a buon fine (o non c'era nulla da scaricare).
+    // Se un'altra esecuzione è in corso salta: quella copre lo stesso intervallo e riprende dagli stessi checkpoint.
+    String loadTransactions(String trigger) {
+        if (!syncRunning.compareAndSet(false, true)) {
+            log.info("Download movimenti ({}) saltato: è già in corso un'altra sincronizzazione.", trigger);
+            return null;
+        }
+        try {
+            return sync(trigger);
+        } finally {
+            syncRunning.set(false);
+        }
+    }
+
+    private String sync(String trigger) {
         LocalDate today = LocalDate.now();
         LocalDate start = today.minusDays(daysBack);
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
@@ -59,12 +137,43 @@ public class TransactionScheduler {
         String from = start.format(formatter);
         String to = today.format(formatter);
 
-        try {
+        Span span = tracer.spanBuilder("scheduler.sync")
+                .setAttribute("sync.trigger", trigger)
+                .setAttribute("sync.mode", ingestionMode)
+                .setAttribute("sync.account", accountId)
+                .setAttribute("sync.from", from)
+                .setAttribute("sync.to", to)
+                .startSpan();
+        try (Scope scope = span.makeCurrent()) {
             log.info("Download movimenti per accountId={} da {} a {}", accountId, from, to);
-            transactionService.downloadAndSave(accountId, from, to);
+            IngestionRun.Status status;
+            if ("async".equalsIgnoreCase(ingestionMode)) {
+                status = asyncIngestionService.ingestAccounts(List.of(accountId), from, to).await().indefinitely()
+                        .stream()
+                        .map(AccountResult::status)
+                        .filter(IngestionRun.Status.FAILED::equals)
+                        .findFirst().orElse(IngestionRun.Status.COMPLETED);
+            } else {
+                status = transactionService.downloadAndSave(accountId, from, to);
+            }
+            span.setAttribute("sync.status", status.name());
+            // Le pagine fallite non generano eccezioni: l'esecuzione è chiusa come FAILED e va segnalata
+            if (status == IngestionRun.Status.FAILED) {
+                String error = "Scaricamento movimenti non completato per accountId " + accountId
+                        + ": riprenderà dal checkpoint.";
+                log.warn(error);
+                span.setStatus(StatusCode.ERROR, error);
+                return error;
+            }
             log.info("Movimenti scaricati e salvati correttamente.");
+            return null;
         } catch (Exception e) {
             log.error("Errore durante lo scaricamento/salvataggio movimenti: {}", e.getMessage(), e);
+            span.recordException(e);
+            span.setStatus(StatusCode.ERROR, e.getMessage());
+            return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        } finally {
+            span.end();
         }
     }
 }
@@ -0,0 +1,357 @@
+package it.coderit.banktestapp.service;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import it.coderit.banktestapp.CBISimulation.CbiTokenManager;
+import it.coderit.banktestapp.CBISimulation.MockCbiAuthService;
+import it.coderit.banktestapp.dto.CredemTransactionResponse;
+import it.coderit.banktestapp.model.IngestionRun;
+import it.coderit.banktestapp.rest.CredemResilience;
+import it.coderit.banktestapp.service.CoverageService.DateRange;
+import it.coderit.banktestapp.service.IngestionMetrics.RowCounts;
+import it.coderit.banktestapp.service.IngestionMetrics.Run;
+import it.coderit.banktestapp.service.IngestionMetrics.Stage;
+import it.coderit.banktestapp.service.PageFingerprintCache.PageKey;
+import it.coderit.banktestapp.rest.CredemReactiveClient;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Scaricamento movimenti non bloccante.
+ * Le chiamate a Credem passano da CredemReactiveClient, quindi l'attesa della risposta non occupa
+ * thread; solo il salvataggio di ogni pagina (JPA, bloccante) viene eseguito sul worker pool.
+ * Più account vengono sincronizzati in parallelo, fino a credem.async.concurrency alla volta.
+ * Per ogni account si scaricano gli intervalli del piano di CoverageService, come nel percorso bloccante.
+ */
+@ApplicationScoped
+public class AsyncTransactionIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncTransactionIngestionService.class);
+    private static final DateTimeFormatter HTTP_DATE_FORMATTER = DateTimeFormatter.RFC_1123_DATE_TIME;
+
+    // Stessi valori mockati usati da TransactionService per le chiamate bloccanti
+    private static final String MOCK_DIGEST = "SHA-256=MOCK_DIGEST_VALUE";
+    private static final String MOCK_SIGNATURE = "MOCK_SIGNATURE_VALUE";
+    private static final String MOCK_TPP_CERTIFICATE = "MOCK_TPP_CERTIFICATE_BASE64";
+    private static final String MOCK_PSU_IP_ADDRESS = "127.0.0.1";
+    private static final String MOCK_ASPSP_CODE = "MOCK_ASPSP_CODE";
+
+    @Inject
+    @RestClient
+    CredemReactiveClient credemReactiveClient;
+
+    @Inject
+    TransactionService transactionService;
+
+    @Inject
+    CredemResilience credemResilience;
+
+    @Inject
+    CoverageService coverageService;
+
+    @Inject
+    PageSizeTuner pageSizeTuner;
+
+    @Inject
+    PageFingerprintCache pageFingerprintCache;
+
+    @Inject
+    CbiTokenManager cbiTokenManager;
+
+    @Inject
+    MockCbiAuthService mockCbiAuthService;
+
+    @Inject
+    IngestionMetrics ingestionMetrics;
+
+    @ConfigProperty(name = "credem.psu-id")
+    String psuId;
+
+    @ConfigProperty(name = "cbi.consent-mock-id")
+    String mockConsentId;
+
+    @ConfigProperty(name = "scheduler.load-from-file", defaultValue = "true")
+    boolean loadFromFile;
+
+    @ConfigProperty(name = "sync.skip-if-unchanged", defaultValue = "true")
+    boolean skipIfUnchanged;
+
+    @ConfigProperty(name = "credem.async.concurrency", defaultValue = "32")
+    int concurrency;
+
+    // Esito della sincronizzazione di un account: stato dell'esecuzione e movimenti ricevuti dalla banca
+    public record AccountResult(String accountId, IngestionRun.Status status, int received) {
+    }
+
+    /**
+     * Sincronizza più account in parallelo (al massimo credem.async.concurrency alla volta).
+     *
+     * @return l'esito di ogni account, nell'ordine in cui terminano.
+     */
+    public Uni<List<AccountResult>> ingestAccounts(List<String> accountIds, String from, String to) {
+        return Multi.createFrom().iterable(accountIds)
+                .onItem().transformToUni(accountId -> ingestAccount(accountId, from, to))
+                .merge(concurrency)
+                .collect().asList();
+    }
+
+    /**
+     * Versione non bloccante di TransactionService.downloadAndSave per un singolo account.
+     * Gli errori transitori vengono ritentati con backoff; se una pagina fallisce comunque, o fallisce la
+     * preparazione (piano, token, checkpoint), lo scaricamento dell'account si interrompe senza far fallire
+     * gli altri account: l'esecuzione viene chiusa come FAILED e riprenderà dal checkpoint.
+     *
+     * @return lo stato dell'esecuzione e il numero di movimenti ricevuti dalla banca per l'account.
+     */
+    public Uni<AccountResult> ingestAccount(String accountId, String from, String to) {
+        if (loadFromFile) {
+            // I file di test vengono letti e salvati in modo sincrono: basta spostarli sul worker pool
+            return Uni.createFrom().item(() -> new AccountResult(accountId,
+                    transactionService.downloadAndSave(accountId, from, to), 0))
+                    .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+        }
+
+        LocalDate fromDate = LocalDate.parse(from);
+        LocalDate toDate = LocalDate.parse(to);
+        return Uni.createFrom().deferred(() -> {
+            Run run = ingestionMetrics.start(accountId, MOCK_ASPSP_CODE, "async", fromDate, toDate);
+            AtomicInteger received = new AtomicInteger();
+            // Piano, token e header vengono letti sul worker pool: possono bloccare
+            return Uni.createFrom().item(() -> {
+                        // Solo le parti non ancora coperte, più la finestra recente ancora modificabile
+                        List<DateRange> plan = coverageService.plan(accountId, fromDate, toDate);
+                        return new AccountSync(accountId, plan,
+                                cbiTokenManager.getAccessToken(),
+                                "req-" + UUID.randomUUID(),
+                                OffsetDateTime.now(ZoneOffset.UTC).format(HTTP_DATE_FORMATTER),
+                                mockCbiAuthService.getPsuAccessToken(psuId, mockConsentId),
+                                received,
+                                run);
+                    })
+                    .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                    .onItem().transformToUni(sync -> {
+                        if (sync.plan().isEmpty()) {
+                            log.info("Movimenti di accountId {} da {} a {} già scaricati: nulla da fare.",
+                                    accountId, from, to);
+                            return Uni.createFrom().item(IngestionRun.Status.SKIPPED);
+                        }
+                        return syncRanges(sync, 0, IngestionRun.Status.SKIPPED)
+                                .call(this::saveBestPageSize);
+                    })
+                    .onFailure().recoverWithItem(e -> {
+                        log.error("Errore durante lo scaricamento asincrono per accountId {}: {}. Riprenderà dal checkpoint.",
+                                accountId, e.getMessage(), e);
+                        run.fail(e.getMessage());
+                        return IngestionRun.Status.FAILED;
+                    })
+                    .call(status -> finishRun(run, status))
+                    .onFailure().invoke(e -> log.error("Impossibile salvare l'esecuzione per accountId {}: {}",
+                            accountId, e.getMessage(), e))
+                    // Un'esecuzione che non si è potuta salvare non conta come completata
+                    .onItemOrFailure().transform((status, e) -> new AccountResult(accountId,
+                            e == null ? status : IngestionRun.Status.FAILED, received.get()));
+        });
+    }
+
+    // Scarica gli intervalli del piano in ordine, come il percorso bloccante; al primo errore si ferma
+    // e lascia il checkpoint per la ripresa
+    private Uni<IngestionRun.Status> syncRanges(AccountSync sync, int index, IngestionRun.Status status) {
+        if (index >= sync.plan().size()) {
+            return Uni.createFrom().item(status);
+        }
+        return prepare(sync, sync.plan().get(index))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .onItem().transformToUni(request -> request == null
+                        ? Uni.createFrom().item(status)
+                        : syncPages(request))
+                .onItem().transformToUni(next -> next == IngestionRun.Status.FAILED
+                        ? Uni.createFrom().item(next)
+                        : syncRanges(sync, index + 1, next));
+    }
+
+    // Checkpoint e, solo per la finestra recente, saldi prima dei movimenti: se lo stato non è cambiato
+    // dall'ultima sincronizzazione l'intervallo viene saltato (null). Le parti storiche si scaricano comunque.
+    private Uni<PageRequest> prepare(AccountSync sync, DateRange range) {
+        return Uni.createFrom().item(() -> {
+            String accountId = sync.accountId();
+            int startOffset = transactionService.resumeOffset(accountId, range.from(), range.to());
+            if (startOffset > 0) {
+                log.info("Ripresa scaricamento asincrono per accountId {} dal checkpoint con offset {}.",
+                        accountId, startOffset);
+            }
+            boolean mutable = coverageService.isMutable(range);
+            String balanceMarker = null;
+            if (mutable && skipIfUnchanged) {
+                balanceMarker = transactionService.currentBalanceMarker(accountId);
+                if (startOffset == 0 && transactionService.isUnchanged(accountId, balanceMarker, range)) {
+                    log.info("Saldi invariati per accountId {} dall'ultima sincronizzazione: scaricamento di {} saltato.",
+                            accountId, range);
+                    return null;
+                }
+            }
+            return new PageRequest(sync, range.from().toString(), range.to().toString(), range.from(), range.to(),
+                    startOffset, mutable ? balanceMarker : null);
+        });
+    }
+
+    // Scarica tutte le pagine dell'intervallo; un errore viene loggato e lascia il checkpoint per la ripresa
+    private Uni<IngestionRun.Status> syncPages(PageRequest request) {
+        return ingestFrom(request, request.startOffset())
+                .call(() -> completeSync(request))
+                .invoke(() -> log.info("Scaricamento asincrono completato per accountId {} da {} a {}: {} movimenti.",
+                        request.accountId(), request.from(), request.to(), request.received().get()))
+                .replaceWith(IngestionRun.Status.COMPLETED)
+                .onFailure().invoke(e -> {
+                    log.error("Errore durante lo scaricamento asincrono per accountId {}: {}. Riprenderà dal checkpoint.",
+                            request.accountId(), e.getMessage(), e);
+                    request.run().fail(e.getMessage());
+                })
+                .onFailure().recoverWithItem(IngestionRun.Status.FAILED);
+    }
+
+    // Scarica e salva le pagine a partire da offset; fallisce se una pagina non viene scaricata dopo i retry
+    private Uni<Void> ingestFrom(PageRequest request, int offset) {
+        int pageSize = pageSizeTuner.pageSize(MOCK_ASPSP_CODE);
+        return credemResilience.callAsync(MOCK_ASPSP_CODE, mockConsentId,
+                "getTransactions " + request.accountId() + " offset " + offset,
+                () -> timedPage(request, pageSize, credemReactiveClient.getTransactions(
+                        psuId,
+                        request.token(),
+                        request.xRequestId(),
+                        mockConsentId,
+                        request.dateHeader(),
+                        MOCK_DIGEST,
+                        MOCK_SIGNATURE,
+                        MOCK_TPP_CERTIFICATE,
+                        request.psuAuthorization(),
+                        MOCK_PSU_IP_ADDRESS,
+                        MOCK_ASPSP_CODE,
+                        request.accountId(),
+                        request.from(),
+                        request.to(),
+                        pageSize,
+                        offset)))
+                .onFailure().invoke(() -> pageSizeTuner.onError(MOCK_ASPSP_CODE, pageSize))
+                .onItem().transformToUni(response -> {
+                    if (response != null) {
+                        ingestionMetrics.recordPage(request.run());
+                    }
+                    if (response == null || response.booked == null || response.booked.isEmpty()) {
+                        return Uni.createFrom().voidItem();
+                    }
+                    request.received().addAndGet(response.booked.size());
+                    Uni<Void> saved = save(response, request, offset, pageSize);
+                    if (response.booked.size() < pageSize) {
+                        return saved;
+                    }
+                    return saved.chain(() -> ingestFrom(request, offset + pageSize));
+                });
+    }
+
+    // Misura la latenza della singola chiamata (senza attese di rate limit e backoff) per PageSizeTuner e metriche
+    private Uni<CredemTransactionResponse> timedPage(PageRequest request, int pageSize,
+            Uni<CredemTransactionResponse> call) {
+        long start = System.nanoTime();
+        return call.invoke(page -> {
+            long elapsed = System.nanoTime() - start;
+            pageSizeTuner.onPage(MOCK_ASPSP_CODE, pageSize,
+                    page != null && page.booked != null ? page.booked.size() : 0, elapsed);
+            ingestionMetrics.recordStage(Stage.BANK_CALL, request.accountId(), MOCK_ASPSP_CODE, elapsed);
+        });
+    }
+
+    // Il salvataggio usa JPA e transazioni JTA: va eseguito fuori dall'event loop
+    // Le pagine identiche a una già salvata di recente vengono saltate, come nel percorso bloccante
+    private Uni<Void> save(CredemTransactionResponse response, PageRequest request, int offset, int pageSize) {
+        return Uni.createFrom().<Void>item(() -> {
+            PageKey pageKey = new PageKey(request.accountId(), request.from(), request.to(), offset, pageSize);
+            String fingerprint = pageFingerprintCache.fingerprint(response.booked);
+            if (pageFingerprintCache.isUnchanged(pageKey, fingerprint)) {
+                log.info("Pagina con offset {} di accountId {} invariata: salvataggio saltato.",
+                        offset, request.accountId());
+                RowCounts counts = RowCounts.unchangedPage(response.booked.size());
+                ingestionMetrics.recordRows(request.accountId(), MOCK_ASPSP_CODE, counts);
+                request.run().add(counts);
+                return null;
+            }
+            request.run().add(transactionService.savePage(response.booked, request.accountId(), request.fromDate(),
+                    request.toDate(), offset + pageSize));
+            pageFingerprintCache.remember(pageKey, fingerprint);
+            return null;
+        }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+
+    private Uni<Void> completeSync(PageRequest request) {
+        return Uni.createFrom().<Void>item(() -> {
+            transactionService.completeSync(request.accountId(), request.fromDate(), request.toDate(),
+                    request.balanceMarker());
+            return null;
+        }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+
+    private Uni<Void> finishRun(Run run, IngestionRun.Status status) {
+        return Uni.createFrom().<Void>item(() -> {
+            ingestionMetrics.finish(run, status);
+            return null;
+        }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+
+    private Uni<Void> saveBestPageSize() {
+        return Uni.createFrom().<Void>item(() -> {
+            pageSizeTuner.saveBest(MOCK_ASPSP_CODE);
+            return null;
+        }).runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+
+    // Piano e header calcolati una volta per account e riusati per tutte le pagine, come nel percorso bloccante
+    private record AccountSync(String accountId, List<DateRange> plan, String token, String xRequestId,
+            String dateHeader, String psuAuthorization, AtomicInteger received, Run run) {
+    }
+
+    // Un intervallo del piano; balanceMarker è valorizzato solo per la finestra modificabile
+    private record PageRequest(AccountSync sync, String from, String to, LocalDate fromDate, LocalDate toDate,
+            int startOffset, String balanceMarker) {
+
+        String accountId() {
+            return sync.accountId();
+        }
+
+        String token() {
+            return sync.token();
+        }
+
+        String xRequestId() {
+            return sync.xRequestId();
+        }
+
+        String dateHeader() {
+            return sync.dateHeader();
+        }
+
+        String psuAuthorization() {
+            return sync.psuAuthorization();
+        }
+
+        AtomicInteger received() {
+            return sync.received();
+        }
+
+        Run run() {
+            return sync.run();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package it.coderit.banktestapp.service;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import it.coderit.banktestapp.dto.BackfillProgress;
+import it.coderit.banktestapp.repository.BackfillWindowRepository;
+import it.coderit.banktestapp.service.CoverageService.DateRange;
+import it.coderit.banktestapp.service.TransactionService.PageFetchResult;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+/**
+ * Backfill storico dei movimenti.
+ * L'intervallo richiesto viene diviso in finestre mensili o settimanali, scaricate in parallelo
+ * (al massimo backfill.concurrency alla volta) con TransactionService.downloadWindow.
+ * Le finestre completate vengono registrate in backfill_window: rilanciando lo stesso backfill
+ * dopo un'interruzione vengono saltate. Non vengono registrate le finestre che arrivano ai giorni
+ * ancora modificabili (CoverageService), che vanno riscaricate.
+ * Lo stato dei backfill terminati resta consultabile per backfill.job-retention (al massimo backfill.max-jobs).
+ */
+@ApplicationScoped
+public class BackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(BackfillService.class);
+
+    public enum Granularity {
+        WEEK, MONTH
+    }
+
+    @Inject
+    TransactionService transactionService;
+
+    @Inject
+    BackfillWindowRepository backfillWindowRepository;
+
+    @Inject
+    CoverageService coverageService;
+
+    @ConfigProperty(name = "backfill.concurrency", defaultValue = "4")
+    int concurrency;
+
+    @ConfigProperty(name = "backfill.max-windows", defaultValue = "520")
+    int maxWindows;
+
+    @ConfigProperty(name = "backfill.job-retention", defaultValue = "PT24H")
+    Duration jobRetention;
+
+    @ConfigProperty(name = "backfill.max-jobs", defaultValue = "100")
+    int maxJobs;
+
+    @ConfigProperty(name = "scheduler.load-from-file", defaultValue = "true")
+    boolean loadFromFile;
+
+    final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Avvia un backfill in background e ne restituisce lo stato iniziale.
+     *
+     * @throws IllegalArgumentException se l'intervallo non è valido o produce troppe finestre.
+     * @throws IllegalStateException se i movimenti vengono caricati da file (scheduler.load-from-file=true).
+     */
+    public BackfillProgress start(String accountId, LocalDate from, LocalDate to, Granularity granularity) {
+        if (loadFromFile) {
+            throw new IllegalStateException("Backfill non disponibile con scheduler.load-from-file=true.");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("La data 'from' non può essere successiva alla data 'to'.");
+        }
+        List<Window> windows = split(from, to, granularity);
+        if (windows.size() > maxWindows) {
+            throw new IllegalArgumentException("Intervallo troppo ampio: " + windows.size()
+                    + " finestre, massimo " + maxWindows + ".");
+        }
+
+        // Saltate le finestre completate da un backfill precedente e quelle già coperte dalle sincronizzazioni
+        Set<Window> completed = completedWindows(accountId, from, to);
+        List<DateRange> covered = coverageService.covered(accountId);
+        List<Window> pending = windows.stream()
+                .filter(window -> !completed.contains(window))
+                .filter(window -> !CoverageService.subtract(new DateRange(window.from(), window.to()), covered).isEmpty())
+                .collect(Collectors.toList());
+        Job job = new Job(UUID.randomUUID().toString(), accountId, from, to, granularity, windows.size(),
+                windows.size() - pending.size());
+        evictFinishedJobs();
+        jobs.put(job.id, job);
+        log.info("Backfill {} per accountId {} da {} a {}: {} finestre ({}), {} già completate.",
+                job.id, accountId, from, to, windows.size(), granularity, job.skipped);
+
+        Multi.createFrom().iterable(pending)
+                .onItem().transformToUni(window -> Uni.createFrom().item(() -> downloadWindow(job, window))
+                        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool()))
+                .merge(concurrency)
+                .collect().last()
+                .subscribe().with(
+                        ignored -> finish(job),
+                        failure -> {
+                            log.error("Backfill {} interrotto: {}", job.id, failure.getMessage(), failure);
+                            finish(job);
+                        });
+        return job.progress();
+    }
+
+    public Optional<BackfillProgress> progress(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(Job::progress);
+    }
+
+    // Backfill avviati da questa istanza, dal più recente
+    public List<BackfillProgress> listProgress() {
+        return jobs.values().stream()
+                .map(Job::progress)
+                .sorted(Comparator.comparing((BackfillProgress progress) -> progress.startedAt).reversed())
+                .collect(Collectors.toList());
+    }
+
+    // true se la finestra è stata scaricata per intero
+    private boolean downloadWindow(Job job, Window window) {
+        try {
+            PageFetchResult result = transactionService.downloadWindow(job.accountId,
+                    window.from().toString(), window.to().toString());
+            job.rows.addAndGet(result.rows());
+            if (result.completed()) {
+                markCompleted(job.accountId, window, result.rows());
+                job.completed.incrementAndGet();
+                return true;
+            }
+        } catch (Exception e) {
+            log.error("Backfill {}: errore sulla finestra {} - {}: {}", job.id, window.from(), window.to(), e.getMessage(), e);
+        }
+        job.failed.incrementAndGet();
+        return false;
+    }
+
+    @Transactional
+    Set<Window> completedWindows(String accountId, LocalDate from, LocalDate to) {
+        return backfillWindowRepository.findCompleted(accountId, from, to).stream()
+                .map(window -> new Window(window.fromDate, window.toDate))
+                .collect(Collectors.toSet());
+    }
+
+    // La finestra completata entra anche nella mappa di copertura usata da downloadAndSave (che esclude
+    // da sé i giorni modificabili); in backfill_window solo se è interamente prima di quei giorni
+    @Transactional
+    void markCompleted(String accountId, Window window, int rows) {
+        if (isStable(window, coverageService.mutableCutoff())) {
+            backfillWindowRepository.markCompleted(accountId, window.from(), window.to(), rows);
+        }
+        coverageService.markCovered(accountId, window.from(), window.to());
+    }
+
+    static boolean isStable(Window window, LocalDate mutableCutoff) {
+        return window.to().isBefore(mutableCutoff);
+    }
+
+    // Scarta i backfill terminati da più di jobRetention e, oltre maxJobs, i terminati più vecchi;
+    // quelli in corso restano sempre
+    void evictFinishedJobs() {
+        OffsetDateTime expiry = OffsetDateTime.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(expiry));
+        int excess = jobs.size() - maxJobs + 1;
+        if (excess > 0) {
+            jobs.values().stream()
+                    .filter(job -> job.finishedAt != null)
+                    .sorted(Comparator.comparing((Job job) -> job.finishedAt))
+                    .limit(excess)
+                    .toList()
+                    .forEach(job -> jobs.remove(job.id));
+        }
+    }
+
+    private void finish(Job job) {
+        job.finishedAt = OffsetDateTime.now();
+        log.info("Backfill {} terminato: {} finestre completate, {} saltate, {} fallite, {} movimenti.",
+                job.id, job.completed.get(), job.skipped, job.failed.get(), job.rows.get());
+    }
+
+    /**
+     * Divide [from, to] in finestre allineate al mese di calendario o alla settimana ISO (lunedì-domenica);
+     * la prima e l'ultima finestra vengono troncate all'intervallo richiesto.
+     */
+    static List<Window> split(LocalDate from, LocalDate to, Granularity granularity) {
+        List<Window> windows = new ArrayList<>();
+        LocalDate start = from;
+        while (!start.isAfter(to)) {
+            LocalDate end = granularity == Granularity.MONTH
+                    ? start.with(TemporalAdjusters.lastDayOfMonth())
+                    : start.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
+            if (end.isAfter(to)) {
+                end = to;
+            }
+            windows.add(new Window(start, end));
+            start = end.plusDays(1);
+        }
+        return windows;
+    }
+
+    record Window(LocalDate from, LocalDate to) {
+    }
+
+    // Stato di un backfill in corso o terminato
+    static final class Job {
+        final String id;
+        final String accountId;
+        final LocalDate from;
+        final LocalDate to;
+        final Granularity granularity;
+        final int total;
+        final int skipped;
+        final OffsetDateTime startedAt = OffsetDateTime.now();
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicLong rows = new AtomicLong();
+        volatile OffsetDateTime finishedAt;
+
+        Job(String id, String accountId, LocalDate from, LocalDate to, Granularity granularity, int total, int skipped) {
+            this.id = id;
+            this.accountId = accountId;
+            this.from = from;
+            this.to = to;
+            this.granularity = granularity;
+            this.total = total;
+            this.skipped = skipped;
+            if (skipped == total) {
+                finishedAt = startedAt;
+            }
+        }
+
+        BackfillProgress progress() {
+            BackfillProgress progress = new BackfillProgress();
+            progress.jobId = id;
+            progress.accountId = accountId;
+            progress.from = from;
+            progress.to = to;
+            progress.granularity = granularity.name();
+            progress.totalWindows = total;
+            progress.skippedWindows = skipped;
+            progress.completedWindows = completed.get();
+            progress.failedWindows = failed.get();
+            progress.rows = rows.get();
+            int done = skipped + progress.completedWindows + progress.failedWindows;
+            progress.percent = total == 0 ? 100 : done * 100 / total;
+            progress.startedAt = startedAt;
+            progress.finishedAt = finishedAt;
+            if (finishedAt == null) {
+                progress.status = BackfillProgress.Status.RUNNING;
+            } else {
+                progress.status = progress.failedWindows > 0
+                        ? BackfillProgress.Status.COMPLETED_WITH_ERRORS
+                        : BackfillProgress.Status.COMPLETED;
+            }
+            return progress;
+        }
+    }
+}
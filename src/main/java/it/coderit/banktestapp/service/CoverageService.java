@@ -0,0 +1,161 @@
+package it.coderit.banktestapp.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import it.coderit.banktestapp.model.AccountCoverage;
+import it.coderit.banktestapp.repository.AccountCoverageRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+/**
+ * Mappa di copertura delle finestre di date già scaricate per ogni account.
+ * <p>
+ * Il planner restituisce le parti di un intervallo richiesto non ancora coperte, più la finestra
+ * "ancora modificabile" (gli ultimi sync.coverage.mutable-days giorni), che viene sempre riscaricata
+ * perché la banca può ancora aggiungere o contabilizzare movimenti in quei giorni.
+ * Per lo stesso motivo una finestra completata viene registrata come coperta solo fino al giorno
+ * precedente l'inizio della finestra modificabile.
+ */
+@ApplicationScoped
+public class CoverageService {
+
+    private static final Logger log = LoggerFactory.getLogger(CoverageService.class);
+
+    @Inject
+    AccountCoverageRepository accountCoverageRepository;
+
+    @ConfigProperty(name = "sync.coverage.mutable-days", defaultValue = "3")
+    int mutableDays;
+
+    /**
+     * Intervalli da scaricare per coprire [from, to], in ordine cronologico: prima le parti storiche
+     * non coperte, poi l'eventuale finestra modificabile.
+     */
+    @Transactional
+    public List<DateRange> plan(String accountId, LocalDate from, LocalDate to) {
+        DateRange requested = new DateRange(from, to);
+        LocalDate cutoff = mutableCutoff();
+        List<DateRange> plan = new ArrayList<>();
+        if (from.isBefore(cutoff)) {
+            DateRange historical = new DateRange(from, to.isBefore(cutoff) ? to : cutoff.minusDays(1));
+            plan.addAll(subtract(historical, covered(accountId)));
+        }
+        if (!to.isBefore(cutoff)) {
+            plan.add(new DateRange(from.isAfter(cutoff) ? from : cutoff, to));
+        }
+        log.debug("Piano di scaricamento per accountId {} su {}: {}", accountId, requested, plan);
+        return plan;
+    }
+
+    /**
+     * true se l'intervallo cade interamente nella finestra ancora modificabile.
+     */
+    public boolean isMutable(DateRange range) {
+        return !range.from().isBefore(mutableCutoff());
+    }
+
+    /**
+     * Registra come coperta la parte di [from, to] precedente alla finestra modificabile,
+     * fondendola con gli intervalli già presenti. Va chiamato nella transazione che completa lo scaricamento.
+     */
+    public void markCovered(String accountId, LocalDate from, LocalDate to) {
+        LocalDate lastStable = mutableCutoff().minusDays(1);
+        LocalDate end = to.isAfter(lastStable) ? lastStable : to;
+        if (end.isBefore(from)) {
+            return;
+        }
+        accountCoverageRepository.lockAccount(accountId);
+        List<DateRange> ranges = new ArrayList<>(covered(accountId));
+        ranges.add(new DateRange(from, end));
+        List<DateRange> merged = merge(ranges);
+
+        accountCoverageRepository.deleteByAccount(accountId);
+        for (DateRange range : merged) {
+            AccountCoverage coverage = new AccountCoverage();
+            coverage.setAccountId(accountId);
+            coverage.setFromDate(range.from());
+            coverage.setToDate(range.to());
+            accountCoverageRepository.persist(coverage);
+        }
+        log.debug("Copertura aggiornata per accountId {}: {}", accountId, merged);
+    }
+
+    /**
+     * Intervalli coperti dell'account, disgiunti e in ordine cronologico.
+     */
+    @Transactional
+    public List<DateRange> covered(String accountId) {
+        return accountCoverageRepository.findByAccount(accountId).stream()
+                .map(coverage -> new DateRange(coverage.fromDate, coverage.toDate))
+                .collect(Collectors.toList());
+    }
+
+    // Primo giorno della finestra ancora modificabile
+    LocalDate mutableCutoff() {
+        return LocalDate.now().minusDays(mutableDays);
+    }
+
+    // Fonde intervalli sovrapposti o adiacenti
+    static List<DateRange> merge(List<DateRange> ranges) {
+        List<DateRange> sorted = ranges.stream()
+                .sorted(Comparator.comparing(DateRange::from))
+                .collect(Collectors.toList());
+        List<DateRange> merged = new ArrayList<>();
+        for (DateRange range : sorted) {
+            DateRange last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && !range.from().isAfter(last.to().plusDays(1))) {
+                if (range.to().isAfter(last.to())) {
+                    merged.set(merged.size() - 1, new DateRange(last.from(), range.to()));
+                }
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
+    // Parti di 'requested' non contenute negli intervalli 'covered' (disgiunti e ordinati)
+    static List<DateRange> subtract(DateRange requested, List<DateRange> covered) {
+        List<DateRange> uncovered = new ArrayList<>();
+        LocalDate cursor = requested.from();
+        for (DateRange range : covered) {
+            if (range.to().isBefore(cursor)) {
+                continue;
+            }
+            if (range.from().isAfter(requested.to())) {
+                break;
+            }
+            if (range.from().isAfter(cursor)) {
+                uncovered.add(new DateRange(cursor, range.from().minusDays(1)));
+            }
+            cursor = range.to().plusDays(1);
+            if (cursor.isAfter(requested.to())) {
+                return uncovered;
+            }
+        }
+        if (!cursor.isAfter(requested.to())) {
+            uncovered.add(new DateRange(cursor, requested.to()));
+        }
+        return uncovered;
+    }
+
+    /**
+     * Intervallo di date con estremi inclusi.
+     */
+    public record DateRange(LocalDate from, LocalDate to) {
+
+        @Override
+        public String toString() {
+            return from + ".." + to;
+        }
+    }
+}
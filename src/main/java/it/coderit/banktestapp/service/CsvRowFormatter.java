@@ -0,0 +1,98 @@
+package it.coderit.banktestapp.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Scrive righe CSV direttamente dalle colonne di un ResultSet verso un Writer.
+ * Un'istanza viene riusata per tutte le righe di un export: non crea oggetti per riga
+ * oltre alle stringhe restituite dal driver JDBC.
+ * I campi che contengono il separatore, virgolette o a capo vengono racchiusi tra virgolette.
+ * Le colonne di testo che iniziano con =, +, -, @, tab o CR vengono precedute da un apice, così un
+ * foglio di calcolo non le interpreta come formule (CSV injection); i valori numerici restano invariati.
+ */
+class CsvRowFormatter {
+
+    private final char separator;
+    private final int columnCount;
+    // Colonne di testo del ResultSet, lette dai metadati alla prima riga
+    private boolean[] textColumns;
+
+    CsvRowFormatter(char separator, int columnCount) {
+        this.separator = separator;
+        this.columnCount = columnCount;
+    }
+
+    void writeHeader(String[] header, Writer out) throws IOException {
+        for (int i = 0; i < header.length; i++) {
+            if (i > 0) {
+                out.write(separator);
+            }
+            writeField(header[i], true, out);
+        }
+        out.write('\n');
+    }
+
+    void writeRow(ResultSet rs, Writer out) throws SQLException, IOException {
+        if (textColumns == null) {
+            textColumns = textColumns(rs.getMetaData());
+        }
+        for (int i = 1; i <= columnCount; i++) {
+            if (i > 1) {
+                out.write(separator);
+            }
+            writeField(rs.getString(i), textColumns[i - 1], out);
+        }
+        out.write('\n');
+    }
+
+    private boolean[] textColumns(ResultSetMetaData metaData) throws SQLException {
+        boolean[] text = new boolean[columnCount];
+        for (int i = 1; i <= columnCount; i++) {
+            int type = metaData.getColumnType(i);
+            text[i - 1] = type == Types.VARCHAR || type == Types.CHAR || type == Types.LONGVARCHAR
+                    || type == Types.NVARCHAR || type == Types.NCHAR || type == Types.LONGNVARCHAR;
+        }
+        return text;
+    }
+
+    private void writeField(String value, boolean text, Writer out) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (text && isFormulaStart(value.charAt(0))) {
+            value = "'" + value;
+        }
+        if (!needsQuoting(value)) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    private static boolean isFormulaStart(char c) {
+        return c == '=' || c == '+' || c == '-' || c == '@' || c == '\t' || c == '\r';
+    }
+
+    private boolean needsQuoting(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == separator || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,176 @@
+package it.coderit.banktestapp.service;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import it.coderit.banktestapp.model.IngestionRun;
+import it.coderit.banktestapp.repository.IngestionRunRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+/**
+ * Metriche dello scaricamento movimenti, esportate da Micrometer su /q/metrics (Prometheus).
+ * <ul>
+ * <li>contatori ingestion.pages e ingestion.rows (tag result: mapped, classified, inserted, duplicate);</li>
+ * <li>istogramma ingestion.stage.duration per fase: chiamata alla banca, mapping, classificazione, scrittura DB.</li>
+ * </ul>
+ * Tutte le metriche hanno i tag account e aspsp. Ogni esecuzione viene anche riepilogata in ingestion_run
+ * e, se dura oltre profiling.jfr.auto.sync-threshold, profilata da ProfilingService.
+ */
+@ApplicationScoped
+public class IngestionMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionMetrics.class);
+
+    public enum Stage {
+        BANK_CALL("bank_call"),
+        MAPPING("mapping"),
+        CLASSIFICATION("classification"),
+        DB_WRITE("db_write");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    IngestionRunRepository ingestionRunRepository;
+
+    @Inject
+    ProfilingService profilingService;
+
+    /**
+     * Righe di una pagina salvata: ricevute e convertite, classificate da una regola, inserite e già presenti.
+     */
+    public record RowCounts(int mapped, int classified, int inserted, int duplicates) {
+
+        // Pagina identica a una già salvata (PageFingerprintCache): tutte le righe contano come duplicate
+        public static RowCounts unchangedPage(int rows) {
+            return new RowCounts(0, 0, 0, rows);
+        }
+    }
+
+    /**
+     * Contatori di una singola esecuzione, accumulati pagina per pagina e salvati da {@link #finish}.
+     */
+    public static class Run {
+        final String accountId;
+        final String aspspCode;
+        final String mode;
+        final LocalDate from;
+        final LocalDate to;
+        final OffsetDateTime startedAt = OffsetDateTime.now();
+        final long startNanos = System.nanoTime();
+        final AtomicInteger pages = new AtomicInteger();
+        final AtomicInteger mapped = new AtomicInteger();
+        final AtomicInteger classified = new AtomicInteger();
+        final AtomicInteger inserted = new AtomicInteger();
+        final AtomicInteger duplicates = new AtomicInteger();
+        volatile String error;
+        Future<?> slowSyncWatch;
+
+        Run(String accountId, String aspspCode, String mode, LocalDate from, LocalDate to) {
+            this.accountId = accountId;
+            this.aspspCode = aspspCode;
+            this.mode = mode;
+            this.from = from;
+            this.to = to;
+        }
+
+        public void add(RowCounts counts) {
+            mapped.addAndGet(counts.mapped());
+            classified.addAndGet(counts.classified());
+            inserted.addAndGet(counts.inserted());
+            duplicates.addAndGet(counts.duplicates());
+        }
+
+        public void fail(String message) {
+            error = message;
+        }
+
+        public int pages() {
+            return pages.get();
+        }
+    }
+
+    public Run start(String accountId, String aspspCode, String mode, LocalDate from, LocalDate to) {
+        Run run = new Run(accountId, aspspCode, mode, from, to);
+        run.slowSyncWatch = profilingService.watchSlowSync(mode + " " + accountId + " da " + from + " a " + to);
+        return run;
+    }
+
+    /**
+     * Pagina ricevuta dalla banca.
+     */
+    public void recordPage(Run run) {
+        run.pages.incrementAndGet();
+        registry.counter("ingestion.pages", tags(run.accountId, run.aspspCode)).increment();
+    }
+
+    /**
+     * Righe di una pagina salvata (o saltata perché invariata).
+     */
+    public void recordRows(String accountId, String aspspCode, RowCounts counts) {
+        Tags tags = tags(accountId, aspspCode);
+        registry.counter("ingestion.rows", tags.and("result", "mapped")).increment(counts.mapped());
+        registry.counter("ingestion.rows", tags.and("result", "classified")).increment(counts.classified());
+        registry.counter("ingestion.rows", tags.and("result", "inserted")).increment(counts.inserted());
+        registry.counter("ingestion.rows", tags.and("result", "duplicate")).increment(counts.duplicates());
+    }
+
+    public void recordStage(Stage stage, String accountId, String aspspCode, long nanos) {
+        Timer.builder("ingestion.stage.duration")
+                .description("Durata delle fasi dello scaricamento movimenti")
+                .tags(tags(accountId, aspspCode).and("stage", stage.tag))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Chiude l'esecuzione e ne salva il riepilogo in ingestion_run.
+     */
+    @Transactional
+    public void finish(Run run, IngestionRun.Status status) {
+        run.slowSyncWatch.cancel(false);
+        IngestionRun summary = new IngestionRun();
+        summary.accountId = run.accountId;
+        summary.aspspCode = run.aspspCode;
+        summary.mode = run.mode;
+        summary.fromDate = run.from;
+        summary.toDate = run.to;
+        summary.startedAt = run.startedAt;
+        summary.finishedAt = OffsetDateTime.now();
+        summary.durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - run.startNanos);
+        summary.pages = run.pages.get();
+        summary.rowsMapped = run.mapped.get();
+        summary.rowsClassified = run.classified.get();
+        summary.rowsInserted = run.inserted.get();
+        summary.rowsDuplicate = run.duplicates.get();
+        summary.status = status;
+        summary.errorMessage = run.error;
+        ingestionRunRepository.persist(summary);
+        log.info("Esecuzione {} per accountId {} da {} a {}: {} in {} ms, {} pagine, {} righe mappate, {} nuove, {} già presenti, {} classificate.",
+                run.mode, run.accountId, run.from, run.to, status, summary.durationMs, summary.pages,
+                summary.rowsMapped, summary.rowsInserted, summary.rowsDuplicate, summary.rowsClassified);
+    }
+
+    private static Tags tags(String accountId, String aspspCode) {
+        return Tags.of("account", String.valueOf(accountId), "aspsp", String.valueOf(aspspCode));
+    }
+}
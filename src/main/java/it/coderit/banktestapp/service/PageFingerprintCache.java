@@ -0,0 +1,100 @@
+package it.coderit.banktestapp.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import it.coderit.banktestapp.dto.CredemTransactionResponse.TransactionData;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Impronte (SHA-256) delle pagine di movimenti già salvate, per account, finestra di date, offset e limit.
+ * Le sincronizzazioni ravvicinate riscaricano spesso le stesse pagine: se l'impronta coincide con
+ * quella salvata negli ultimi sync.page-fingerprint.ttl, la pagina non viene rimappata, riclassificata
+ * né riscritta.
+ */
+@ApplicationScoped
+public class PageFingerprintCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PageFingerprintCache.class);
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @ConfigProperty(name = "sync.page-fingerprint.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "sync.page-fingerprint.ttl", defaultValue = "PT15M")
+    Duration ttl;
+
+    @ConfigProperty(name = "sync.page-fingerprint.maximum-size", defaultValue = "10000")
+    long maximumSize;
+
+    // Sostituibile nei test per far scadere le impronte senza attendere il TTL
+    Ticker ticker = Ticker.systemTicker();
+
+    private Cache<PageKey, String> fingerprints;
+
+    @PostConstruct
+    void initCache() {
+        fingerprints = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * Impronta del contenuto della pagina, oppure null se la funzionalità è disabilitata
+     * o la pagina non è serializzabile.
+     */
+    public String fingerprint(List<TransactionData> page) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(page));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            log.warn("Impossibile calcolare l'impronta della pagina: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * true se la stessa pagina, con lo stesso contenuto, è già stata salvata di recente.
+     */
+    public boolean isUnchanged(PageKey key, String fingerprint) {
+        return fingerprint != null && fingerprint.equals(fingerprints.getIfPresent(key));
+    }
+
+    /**
+     * Registra l'impronta di una pagina salvata con successo.
+     */
+    public void remember(PageKey key, String fingerprint) {
+        if (fingerprint != null) {
+            fingerprints.put(key, fingerprint);
+        }
+    }
+
+    public void invalidateAll() {
+        fingerprints.invalidateAll();
+    }
+
+    public record PageKey(String accountId, String from, String to, int offset, int limit) {
+    }
+}
@@ -0,0 +1,204 @@
+package it.coderit.banktestapp.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import it.coderit.banktestapp.model.AspspPageSize;
+import it.coderit.banktestapp.repository.AspspPageSizeRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+/**
+ * Sceglie la dimensione di pagina (parametro limit) per lo scaricamento movimenti di ogni banca.
+ * <p>
+ * Parte dalla dimensione migliore salvata in aspsp_page_size oppure da credem.page-size.initial,
+ * poi per ogni pagina completa misura la latenza per riga (media mobile per dimensione):
+ * raddoppia finché la latenza per riga migliora e la pagina resta sotto target-latency,
+ * torna alla dimensione migliore quando peggiora e dimezza in caso di errore.
+ * Tutte le dimensioni restano tra credem.page-size.min e credem.page-size.max
+ * (sovrascrivibili per banca con credem.page-size.aspsp.&lt;codice&gt;.*).
+ * Le dimensioni salvate vengono lette una volta all'avvio: pageSize non accede al database e si può
+ * chiamare anche dall'event loop (AsyncTransactionIngestionService).
+ */
+@ApplicationScoped
+public class PageSizeTuner {
+
+    private static final Logger log = LoggerFactory.getLogger(PageSizeTuner.class);
+    // Peso della nuova misura nella media mobile della latenza per riga
+    private static final double EWMA_WEIGHT = 0.3;
+
+    @Inject
+    Config config;
+
+    @Inject
+    AspspPageSizeRepository aspspPageSizeRepository;
+
+    @ConfigProperty(name = "credem.page-size.initial", defaultValue = "100")
+    int initialPageSize;
+
+    @ConfigProperty(name = "credem.page-size.min", defaultValue = "25")
+    int minPageSize;
+
+    @ConfigProperty(name = "credem.page-size.max", defaultValue = "500")
+    int maxPageSize;
+
+    @ConfigProperty(name = "credem.page-size.target-latency", defaultValue = "PT3S")
+    Duration targetLatency;
+
+    private final Map<String, BankState> states = new ConcurrentHashMap<>();
+    // Dimensioni migliori salvate in aspsp_page_size, lette all'avvio
+    private final Map<String, AspspPageSize> savedSizes = new ConcurrentHashMap<>();
+
+    void loadSavedSizes(@Observes StartupEvent event) {
+        try {
+            QuarkusTransaction.requiringNew().call(aspspPageSizeRepository::listAll)
+                    .forEach(saved -> savedSizes.put(saved.aspspCode, saved));
+            log.info("Dimensioni di pagina salvate caricate per {} ASPSP.", savedSizes.size());
+        } catch (RuntimeException e) {
+            log.warn("Impossibile leggere le dimensioni di pagina salvate: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Dimensione di pagina da usare per la prossima richiesta verso la banca.
+     */
+    public int pageSize(String aspspCode) {
+        return state(aspspCode).current();
+    }
+
+    /**
+     * Registra una pagina scaricata correttamente.
+     * Solo le pagine complete (rows == pageSize) contribuiscono alla misura della latenza per riga.
+     */
+    public void onPage(String aspspCode, int pageSize, int rows, long latencyNanos) {
+        if (rows < pageSize || rows == 0) {
+            return;
+        }
+        state(aspspCode).onPage(pageSize, latencyNanos / (double) rows, latencyNanos > targetLatency.toNanos());
+    }
+
+    /**
+     * Registra una pagina fallita (dopo i retry): la dimensione viene dimezzata.
+     */
+    public void onError(String aspspCode, int pageSize) {
+        state(aspspCode).onError(pageSize);
+    }
+
+    /**
+     * Salva la dimensione migliore trovata, se cambiata dall'ultimo salvataggio.
+     */
+    @Transactional
+    public void saveBest(String aspspCode) {
+        BankState state = states.get(aspspCode);
+        if (state == null) {
+            return;
+        }
+        BestSize best = state.bestIfChanged();
+        if (best != null) {
+            aspspPageSizeRepository.save(aspspCode, best.pageSize(), best.nanosPerRow());
+            log.info("Dimensione di pagina migliore per ASPSP {}: {} ({} µs per riga).",
+                    aspspCode, best.pageSize(), Math.round(best.nanosPerRow() / 1000));
+        }
+    }
+
+    private BankState state(String aspspCode) {
+        return states.computeIfAbsent(aspspCode, this::loadState);
+    }
+
+    private BankState loadState(String aspspCode) {
+        int min = intValue("credem.page-size.aspsp." + aspspCode + ".min", minPageSize);
+        int max = Math.max(min, intValue("credem.page-size.aspsp." + aspspCode + ".max", maxPageSize));
+        int initial = intValue("credem.page-size.aspsp." + aspspCode + ".initial", initialPageSize);
+        Double savedNanosPerRow = null;
+        AspspPageSize saved = savedSizes.get(aspspCode);
+        if (saved != null) {
+            initial = saved.pageSize;
+            savedNanosPerRow = saved.nanosPerRow;
+        }
+        return new BankState(min, max, Math.min(max, Math.max(min, initial)), savedNanosPerRow);
+    }
+
+    private int intValue(String name, int defaultValue) {
+        return config.getOptionalValue(name, Integer.class).orElse(defaultValue);
+    }
+
+    record BestSize(int pageSize, double nanosPerRow) {
+    }
+
+    // Stato di una banca: dimensione corrente, migliore e latenza per riga misurata per ogni dimensione
+    static final class BankState {
+
+        private final int min;
+        private final int max;
+        private final Map<Integer, Double> nanosPerRow = new HashMap<>();
+        private int current;
+        private int best;
+        private boolean bestChanged;
+
+        BankState(int min, int max, int initial, Double savedNanosPerRow) {
+            this.min = min;
+            this.max = max;
+            this.current = initial;
+            this.best = initial;
+            if (savedNanosPerRow != null) {
+                nanosPerRow.put(initial, savedNanosPerRow);
+            }
+        }
+
+        synchronized int current() {
+            return current;
+        }
+
+        synchronized void onPage(int pageSize, double sample, boolean tooSlow) {
+            double measured = nanosPerRow.merge(pageSize, sample,
+                    (old, value) -> old * (1 - EWMA_WEIGHT) + value * EWMA_WEIGHT);
+            Double bestMeasured = nanosPerRow.get(best);
+            if (pageSize == best || bestMeasured == null || measured < bestMeasured) {
+                if (best != pageSize) {
+                    best = pageSize;
+                    bestChanged = true;
+                } else if (bestMeasured == null) {
+                    bestChanged = true;
+                }
+                int larger = Math.min(max, pageSize * 2);
+                Double largerMeasured = nanosPerRow.get(larger);
+                // Prova una pagina più grande solo se non è già risultata peggiore e la pagina non è troppo lenta
+                boolean explore = !tooSlow && (largerMeasured == null || largerMeasured < measured);
+                current = explore ? larger : pageSize;
+                if (tooSlow) {
+                    current = Math.max(min, pageSize / 2);
+                }
+            } else {
+                current = best;
+            }
+        }
+
+        synchronized void onError(int pageSize) {
+            current = Math.max(min, pageSize / 2);
+            if (best > current) {
+                best = current;
+                bestChanged = true;
+            }
+        }
+
+        synchronized BestSize bestIfChanged() {
+            Double measured = nanosPerRow.get(best);
+            if (!bestChanged || measured == null) {
+                return null;
+            }
+            bestChanged = false;
+            return new BestSize(best, measured);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package it.coderit.banktestapp.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import it.coderit.banktestapp.dto.RecordingInfo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Registrazioni Java Flight Recorder a tempo, per profilare CPU, allocazioni e lock sul carico reale.
+ * Una sola registrazione alla volta: JFR la ferma da solo allo scadere della durata e la scrive
+ * in profiling.jfr.directory. Con profiling.jfr.auto.enabled=true una sincronizzazione ancora in corso
+ * dopo profiling.jfr.auto.sync-threshold avvia una registrazione (al più una ogni cooldown).
+ */
+@ApplicationScoped
+public class ProfilingService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfilingService.class);
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9._-]+\\.jfr");
+    private static final Pattern SETTINGS_FILE_NAME = Pattern.compile("[A-Za-z0-9._-]+\\.jfc");
+    private static final Set<String> BUILT_IN_SETTINGS = Set.of("default", "profile");
+    private static final Duration MIN_DURATION = Duration.ofSeconds(1);
+
+    @ConfigProperty(name = "profiling.jfr.directory", defaultValue = "target/jfr")
+    String directory;
+
+    // Configurazione JFR: default (overhead minimo), profile (più dettaglio) o percorso di un file .jfc
+    @ConfigProperty(name = "profiling.jfr.settings", defaultValue = "profile")
+    String defaultSettings;
+
+    // Directory dei file .jfc che le richieste possono indicare per nome (senza percorso)
+    @ConfigProperty(name = "profiling.jfr.settings-directory")
+    Optional<String> settingsDirectory;
+
+    @ConfigProperty(name = "profiling.jfr.duration", defaultValue = "PT60S")
+    Duration defaultDuration;
+
+    @ConfigProperty(name = "profiling.jfr.max-duration", defaultValue = "PT10M")
+    Duration maxDuration;
+
+    @ConfigProperty(name = "profiling.jfr.auto.enabled", defaultValue = "false")
+    boolean autoEnabled;
+
+    @ConfigProperty(name = "profiling.jfr.auto.sync-threshold", defaultValue = "PT2M")
+    Duration syncThreshold;
+
+    @ConfigProperty(name = "profiling.jfr.auto.duration", defaultValue = "PT60S")
+    Duration autoDuration;
+
+    @ConfigProperty(name = "profiling.jfr.auto.cooldown", defaultValue = "PT30M")
+    Duration autoCooldown;
+
+    private final Object lock = new Object();
+    private Recording current;
+    private RecordingInfo currentInfo;
+    private long lastAutoStartNanos;
+    private boolean autoStarted;
+    private ScheduledExecutorService watchdog;
+
+    @PostConstruct
+    void init() {
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jfr-slow-sync-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        watchdog.shutdownNow();
+        synchronized (lock) {
+            // Allo shutdown la registrazione in corso viene chiusa e scritta su disco
+            if (isRunning()) {
+                current.stop();
+            }
+        }
+    }
+
+    /**
+     * Avvia una registrazione; duration e settings null usano i default configurati.
+     * settings può essere default, profile, il valore di profiling.jfr.settings o il nome di un file .jfc
+     * di profiling.jfr.settings-directory: un percorso qualsiasi leggerebbe file arbitrari del server.
+     *
+     * @throws IllegalArgumentException se durata o configurazione non sono valide.
+     * @throws IllegalStateException se c'è già una registrazione in corso.
+     */
+    public RecordingInfo start(Duration duration, String settings, String reason) {
+        Duration effectiveDuration = duration != null ? duration : defaultDuration;
+        if (effectiveDuration.compareTo(MIN_DURATION) < 0 || effectiveDuration.compareTo(maxDuration) > 0) {
+            throw new IllegalArgumentException("La durata della registrazione deve essere compresa tra "
+                    + MIN_DURATION.toSeconds() + " e " + maxDuration.toSeconds() + " secondi.");
+        }
+        String effectiveSettings = settings != null && !settings.isBlank() ? settings : defaultSettings;
+        Configuration configuration = configuration(effectiveSettings);
+
+        synchronized (lock) {
+            if (isRunning()) {
+                throw new IllegalStateException("Registrazione JFR già in corso: " + currentInfo.name);
+            }
+            if (current != null) {
+                current.close();
+            }
+            OffsetDateTime startedAt = OffsetDateTime.now();
+            String name = "banktestapp-" + startedAt.format(FILE_TIMESTAMP) + "-" + reason + ".jfr";
+            Path destination = directory().resolve(name);
+            Recording recording = new Recording(configuration);
+            recording.setName(name);
+            recording.setToDisk(true);
+            recording.setDuration(effectiveDuration);
+            try {
+                Files.createDirectories(directory());
+                recording.setDestination(destination);
+            } catch (IOException e) {
+                recording.close();
+                throw new IllegalStateException("Impossibile scrivere in " + directory() + ": " + e.getMessage(), e);
+            }
+            recording.start();
+
+            RecordingInfo info = new RecordingInfo();
+            info.name = name;
+            info.status = RecordingInfo.Status.RUNNING;
+            info.settings = effectiveSettings;
+            info.reason = reason;
+            info.durationSeconds = effectiveDuration.toSeconds();
+            info.startedAt = startedAt;
+            current = recording;
+            currentInfo = info;
+            log.info("Registrazione JFR {} avviata ({}, {} s, motivo: {}).", name, effectiveSettings,
+                    info.durationSeconds, reason);
+            return snapshot();
+        }
+    }
+
+    /**
+     * Ferma in anticipo la registrazione in corso e la scrive su disco.
+     */
+    public Optional<RecordingInfo> stop() {
+        synchronized (lock) {
+            if (!isRunning()) {
+                return Optional.empty();
+            }
+            current.stop();
+            log.info("Registrazione JFR {} fermata su richiesta.", currentInfo.name);
+            return Optional.of(snapshot());
+        }
+    }
+
+    /**
+     * Registrazione corrente (o l'ultima avviata) seguita dai file .jfr presenti su disco, dal più recente.
+     */
+    public List<RecordingInfo> list() {
+        List<RecordingInfo> recordings = new ArrayList<>();
+        String currentName;
+        synchronized (lock) {
+            currentName = currentInfo != null ? currentInfo.name : null;
+            if (currentInfo != null) {
+                recordings.add(snapshot());
+            }
+        }
+        if (!Files.isDirectory(directory())) {
+            return recordings;
+        }
+        try (Stream<Path> files = Files.list(directory())) {
+            files.filter(file -> FILE_NAME.matcher(file.getFileName().toString()).matches())
+                    .filter(file -> !file.getFileName().toString().equals(currentName))
+                    .sorted(Comparator.comparing(Path::getFileName).reversed())
+                    .forEach(file -> {
+                        RecordingInfo info = new RecordingInfo();
+                        info.name = file.getFileName().toString();
+                        info.status = RecordingInfo.Status.COMPLETED;
+                        info.sizeBytes = size(file);
+                        recordings.add(info);
+                    });
+        } catch (IOException e) {
+            log.warn("Impossibile leggere le registrazioni JFR in {}: {}", directory(), e.getMessage());
+        }
+        return recordings;
+    }
+
+    /**
+     * File .jfr di una registrazione conclusa.
+     *
+     * @throws IllegalStateException se la registrazione è ancora in corso.
+     */
+    public Optional<Path> file(String name) {
+        if (name == null || !FILE_NAME.matcher(name).matches()) {
+            return Optional.empty();
+        }
+        synchronized (lock) {
+            if (isRunning() && currentInfo.name.equals(name)) {
+                throw new IllegalStateException("La registrazione " + name + " è ancora in corso.");
+            }
+        }
+        Path file = directory().resolve(name);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    /**
+     * Chiamato all'avvio di una sincronizzazione: se è ancora in corso dopo la soglia avvia una registrazione.
+     * Il Future va annullato a fine sincronizzazione.
+     */
+    public Future<?> watchSlowSync(String description) {
+        if (!autoEnabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return watchdog.schedule(() -> onSlowSync(description), syncThreshold.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void onSlowSync(String description) {
+        synchronized (lock) {
+            if (autoStarted && System.nanoTime() - lastAutoStartNanos < autoCooldown.toNanos()) {
+                log.info("Sincronizzazione {} oltre {} s: registrazione JFR automatica in cooldown.",
+                        description, syncThreshold.toSeconds());
+                return;
+            }
+            try {
+                RecordingInfo info = start(autoDuration, defaultSettings, "slow-sync");
+                autoStarted = true;
+                lastAutoStartNanos = System.nanoTime();
+                log.warn("Sincronizzazione {} ancora in corso dopo {} s: avviata la registrazione JFR {}.",
+                        description, syncThreshold.toSeconds(), info.name);
+            } catch (RuntimeException e) {
+                log.warn("Sincronizzazione {} lenta, registrazione JFR non avviata: {}", description, e.getMessage());
+            }
+        }
+    }
+
+    private Configuration configuration(String settings) {
+        try {
+            if (BUILT_IN_SETTINGS.contains(settings)) {
+                return Configuration.getConfiguration(settings);
+            }
+            // Il default viene dalla configurazione dell'applicazione e può essere un percorso
+            if (settings.equals(defaultSettings)) {
+                return settings.endsWith(".jfc") ? Configuration.create(Paths.get(settings))
+                        : Configuration.getConfiguration(settings);
+            }
+            if (settingsDirectory.isPresent() && SETTINGS_FILE_NAME.matcher(settings).matches()) {
+                return Configuration.create(Paths.get(settingsDirectory.get()).resolve(settings));
+            }
+            throw new IllegalArgumentException("Configurazione JFR non ammessa: " + settings
+                    + ". Valori validi: default, profile o il nome di un file .jfc di profiling.jfr.settings-directory.");
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("Configurazione JFR non valida: " + settings, e);
+        }
+    }
+
+    // Da chiamare con il lock
+    private boolean isRunning() {
+        return current != null && current.getState() == RecordingState.RUNNING;
+    }
+
+    // Da chiamare con il lock
+    private RecordingInfo snapshot() {
+        RecordingInfo info = new RecordingInfo();
+        info.name = currentInfo.name;
+        info.settings = currentInfo.settings;
+        info.reason = currentInfo.reason;
+        info.durationSeconds = currentInfo.durationSeconds;
+        info.startedAt = currentInfo.startedAt;
+        info.status = isRunning() ? RecordingInfo.Status.RUNNING : RecordingInfo.Status.COMPLETED;
+        info.sizeBytes = info.status == RecordingInfo.Status.COMPLETED ? size(directory().resolve(info.name)) : 0;
+        return info;
+    }
+
+    private Path directory() {
+        return Paths.get(directory);
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package it.coderit.banktestapp.service;
 
+import java.util.List;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.instrumentation.annotations.WithSpan;
 import it.coderit.banktestapp.model.Transaction;
 import it.coderit.banktestapp.model.CenterType;
 import it.coderit.banktestapp.model.ClassificationRule;
 import it.coderit.banktestapp.repository.ClassificationRuleRepository;
+import it.coderit.banktestapp.repository.ClassificationRuleRepository.RuleSet;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
@@ -18,27 +24,63 @@ public class RuleEngineService {
     @Inject
     ClassificationRuleRepository regolaClassificazioneRepository;
 
+    @Inject
+    MeterRegistry registry;
+
+
+    /**
+     * Classifica un blocco di transazioni (una pagina scaricata) in un unico span "classification.batch".
+     *
+     * @return quante transazioni sono state assegnate a un centro diverso da UNDEFINED.
+     */
+    @WithSpan("classification.batch")
+    @Transactional
+    public int classifyBatch(List<Transaction> transactions) {
+        // Regole lette (o validate in memoria) una sola volta per tutto il blocco
+        RuleSet rules = regolaClassificazioneRepository.rules();
+        int classified = 0;
+        for (Transaction transaction : transactions) {
+            classify(transaction, rules);
+            if (transaction.getCenterType() != null && transaction.getCenterType() != CenterType.UNDEFINED) {
+                classified++;
+            }
+        }
+        Span.current().setAttribute("classification.batch.size", transactions.size());
+        Span.current().setAttribute("classification.batch.classified", classified);
+        return classified;
+    }
 
+    // Niente log INFO per transazione: l'esito finisce nel contatore classification.transactions (tag result)
     @Transactional
     public void classifyTransaction(Transaction transaction) {
-        log.info("Tentativo di classificare la transazione con ID: {}", transaction.getTransactionId());
+        classify(transaction, regolaClassificazioneRepository.rules());
+    }
+
+    private void classify(Transaction transaction, RuleSet rules) {
+        log.debug("Tentativo di classificare la transazione con ID: {}", transaction.getTransactionId());
 
         if(Boolean.TRUE.equals(transaction.getIsManuallyClassified())) {
             log.debug("Transazione {} classificata manualmente.Salta la classificazione automatica!", transaction.getTransactionId());
+            count("manual");
             return;
         }
-        regolaClassificazioneRepository.findCenterByKeyword(transaction)
+        regolaClassificazioneRepository.findCenterByKeyword(transaction, rules)
         .ifPresentOrElse(
             //se una regola matcha il centerType allora la assegna ad un centro
             matchedCenterType -> {
                 transaction.setCenterType(matchedCenterType);
-                log.info("Transazione ID: {} classificata come: {}", transaction.getTransactionId());
+                log.debug("Transazione ID: {} classificata come: {}", transaction.getTransactionId(), matchedCenterType);
             },
             //se nessuna regola matcha il centerType allora laassegna ad UNDEFINED
             () -> {
                 transaction.setCenterType(CenterType.UNDEFINED);
             }
         );
+        count(transaction.getCenterType().name());
+    }
+
+    private void count(String result) {
+        registry.counter("classification.transactions", "result", result).increment();
     }
 
 }
@@ -0,0 +1,30 @@
+package it.coderit.banktestapp.service;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.opentelemetry.exporter.logging.otlp.OtlpJsonLoggingSpanExporter;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+
+/**
+ * Esportazione delle tracce su file per l'analisi offline, in aggiunta (o in alternativa) al collector OTLP.
+ * Gli span vengono scritti in JSON OTLP sul logger io.opentelemetry.exporter.logging.otlp, che
+ * application.properties indirizza su un file dedicato (tracing.file.path).
+ */
+@Singleton
+public class TracingConfiguration {
+
+    @ConfigProperty(name = "tracing.file.enabled", defaultValue = "false")
+    boolean fileEnabled;
+
+    @Produces
+    @Singleton
+    SpanProcessor fileSpanProcessor() {
+        if (!fileEnabled) {
+            return SpanProcessor.composite();
+        }
+        return BatchSpanProcessor.builder(OtlpJsonLoggingSpanExporter.create()).build();
+    }
+}
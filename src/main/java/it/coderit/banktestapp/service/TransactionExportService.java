@@ -0,0 +1,147 @@
+package it.coderit.banktestapp.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.agroal.api.AgroalDataSource;
+import it.coderit.banktestapp.controller.RequestPhaseTimer;
+import it.coderit.banktestapp.model.CenterType;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Export CSV delle transazioni in streaming.
+ * Legge le righe con un cursore lato server (JDBC con fetch size, autocommit disattivato)
+ * e le scrive subito nello stream di risposta: la memoria usata non dipende dal numero di righe.
+ * Le conversioni (date ISO, booleani) sono fatte in SQL, così Java copia solo stringhe.
+ * Il cursore JDBC non passa da Hibernate: il tempo di executeQuery e dei fetch viene sommato
+ * a mano alla fase query di RequestPhaseTimer.
+ */
+@ApplicationScoped
+public class TransactionExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionExportService.class);
+
+    private static final String[] HEADER = {
+            "transactionId", "accountId", "bookingDate", "valueDate", "amount", "currency",
+            "remittanceInformation", "creditorName", "debtorName", "bankTransactionCode",
+            "proprietaryBankTransactionCode", "additionalInformation", "centerType", "isManuallyClassified"
+    };
+
+    private static final String SELECT_SQL = """
+            SELECT transaction_id,
+                   account_id,
+                   to_char(booking_date AT TIME ZONE 'UTC', 'YYYY-MM-DD"T"HH24:MI:SS"Z"'),
+                   to_char(value_date AT TIME ZONE 'UTC', 'YYYY-MM-DD"T"HH24:MI:SS"Z"'),
+                   amount,
+                   currency,
+                   remittance_information,
+                   creditor_name,
+                   debtor_name,
+                   bank_transaction_code,
+                   proprietary_bank_transaction_code,
+                   additional_information,
+                   center_type,
+                   CASE WHEN is_manually_classified THEN 'true' ELSE 'false' END
+            FROM transaction
+            WHERE account_id = ?
+            """;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    @ConfigProperty(name = "transaction.export.fetch-size", defaultValue = "2000")
+    int fetchSize;
+
+    @ConfigProperty(name = "transaction.export.csv-separator", defaultValue = ";")
+    String csvSeparator;
+
+    /**
+     * Scrive in formato CSV le transazioni dell'account che rispettano i filtri.
+     *
+     * @param accountId L'ID dell'account.
+     * @param fromDate La data di inizio (inclusa), oppure null.
+     * @param toDate La data di fine (inclusa), oppure null.
+     * @param centerType Il CenterType da filtrare, oppure null.
+     * @param outputStream Lo stream su cui scrivere il CSV.
+     * @return Il numero di righe esportate.
+     */
+    public long exportCsv(String accountId, LocalDate fromDate, LocalDate toDate, CenterType centerType,
+            OutputStream outputStream) throws IOException {
+        StringBuilder sql = new StringBuilder(SELECT_SQL);
+        if (fromDate != null && toDate != null) {
+            sql.append(" AND booking_date >= ? AND booking_date < ?");
+        }
+        if (centerType != null) {
+            sql.append(" AND center_type = ?");
+        }
+        sql.append(" ORDER BY booking_date, id");
+
+        long start = System.nanoTime();
+        long rows = 0;
+        long jdbcNanos = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+        CsvRowFormatter formatter = new CsvRowFormatter(csvSeparator.charAt(0), HEADER.length);
+
+        try (Connection connection = dataSource.getConnection()) {
+            // Il driver PostgreSQL usa un cursore (fetch a blocchi) solo fuori da autocommit
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(fetchSize);
+                int index = 1;
+                statement.setString(index++, accountId);
+                if (fromDate != null && toDate != null) {
+                    statement.setObject(index++, fromDate.atStartOfDay().atOffset(ZoneOffset.UTC));
+                    statement.setObject(index++, toDate.plusDays(1).atStartOfDay().atOffset(ZoneOffset.UTC));
+                }
+                if (centerType != null) {
+                    statement.setString(index++, centerType.name());
+                }
+
+                formatter.writeHeader(HEADER, writer);
+                long jdbcStart = System.nanoTime();
+                try (ResultSet rs = statement.executeQuery()) {
+                    jdbcNanos += System.nanoTime() - jdbcStart;
+                    // next() scarica dal server un blocco di fetchSize righe quando il precedente è esaurito
+                    jdbcStart = System.nanoTime();
+                    while (rs.next()) {
+                        jdbcNanos += System.nanoTime() - jdbcStart;
+                        formatter.writeRow(rs, writer);
+                        rows++;
+                        jdbcStart = System.nanoTime();
+                    }
+                    jdbcNanos += System.nanoTime() - jdbcStart;
+                }
+            } finally {
+                RequestPhaseTimer.addJdbcNanos(jdbcNanos);
+                connection.rollback();
+                connection.setReadOnly(false);
+                connection.setAutoCommit(true);
+            }
+            writer.flush();
+        } catch (SQLException e) {
+            log.error("Errore durante l'export CSV per account {}: {}", accountId, e.getMessage(), e);
+            throw new IOException("Errore durante l'export CSV: " + e.getMessage(), e);
+        }
+
+        log.info("Export CSV completato per account {}: {} righe in {} ms.", accountId, rows,
+                (System.nanoTime() - start) / 1_000_000);
+        return rows;
+    }
+}
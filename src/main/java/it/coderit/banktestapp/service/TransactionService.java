@@ -7,9 +7,18 @@ import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import java.util.Base64; 
 
@@ -21,24 +30,42 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import it.coderit.banktestapp.CBISimulation.CbiTokenManager;
 import it.coderit.banktestapp.CBISimulation.CredemAccountService;
 import it.coderit.banktestapp.CBISimulation.MockCbiAuthService;
+import it.coderit.banktestapp.dto.BulkClassificationRequest;
+import it.coderit.banktestapp.dto.BulkClassificationResult;
 import it.coderit.banktestapp.dto.CredemAccountResponse;
 import it.coderit.banktestapp.dto.CredemTransactionResponse;
 import it.coderit.banktestapp.dto.CredemTransactionResponse.TransactionData;
 import it.coderit.banktestapp.dto.CredemSingleAccountResponse;
 import it.coderit.banktestapp.dto.CredemBalancesResponse;
+import it.coderit.banktestapp.dto.TransactionSearchPage;
+import it.coderit.banktestapp.dto.TransactionView;
+import it.coderit.banktestapp.model.AccountSyncMarker;
 import it.coderit.banktestapp.model.Transaction;
 import it.coderit.banktestapp.model.CenterType;
+import it.coderit.banktestapp.model.IngestionRun;
 
+import it.coderit.banktestapp.repository.AccountSyncMarkerRepository;
+import it.coderit.banktestapp.repository.DataVersionRepository;
 import it.coderit.banktestapp.repository.TransactionRepository;
+import it.coderit.banktestapp.repository.TransactionRepository.FilterClassification;
 import it.coderit.banktestapp.repository.ClassificationRuleRepository;
+import it.coderit.banktestapp.repository.SyncCheckpointRepository;
 import it.coderit.banktestapp.rest.CredemClient;
+import it.coderit.banktestapp.rest.CredemResilience;
+import it.coderit.banktestapp.service.CoverageService.DateRange;
+import it.coderit.banktestapp.service.IngestionMetrics.RowCounts;
+import it.coderit.banktestapp.service.IngestionMetrics.Run;
+import it.coderit.banktestapp.service.IngestionMetrics.Stage;
+import it.coderit.banktestapp.service.PageFingerprintCache.PageKey;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 
 import io.quarkus.panache.common.Parameters;
+import org.hibernate.jpa.HibernateHints;
 
 
 @ApplicationScoped
@@ -54,6 +81,9 @@ public class TransactionService {
     @Inject
     TransactionRepository transactionRepo;
 
+    @Inject
+    DataVersionRepository dataVersionRepository;
+
     @Inject
     RuleEngineService ruleEngineService;
 
@@ -63,13 +93,40 @@ public class TransactionService {
     @Inject
     MockCbiAuthService mockCbiAuthService; 
 
+    @Inject
+    CbiTokenManager cbiTokenManager;
+
     @Inject
     CredemAccountService credemAccountService;
 
+    @Inject
+    CredemResilience credemResilience;
+
+    @Inject
+    SyncCheckpointRepository syncCheckpointRepository;
+
+    @Inject
+    PageSizeTuner pageSizeTuner;
+
+    @Inject
+    AccountSyncMarkerRepository accountSyncMarkerRepository;
+
+    @Inject
+    PageFingerprintCache pageFingerprintCache;
+
+    @Inject
+    CoverageService coverageService;
+
+    @Inject
+    IngestionMetrics ingestionMetrics;
+
     private static final Logger log = LoggerFactory.getLogger(TransactionService.class);
     private static final DateTimeFormatter ISO_FORMATTER = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
     private static final DateTimeFormatter HTTP_DATE_FORMATTER = DateTimeFormatter.RFC_1123_DATE_TIME;
 
+    // Numero massimo di transazioni per richiesta di classificazione massiva e di esiti restituiti
+    public static final int MAX_BULK_ITEMS = 5000;
+
     // --- HEADER E VALORI MOCKATI ---
     // Questi valori saranno usati per le chiamate al CredemClient
     private static final String MOCK_DIGEST = "SHA-256=MOCK_DIGEST_VALUE";
@@ -94,6 +151,12 @@ public class TransactionService {
     @ConfigProperty(name = "cbi.consent-mock-id")
     String mockConsentId;
 
+    @ConfigProperty(name = "sync.skip-if-unchanged", defaultValue = "true")
+    boolean skipIfUnchanged;
+
+    @ConfigProperty(name = "transaction.query.fetch-size", defaultValue = "500")
+    int queryFetchSize;
+
     // --- Metodi di Business Logic ---
 
     /**
@@ -105,33 +168,108 @@ public class TransactionService {
      * @param accountId L'ID dell'account per cui scaricare i movimenti.
      * @param from La data di inizio del periodo di scaricamento (formato YYYY-MM-DD).
      * @param to La data di fine del periodo di scaricamento (formato YYYY-MM-DD).
+     *
+     * Vengono scaricate solo le parti dell'intervallo non ancora coperte (CoverageService) più la
+     * finestra recente ancora modificabile.
+     * Ogni pagina viene salvata in una transazione propria insieme al checkpoint dell'offset:
+     * se lo scaricamento si interrompe (errori oltre i retry, circuit breaker aperto, riavvio),
+     * l'esecuzione successiva sulla stessa finestra riparte dalla prima pagina non salvata.
+     *
+     * @return l'esito dell'esecuzione: FAILED se lo scaricamento si è interrotto (le pagine fallite non
+     * generano eccezioni), SKIPPED se non c'era nulla da scaricare.
      */
-    @Transactional
-    public void downloadAndSave(String accountId, String from, String to) {
+    public IngestionRun.Status downloadAndSave(String accountId, String from, String to) {
         log.info("Inizio scaricamento e memorizzazione movimenti per accountId: {} da {} a {}.", accountId, from, to);
 
         if (loadFromFile) {
             log.info("Caricamento movimenti da file di test: {}", (Object) testDataFilenames);
             if (testDataFilenames == null || testDataFilenames.isEmpty()) {
                 log.warn("Nessun file di test specificato per il caricamento dei movimenti.");
-                return;
+                return IngestionRun.Status.SKIPPED;
             }
+            IngestionRun.Status fileStatus = IngestionRun.Status.COMPLETED;
             for (String filename : testDataFilenames) {
                 try {
                     loadFromFile(filename, accountId);
                 } catch (IOException e) {
                     log.error("Errore durante il caricamento del file {}: {}", (Object) filename, (Object) e.getMessage());
+                    fileStatus = IngestionRun.Status.FAILED;
                 }
             }
             log.info("Caricamento da file completato.");
-            return;
+            return fileStatus;
+        }
+
+        // Solo le parti non ancora coperte, più la finestra recente ancora modificabile
+        Run run = ingestionMetrics.start(accountId, MOCK_ASPSP_CODE, "blocking", LocalDate.parse(from), LocalDate.parse(to));
+        List<DateRange> plan = coverageService.plan(accountId, LocalDate.parse(from), LocalDate.parse(to));
+        if (plan.isEmpty()) {
+            log.info("Movimenti di accountId {} da {} a {} già scaricati: nulla da fare.", accountId, from, to);
+            ingestionMetrics.finish(run, IngestionRun.Status.SKIPPED);
+            return IngestionRun.Status.SKIPPED;
+        }
+
+        IngestionRun.Status status = IngestionRun.Status.SKIPPED;
+        String balanceMarker = null;
+        for (DateRange range : plan) {
+            int offset = resumeOffset(accountId, range.from(), range.to());
+            if (offset > 0) {
+                log.info("Ripresa scaricamento per accountId {} dal checkpoint con offset {}.", accountId, offset);
+            }
+
+            // Finestra recente: saldi prima dei movimenti, se lo stato non è cambiato dall'ultima sincronizzazione
+            // non c'è nulla da scaricare. Le parti storiche non coperte si scaricano comunque.
+            boolean mutable = coverageService.isMutable(range);
+            if (mutable && skipIfUnchanged) {
+                balanceMarker = currentBalanceMarker(accountId);
+                if (offset == 0 && isUnchanged(accountId, balanceMarker, range)) {
+                    log.info("Saldi invariati per accountId {} dall'ultima sincronizzazione: scaricamento di {} saltato.",
+                            accountId, range);
+                    continue;
+                }
+            }
+
+            PageFetchResult result = fetchPages(accountId, range.from().toString(), range.to().toString(), offset, true,
+                    run);
+            if (!result.completed()) {
+                status = IngestionRun.Status.FAILED;
+                break; // Il checkpoint resta: la prossima esecuzione riprende da qui
+            }
+            completeSync(accountId, range.from(), range.to(), mutable ? balanceMarker : null);
+            status = IngestionRun.Status.COMPLETED;
+            log.info("Scaricamento movimenti completato per {}.", range);
         }
+        pageSizeTuner.saveBest(MOCK_ASPSP_CODE);
+        ingestionMetrics.finish(run, status);
+        return status;
+    }
+
+    /**
+     * Scarica una singola finestra di date senza checkpoint dell'offset né controllo dei saldi.
+     * Usato dal backfill storico, che tiene traccia delle finestre completate e riprende a quel livello.
+     *
+     * @return le righe ricevute e se la finestra è stata scaricata per intero.
+     */
+    public PageFetchResult downloadWindow(String accountId, String from, String to) {
+        log.info("Scaricamento finestra per accountId {} da {} a {}.", accountId, from, to);
+        Run run = ingestionMetrics.start(accountId, MOCK_ASPSP_CODE, "backfill", LocalDate.parse(from), LocalDate.parse(to));
+        PageFetchResult result = fetchPages(accountId, from, to, 0, false, run);
+        pageSizeTuner.saveBest(MOCK_ASPSP_CODE);
+        ingestionMetrics.finish(run, result.completed() ? IngestionRun.Status.COMPLETED : IngestionRun.Status.FAILED);
+        return result;
+    }
 
-        int offset = 0;
-        int limit = 100;
+    // Scarica e salva le pagine a partire da startOffset; con checkpoint=true ogni pagina aggiorna sync_checkpoint
+    private PageFetchResult fetchPages(String accountId, String from, String to, int startOffset, boolean checkpoint,
+            Run run) {
+        LocalDate fromDate = LocalDate.parse(from);
+        LocalDate toDate = LocalDate.parse(to);
+        int offset = startOffset;
+        int rows = 0;
         boolean hasMore = true;
+        boolean completed = false;
 
-        String token = mockCbiAuthService.getAccessToken(); // Ottengo il token Bearer mockato
+        String token = cbiTokenManager.getAccessToken(); // Token Bearer TPP (in cache, rinnovato in background)
         String xRequestId = "req-" + UUID.randomUUID().toString();
         String dateHeader = OffsetDateTime.now(ZoneOffset.UTC).format(HTTP_DATE_FORMATTER);
         String psuAuthorization = mockCbiAuthService.getPsuAccessToken(psuId, mockConsentId);
@@ -139,8 +277,15 @@ public class TransactionService {
         while (hasMore) {
             log.info("Scaricamento pagina con offset: {}", (Object) offset);
 
+            int pageOffset = offset;
+            int limit = pageSizeTuner.pageSize(MOCK_ASPSP_CODE); // Dimensione di pagina adattiva per banca
             try {
-                CredemTransactionResponse response = credemClient.getTransactions(
+                // Retry con backoff sugli errori transitori, circuit breaker e rate limit per ASPSP
+                CredemTransactionResponse response = credemResilience.call(MOCK_ASPSP_CODE, mockConsentId,
+                        "getTransactions " + accountId + " offset " + pageOffset,
+                        () -> {
+                    long start = System.nanoTime();
+                    CredemTransactionResponse page = credemClient.getTransactions(
                         psuId,
                         token,
                         xRequestId,
@@ -156,21 +301,133 @@ public class TransactionService {
                         from,
                         to,
                         limit,
-                        offset);
-
+                        pageOffset);
+                    long elapsed = System.nanoTime() - start;
+                    pageSizeTuner.onPage(MOCK_ASPSP_CODE, limit, page != null && page.booked != null ? page.booked.size() : 0,
+                            elapsed);
+                    ingestionMetrics.recordStage(Stage.BANK_CALL, accountId, MOCK_ASPSP_CODE, elapsed);
+                    return page;
+                });
+
+                if (response != null) {
+                    ingestionMetrics.recordPage(run);
+                }
                 if (response != null && response.booked != null && !response.booked.isEmpty()) {
-                    saveTransactionsFromDTOList(response.booked, accountId);
+                    // Pagina identica a una già salvata di recente: niente mapping, classificazione e scrittura
+                    PageKey pageKey = new PageKey(accountId, from, to, offset, limit);
+                    String fingerprint = pageFingerprintCache.fingerprint(response.booked);
+                    if (pageFingerprintCache.isUnchanged(pageKey, fingerprint)) {
+                        log.info("Pagina con offset {} invariata dall'ultimo scaricamento: salvataggio saltato.", offset);
+                        RowCounts counts = RowCounts.unchangedPage(response.booked.size());
+                        ingestionMetrics.recordRows(accountId, MOCK_ASPSP_CODE, counts);
+                        run.add(counts);
+                    } else {
+                        RowCounts counts = checkpoint
+                                ? savePage(response.booked, accountId, fromDate, toDate, offset + limit)
+                                : saveTransactionsFromDTOList(response.booked, accountId);
+                        run.add(counts);
+                        pageFingerprintCache.remember(pageKey, fingerprint);
+                    }
+                    rows += response.booked.size();
                     offset += limit;
                     hasMore = response.booked.size() >= limit;
                 } else {
                     hasMore = false;
                 }
+                completed = !hasMore;
             } catch (Exception e) {
-                log.error("Errore durante la chiamata all'API Credem per offset {}: {}", (Object) offset, (Object) e.getMessage(), e);
+                log.error("Errore durante la chiamata all'API Credem per offset {}: {}. Lo scaricamento riprenderà da questo offset.",
+                        (Object) offset, (Object) e.getMessage(), e);
+                pageSizeTuner.onError(MOCK_ASPSP_CODE, limit);
+                run.fail(e.getMessage());
                 hasMore = false;
             }
         }
-        log.info("Scaricamento movimenti completato da {} a {}.", (Object) from, (Object) to);
+        return new PageFetchResult(rows, completed);
+    }
+
+    /**
+     * Esito dello scaricamento di una finestra: righe ricevute dalla banca e se tutte le pagine sono state scaricate.
+     */
+    public record PageFetchResult(int rows, boolean completed) {
+    }
+
+    /**
+     * Offset da cui riprendere lo scaricamento della finestra (0 se non c'è un checkpoint valido).
+     */
+    @Transactional
+    public int resumeOffset(String accountId, LocalDate from, LocalDate to) {
+        return syncCheckpointRepository.findResumeOffset(accountId, from, to);
+    }
+
+    /**
+     * Salva una pagina di movimenti e, nella stessa transazione, il checkpoint con l'offset
+     * della pagina successiva.
+     */
+    @Transactional
+    public RowCounts savePage(List<TransactionData> dtoList, String accountId, LocalDate from, LocalDate to, int nextOffset) {
+        RowCounts counts = saveTransactionsFromDTOList(dtoList, accountId);
+        syncCheckpointRepository.save(accountId, from, to, nextOffset);
+        return counts;
+    }
+
+    /**
+     * Scaricamento della finestra terminato: la prossima esecuzione riparte da offset 0, la finestra
+     * entra nella mappa di copertura e, se balanceMarker è valorizzato, viene salvato insieme alla finestra:
+     * le sincronizzazioni successive contenute in [from, to] vengono saltate finché i saldi non cambiano.
+     */
+    @Transactional
+    public void completeSync(String accountId, LocalDate from, LocalDate to, String balanceMarker) {
+        syncCheckpointRepository.clear(accountId);
+        coverageService.markCovered(accountId, from, to);
+        if (balanceMarker != null) {
+            accountSyncMarkerRepository.save(accountId, balanceMarker, from, to);
+        }
+    }
+
+    /**
+     * Marker dello stato dei saldi correnti dell'account (letti dalla banca, non dalla cache).
+     * @return null se i saldi non sono disponibili o non riportano né lastCommittedTransactionEntry né lastChangeDateTime.
+     */
+    public String currentBalanceMarker(String accountId) {
+        try {
+            return balanceMarker(credemAccountService.fetchFreshBalances(accountId));
+        } catch (Exception e) {
+            log.warn("Impossibile leggere i saldi dell'account {} prima della sincronizzazione: {}", accountId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * true se il marker dei saldi coincide con quello dell'ultima sincronizzazione completata
+     * e la finestra scaricata allora contiene range.
+     */
+    @Transactional
+    public boolean isUnchanged(String accountId, String balanceMarker, DateRange range) {
+        return balanceMarker != null
+                && canSkip(balanceMarker, accountSyncMarkerRepository.findById(accountId), range);
+    }
+
+    // Con la stessa finestra ma più giorni indietro (es. daysback da 1 a 3) i giorni nuovi vanno scaricati
+    static boolean canSkip(String balanceMarker, AccountSyncMarker stored, DateRange range) {
+        return balanceMarker != null && stored != null
+                && balanceMarker.equals(stored.balanceMarker)
+                && !range.from().isBefore(stored.syncedFrom)
+                && !range.to().isAfter(stored.syncedTo);
+    }
+
+    // Per ogni tipo di saldo: ultimo movimento contabilizzato e data dell'ultima modifica, in ordine stabile
+    static String balanceMarker(CredemBalancesResponse balances) {
+        if (balances == null || balances.balances == null) {
+            return null;
+        }
+        List<String> parts = balances.balances.stream()
+                .filter(balance -> balance.lastCommittedTransactionEntry != null || balance.lastChangeDateTime != null)
+                .map(balance -> balance.balanceType + "|" + balance.lastCommittedTransactionEntry + "|"
+                        + (balance.lastChangeDateTime != null ? balance.lastChangeDateTime.toInstant() : null))
+                .sorted()
+                .collect(Collectors.toList());
+        return parts.isEmpty() ? null : String.join(";", parts);
     }
 
     /**
@@ -178,17 +435,21 @@ public class TransactionService {
      * Applica la logica di classificazione e previene la persistenza di transazioni duplicate
      * basandosi sul transactionId.
      *
+     * Le tre fasi (mapping, classificazione, scrittura) vengono misurate separatamente
+     * e i conteggi finiscono nelle metriche ingestion.rows invece che in un log per riga.
+     *
      * @param dtoList La lista di DTO delle transazioni da salvare.
      * @param defaultAccountId L'ID dell'account da assegnare se il DTO non lo specifica.
+     * @return i conteggi delle righe mappate, classificate, inserite e già presenti.
      */
     @Transactional
-    public void saveTransactionsFromDTOList(List<TransactionData> dtoList, String defaultAccountId) {
-        log.info("Inizio salvataggio movimenti da lista. Transazioni da processare: {}",
-                (Object) (dtoList != null ? dtoList.size() : 0));
+    public RowCounts saveTransactionsFromDTOList(List<TransactionData> dtoList, String defaultAccountId) {
         if (dtoList == null || dtoList.isEmpty()) {
-            return;
+            return new RowCounts(0, 0, 0, 0);
         }
 
+        long start = System.nanoTime();
+        List<Transaction> transactions = new ArrayList<>(dtoList.size());
         for (TransactionData dto : dtoList) {
             Transaction transaction = fromDto(dto);
 
@@ -197,17 +458,37 @@ public class TransactionService {
                 log.warn("Transaction con transactionId {} non aveva accountId nel DTO, assegnato: {}",
                         (Object) transaction.getTransactionId(), (Object) defaultAccountId);
             }
+            transactions.add(transaction);
+        }
+        long mappedAt = System.nanoTime();
 
-            ruleEngineService.classifyTransaction(transaction);
+        int classified = ruleEngineService.classifyBatch(transactions);
+        long classifiedAt = System.nanoTime();
 
+        int inserted = 0;
+        Set<String> changedAccounts = new HashSet<>();
+        for (Transaction transaction : transactions) {
             if (transactionRepo.find("transactionId", transaction.getTransactionId()).firstResultOptional().isEmpty()) {
                 transactionRepo.persist(transaction);
-                log.debug("Persistito transaction con ID transazione: {}", (Object) transaction.getTransactionId());
-            } else {
-                log.debug("Transaction già presente con ID transazione: {}", (Object) transaction.getTransactionId());
+                changedAccounts.add(transaction.getAccountId());
+                inserted++;
             }
         }
-        log.info("Salvataggio movimenti completato.");
+        // Nuove transazioni: invalida gli ETag delle GET e dettagli/saldi in cache degli account coinvolti
+        for (String accountId : changedAccounts) {
+            dataVersionRepository.bumpAccount(accountId);
+            credemAccountService.invalidateAccount(accountId);
+        }
+        long writtenAt = System.nanoTime();
+
+        ingestionMetrics.recordStage(Stage.MAPPING, defaultAccountId, MOCK_ASPSP_CODE, mappedAt - start);
+        ingestionMetrics.recordStage(Stage.CLASSIFICATION, defaultAccountId, MOCK_ASPSP_CODE, classifiedAt - mappedAt);
+        ingestionMetrics.recordStage(Stage.DB_WRITE, defaultAccountId, MOCK_ASPSP_CODE, writtenAt - classifiedAt);
+        RowCounts counts = new RowCounts(transactions.size(), classified, inserted, transactions.size() - inserted);
+        ingestionMetrics.recordRows(defaultAccountId, MOCK_ASPSP_CODE, counts);
+        log.info("Salvataggio movimenti completato: {} ricevuti, {} nuovi, {} già presenti, {} classificati.",
+                counts.mapped(), counts.inserted(), counts.duplicates(), counts.classified());
+        return counts;
     }
 
     /**
@@ -217,7 +498,7 @@ public class TransactionService {
      * @param dto Il DTO della transazione da convertire.
      * @return L'entità Transaction popolata con i dati del DTO.
      */
-    private Transaction fromDto(TransactionData dto) {
+    Transaction fromDto(TransactionData dto) {
         Transaction transaction = new Transaction();
         transaction.setTransactionId(dto.transactionId);
 
@@ -252,39 +533,183 @@ public class TransactionService {
      * @param fromDate La data di inizio del periodo di ricerca (inclusa).
      * @param toDate La data di fine del periodo di ricerca (esclusa).
      * @param centerType Il tipo di centro di costo/ricavo per filtrare le transazioni.
-     * @return Una lista di transazioni che corrispondono ai criteri di ricerca.
+     * @return Una lista di proiezioni di sola lettura che corrispondono ai criteri di ricerca.
      */
-    public List<Transaction> searchTransactions(
+    public List<TransactionView> searchTransactions(
             String accountId,
             LocalDate fromDate,
             LocalDate toDate,
             CenterType centerType) {
 
-        StringBuilder queryBuilder = new StringBuilder("accountId = :accountId");
-        Parameters parameters = Parameters.with("accountId", accountId);
+        TransactionFilter filter = buildFilter(accountId, fromDate, toDate, centerType);
+
+        // Proiezione diretta sul read model: le righe non entrano nel persistence context
+        return transactionRepo.find(filter.query(), filter.parameters())
+                .project(TransactionView.class)
+                .withHint(HibernateHints.HINT_READ_ONLY, true)
+                .withHint(HibernateHints.HINT_FETCH_SIZE, queryFetchSize)
+                .list();
+    }
+
+    /**
+     * Classifica manualmente un insieme di transazioni indicate per transactionId.
+     * Le coppie vengono raggruppate per CenterType ed eseguita una sola UPDATE per gruppo,
+     * tutto nella stessa transazione. Se un transactionId compare più volte vale l'ultima coppia.
+     *
+     * @param items Le coppie (transactionId, centerType) da applicare.
+     * @return L'esito complessivo e il dettaglio per ogni transactionId.
+     */
+    @Transactional
+    public BulkClassificationResult bulkManualClassify(List<BulkClassificationRequest.Item> items) {
+        List<BulkClassificationResult.ItemResult> results = new ArrayList<>();
+        Map<String, CenterType> requested = new LinkedHashMap<>();
+        for (BulkClassificationRequest.Item item : items) {
+            if (item == null || item.transactionId == null || item.transactionId.isBlank()
+                    || item.centerType == null || item.centerType == CenterType.UNDEFINED) {
+                results.add(new BulkClassificationResult.ItemResult(item != null ? item.transactionId : null,
+                        item != null ? item.centerType : null, BulkClassificationResult.Status.INVALID));
+                continue;
+            }
+            requested.put(item.transactionId, item.centerType);
+        }
+        if (requested.isEmpty()) {
+            return new BulkClassificationResult(0, results);
+        }
 
-        OffsetDateTime fromOffsetDateTime = null;
-        OffsetDateTime toOffsetDateTime = null;
+        Set<String> existing = new HashSet<>(transactionRepo.findExistingTransactionIds(requested.keySet()));
 
-        if (fromDate != null) {
-            fromOffsetDateTime = fromDate.atStartOfDay().atOffset(ZoneOffset.UTC);
+        Map<CenterType, List<String>> idsByCenterType = new EnumMap<>(CenterType.class);
+        requested.forEach((transactionId, centerType) -> {
+            if (existing.contains(transactionId)) {
+                idsByCenterType.computeIfAbsent(centerType, k -> new ArrayList<>()).add(transactionId);
+                results.add(new BulkClassificationResult.ItemResult(transactionId, centerType,
+                        BulkClassificationResult.Status.CLASSIFIED));
+            } else {
+                results.add(new BulkClassificationResult.ItemResult(transactionId, centerType,
+                        BulkClassificationResult.Status.NOT_FOUND));
+            }
+        });
+
+        int updated = 0;
+        for (Map.Entry<CenterType, List<String>> entry : idsByCenterType.entrySet()) {
+            updated += transactionRepo.markManuallyClassified(entry.getKey(), entry.getValue());
+        }
+        if (updated > 0) {
+            transactionRepo.findAccountIds(existing).forEach(dataVersionRepository::bumpAccount);
+        }
+        log.info("Classificazione manuale massiva completata: {} transazioni aggiornate su {} richieste.",
+                updated, items.size());
+        return new BulkClassificationResult(updated, results);
+    }
+
+    /**
+     * Classifica manualmente tutte le transazioni di un account che rispettano il filtro,
+     * con un'unica UPDATE set-based che restituisce i transactionId aggiornati.
+     * Le transazioni già classificate manualmente non vengono toccate: per cambiarne la classificazione
+     * vanno indicate per transactionId.
+     *
+     * @param accountId L'ID dell'account.
+     * @param filter Il filtro (date, CenterType attuale, keyword) che seleziona le transazioni.
+     * @param newCenterType Il CenterType da assegnare.
+     * @return Il numero di transazioni aggiornate e il dettaglio dei primi MAX_BULK_ITEMS transactionId.
+     */
+    @Transactional
+    public BulkClassificationResult bulkManualClassifyByFilter(String accountId, BulkClassificationRequest.Filter filter,
+            CenterType newCenterType) {
+        // La data 'to' è inclusa: il limite superiore è l'inizio del giorno successivo
+        OffsetDateTime fromBookingDate = null;
+        OffsetDateTime toBookingDate = null;
+        if (filter.from != null && filter.to != null) {
+            fromBookingDate = filter.from.atStartOfDay().atOffset(ZoneOffset.UTC);
+            toBookingDate = filter.to.plusDays(1).atStartOfDay().atOffset(ZoneOffset.UTC);
         }
-        if (toDate != null) {
-            toDate = toDate.plusDays(1);
-            toOffsetDateTime = toDate.atStartOfDay().atOffset(ZoneOffset.UTC);
+        String keyword = filter.keyword != null && !filter.keyword.isBlank() ? filter.keyword.trim() : null;
+
+        FilterClassification classification = transactionRepo.classifyByFilter(accountId, fromBookingDate,
+                toBookingDate, filter.centerType, keyword, newCenterType, MAX_BULK_ITEMS);
+        if (classification.updated() == 0) {
+            return new BulkClassificationResult(0, List.of());
         }
 
-        if (fromOffsetDateTime != null && toOffsetDateTime != null) {
+        dataVersionRepository.bumpAccount(accountId);
+        log.info("Classificazione manuale massiva per filtro su account {}: {} transazioni classificate come {}.",
+                accountId, classification.updated(), newCenterType);
+
+        List<BulkClassificationResult.ItemResult> results = classification.transactionIds().stream()
+                .map(id -> new BulkClassificationResult.ItemResult(id, newCenterType,
+                        BulkClassificationResult.Status.CLASSIFIED))
+                .toList();
+        return new BulkClassificationResult(classification.updated(), results);
+    }
+
+    // Condizione Panache (con parametri nominali) sui filtri comuni account/date/CenterType.
+    // La data 'to' è inclusa: il limite superiore è l'inizio del giorno successivo.
+    private TransactionFilter buildFilter(String accountId, LocalDate fromDate, LocalDate toDate, CenterType centerType) {
+        StringBuilder queryBuilder = new StringBuilder("accountId = :accountId");
+        Parameters parameters = Parameters.with("accountId", accountId);
+
+        if (fromDate != null && toDate != null) {
             queryBuilder.append(" and bookingDate >= :fromBookingDate AND bookingDate < :toBookingDate");
-            parameters.and("fromBookingDate", fromOffsetDateTime).and("toBookingDate", toOffsetDateTime);
+            parameters.and("fromBookingDate", fromDate.atStartOfDay().atOffset(ZoneOffset.UTC))
+                    .and("toBookingDate", toDate.plusDays(1).atStartOfDay().atOffset(ZoneOffset.UTC));
         }
 
         if (centerType != null) {
             queryBuilder.append(" and centerType = :centerType");
             parameters.and("centerType", centerType);
         }
+        return new TransactionFilter(queryBuilder.toString(), parameters);
+    }
+
+    private record TransactionFilter(String query, Parameters parameters) {
+    }
 
-        return transactionRepo.find(queryBuilder.toString(), parameters).list();
+    /**
+     * Ricerca testuale sulle transazioni di un account (causale, controparti, informazioni aggiuntive),
+     * con risultati ordinati per rilevanza e paginazione keyset.
+     *
+     * @param accountId L'ID dell'account su cui cercare.
+     * @param text Il testo da cercare.
+     * @param limit Il numero massimo di risultati della pagina.
+     * @param cursor Il cursore restituito dalla pagina precedente, oppure null per la prima pagina.
+     * @return La pagina di risultati con l'eventuale cursore per la pagina successiva.
+     * @throws IllegalArgumentException se il cursore non è valido.
+     */
+    public TransactionSearchPage searchFullText(String accountId, String text, int limit, String cursor) {
+        Float afterRank = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+                afterRank = Float.valueOf(parts[0]);
+                afterId = Long.valueOf(parts[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursore di paginazione non valido: " + cursor, e);
+            }
+        }
+
+        List<Object[]> ranked = transactionRepo.searchRankedIds(accountId, text, afterRank, afterId, limit);
+        if (ranked.isEmpty()) {
+            return new TransactionSearchPage(List.of(), null);
+        }
+
+        List<Long> ids = ranked.stream().map(row -> ((Number) row[0]).longValue()).toList();
+        Map<Long, TransactionView> viewsById = transactionRepo.find("id in ?1", ids)
+                .project(TransactionView.class)
+                .withHint(HibernateHints.HINT_READ_ONLY, true)
+                .stream()
+                .collect(Collectors.toMap(TransactionView::id, Function.identity()));
+        // Mantiene l'ordine per rilevanza restituito dalla query di ranking
+        List<TransactionView> items = ids.stream().map(viewsById::get).filter(Objects::nonNull).toList();
+
+        String nextCursor = null;
+        if (ranked.size() == limit) {
+            Object[] last = ranked.get(ranked.size() - 1);
+            String lastKey = ((Number) last[1]).floatValue() + ":" + ((Number) last[0]).longValue();
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(lastKey.getBytes(StandardCharsets.UTF_8));
+        }
+        log.debug("Ricerca '{}' su account {}: {} risultati.", text, accountId, items.size());
+        return new TransactionSearchPage(items, nextCursor);
     }
 
     
@@ -0,0 +1,37 @@
+package it.coderit.banktestapp.service;
+
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Readiness (/q/health/ready): DOWN finché il warm-up è in corso, UP a warm-up concluso (o disabilitato,
+ * o fallito: l'errore è riportato in lastError) con la durata complessiva e per fase.
+ */
+@Readiness
+@ApplicationScoped
+public class WarmupHealthCheck implements HealthCheck {
+
+    @Inject
+    WarmupService warmupService;
+
+    @Override
+    public HealthCheckResponse call() {
+        HealthCheckResponseBuilder response = HealthCheckResponse.named("warm-up")
+                .status(warmupService.isReady())
+                .withData("state", warmupService.state().name().toLowerCase());
+        WarmupService.Report report = warmupService.report();
+        if (report != null) {
+            response.withData("durationMs", report.durationMs());
+            report.stepsMs().forEach((step, millis) -> response.withData(step + "Ms", millis));
+        }
+        if (warmupService.lastError() != null) {
+            response.withData("lastError", warmupService.lastError());
+        }
+        return response.build();
+    }
+}
@@ -0,0 +1,200 @@
+package it.coderit.banktestapp.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import it.coderit.banktestapp.CBISimulation.SyntheticTransactionGenerator;
+import it.coderit.banktestapp.dto.CredemTransactionResponse.TransactionData;
+import it.coderit.banktestapp.model.CenterType;
+import it.coderit.banktestapp.model.Transaction;
+import it.coderit.banktestapp.repository.ClassificationRuleRepository;
+import it.coderit.banktestapp.repository.ClassificationRuleRepository.RuleSet;
+import it.coderit.banktestapp.repository.DataVersionRepository;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptor;
+
+/**
+ * Riscaldamento all'avvio, prima che l'istanza si dichiari ready (WarmupHealthCheck):
+ * <ol>
+ * <li>carica in memoria le regole di classificazione;</li>
+ * <li>esegue più volte le query di ricerca, così il driver passa ai prepared statement lato server
+ * (dopo prepareThreshold=5 esecuzioni) e il piano è già pronto alla prima richiesta vera;</li>
+ * <li>classifica un blocco di movimenti sintetici in memoria, così il JIT compila mapping e matching.</li>
+ * </ol>
+ * Nulla viene scritto su DB e i movimenti sintetici non toccano le metriche di classificazione.
+ * La durata di ogni fase finisce nel log, nel timer warmup.duration (tag step) e nella readiness.
+ */
+@ApplicationScoped
+public class WarmupService {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmupService.class);
+
+    private static final String WARMUP_ACCOUNT = "WARMUP";
+
+    public enum State {
+        DISABLED, RUNNING, COMPLETED, FAILED
+    }
+
+    /**
+     * Esito del riscaldamento: durata complessiva e per fase, in millisecondi.
+     */
+    public record Report(long durationMs, Map<String, Long> stepsMs, int rules, int transactions, int classified) {
+    }
+
+    @Inject
+    ClassificationRuleRepository ruleRepository;
+
+    @Inject
+    DataVersionRepository dataVersionRepository;
+
+    @Inject
+    TransactionService transactionService;
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "warmup.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "warmup.query-iterations", defaultValue = "10")
+    int queryIterations;
+
+    @ConfigProperty(name = "warmup.classification-transactions", defaultValue = "2000")
+    int classificationTransactions;
+
+    @ConfigProperty(name = "warmup.classification-iterations", defaultValue = "5")
+    int classificationIterations;
+
+    private volatile State state = State.DISABLED;
+    private volatile Report report;
+    private volatile String lastError;
+
+    // Dopo RegoleInizialiLoader (priorità di default), così le regole di default sono già salvate
+    void onStart(@Observes @Priority(Interceptor.Priority.APPLICATION + 1000) StartupEvent event) {
+        if (!enabled) {
+            log.info("Warm-up disabilitato (warmup.enabled=false).");
+            return;
+        }
+        state = State.RUNNING;
+        Uni.createFrom().item(this::run)
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                // L'errore è già registrato da run() (log e readiness)
+                .subscribe().with(ignored -> { }, failure -> { });
+    }
+
+    /**
+     * Esegue il riscaldamento e ne registra l'esito; gli errori non bloccano l'avvio, l'istanza diventa comunque ready.
+     */
+    public Report run() {
+        state = State.RUNNING;
+        long start = System.nanoTime();
+        Map<String, Long> steps = new LinkedHashMap<>();
+        try {
+            RuleSet rules = step(steps, "rules", () -> QuarkusTransaction.requiringNew().call(ruleRepository::rules));
+            step(steps, "queries", () -> {
+                primeQueries();
+                return null;
+            });
+            int[] classified = step(steps, "classification", () -> classify(rules));
+
+            Report result = new Report(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), steps,
+                    rules.rules().size(), classified[0], classified[1]);
+            registry.timer("warmup.duration", "step", "total").record(result.durationMs(), TimeUnit.MILLISECONDS);
+            report = result;
+            state = State.COMPLETED;
+            log.info("Warm-up completato in {} ms (fasi {}): {} regole in memoria, {} movimenti sintetici, {} classificati.",
+                    result.durationMs(), steps, result.rules(), result.transactions(), result.classified());
+            return result;
+        } catch (RuntimeException e) {
+            lastError = e.getMessage();
+            state = State.FAILED;
+            log.error("Warm-up interrotto dopo {} ms: {}",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    private <T> T step(Map<String, Long> steps, String name, Supplier<T> body) {
+        Timer.Sample sample = Timer.start(registry);
+        long start = System.nanoTime();
+        T result = body.get();
+        steps.put(name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        sample.stop(registry.timer("warmup.duration", "step", name));
+        return result;
+    }
+
+    // Stesse query (e stessi parametri) delle GET su /transactions, in sola lettura
+    private void primeQueries() {
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusDays(30);
+        for (int i = 0; i < queryIterations; i++) {
+            QuarkusTransaction.requiringNew().run(() -> {
+                dataVersionRepository.stamp(DataVersionRepository.RULES_SCOPE);
+                transactionService.searchTransactions(WARMUP_ACCOUNT, from, to, null);
+                transactionService.searchTransactions(WARMUP_ACCOUNT, from, to, CenterType.COSTO);
+                transactionService.searchFullText(WARMUP_ACCOUNT, "acquisto", 20, null);
+            });
+        }
+    }
+
+    // Movimenti sintetici convertiti con lo stesso mapping dello scaricamento e classificati con le regole in memoria
+    private int[] classify(RuleSet rules) {
+        SyntheticTransactionGenerator generator = new SyntheticTransactionGenerator(42, 20,
+                List.of("Esselunga", "Coop", "Conad", "Enel Energia", "TIM", "Amazon", "Eni Station", "Trenitalia"),
+                35, 0.9, 0.05, 1500);
+        List<TransactionData> rows = new ArrayList<>(classificationTransactions);
+        LocalDate day = LocalDate.now();
+        while (rows.size() < classificationTransactions) {
+            rows.addAll(generator.day(WARMUP_ACCOUNT, day));
+            day = day.minusDays(1);
+        }
+        rows = rows.subList(0, classificationTransactions);
+
+        int classified = 0;
+        for (int i = 0; i < classificationIterations; i++) {
+            classified = 0;
+            for (TransactionData row : rows) {
+                Transaction transaction = transactionService.fromDto(row);
+                CenterType centerType = ruleRepository.findCenterByKeyword(transaction, rules).orElse(CenterType.UNDEFINED);
+                if (centerType != CenterType.UNDEFINED) {
+                    classified++;
+                }
+            }
+        }
+        return new int[] { rows.size(), classified };
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public Report report() {
+        return report;
+    }
+
+    public String lastError() {
+        return lastError;
+    }
+
+    public boolean isReady() {
+        return state != State.RUNNING;
+    }
+}
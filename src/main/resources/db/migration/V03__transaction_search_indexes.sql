@@ -0,0 +1,24 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Vettore full-text calcolato dal DB: causale e informazioni aggiuntive con la configurazione
+-- italiana (stemming), nomi delle controparti con la configurazione 'simple' (nessuno stemming).
+ALTER TABLE transaction
+ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('italian', coalesce(remittance_information, '')), 'A') ||
+    setweight(to_tsvector('simple', coalesce(creditor_name, '') || ' ' || coalesce(debtor_name, '')), 'B') ||
+    setweight(to_tsvector('italian', coalesce(additional_information, '')), 'C')
+) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_transaction_search_vector
+    ON transaction USING gin (search_vector);
+
+-- Indici trigram sui campi usati dal motore regole (classification.transaction-fields):
+-- rendono indicizzabili le ricerche ILIKE '%parola%'.
+CREATE INDEX IF NOT EXISTS idx_transaction_remittance_trgm
+    ON transaction USING gin (remittance_information gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_transaction_creditor_trgm
+    ON transaction USING gin (creditor_name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_transaction_debtor_trgm
+    ON transaction USING gin (debtor_name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_transaction_additional_info_trgm
+    ON transaction USING gin (additional_information gin_trgm_ops);
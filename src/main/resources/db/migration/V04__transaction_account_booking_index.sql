@@ -0,0 +1,4 @@
+-- Indice per le letture filtrate per account e data (GET /transactions, export CSV ordinato);
+-- copre anche le ricerche per solo account_id.
+CREATE INDEX IF NOT EXISTS idx_transaction_account_booking
+    ON transaction (account_id, booking_date, id);
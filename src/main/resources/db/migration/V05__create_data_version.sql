@@ -0,0 +1,11 @@
+-- Versioni dei dati per le GET condizionali (ETag / Last-Modified).
+-- scope: 'rules' per l'insieme delle regole, 'account:<accountId>' per le transazioni di un account.
+CREATE TABLE IF NOT EXISTS data_version (
+    scope VARCHAR(255) PRIMARY KEY,
+    version BIGINT NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+INSERT INTO data_version (scope, version, updated_at)
+VALUES ('rules', 1, now())
+ON CONFLICT (scope) DO NOTHING;
@@ -0,0 +1,11 @@
+-- Checkpoint dello scaricamento movimenti da Credem.
+-- Per ogni account: finestra di date in corso e offset della prossima pagina da scaricare.
+-- La riga viene cancellata quando lo scaricamento della finestra termina; se invece si interrompe,
+-- l'esecuzione successiva sulla stessa finestra riparte da next_offset.
+CREATE TABLE IF NOT EXISTS sync_checkpoint (
+    account_id VARCHAR(255) PRIMARY KEY,
+    from_date DATE NOT NULL,
+    to_date DATE NOT NULL,
+    next_offset INTEGER NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
@@ -0,0 +1,8 @@
+-- Dimensione di pagina migliore trovata per ogni banca (ASPSP) nello scaricamento movimenti,
+-- con la latenza media per riga misurata. Usata come punto di partenza alle esecuzioni successive.
+CREATE TABLE IF NOT EXISTS aspsp_page_size (
+    aspsp_code VARCHAR(255) PRIMARY KEY,
+    page_size INTEGER NOT NULL,
+    nanos_per_row DOUBLE PRECISION,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
@@ -0,0 +1,10 @@
+-- Stato dei saldi Credem (lastCommittedTransactionEntry / lastChangeDateTime) all'ultima
+-- sincronizzazione completata di ogni account, con la finestra modificabile scaricata in quella sincronizzazione:
+-- se i saldi non cambiano e la finestra richiesta è contenuta in quella, lo scaricamento movimenti viene saltato.
+CREATE TABLE IF NOT EXISTS account_sync_marker (
+    account_id VARCHAR(255) PRIMARY KEY,
+    balance_marker VARCHAR(2000) NOT NULL,
+    synced_from DATE NOT NULL,
+    synced_to DATE NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
@@ -0,0 +1,11 @@
+-- Finestre del backfill storico scaricate per intero, per account.
+-- Un backfill interrotto, rilanciato sullo stesso intervallo, salta le finestre già presenti.
+CREATE TABLE IF NOT EXISTS backfill_window (
+    id BIGSERIAL PRIMARY KEY,
+    account_id VARCHAR(255) NOT NULL,
+    from_date DATE NOT NULL,
+    to_date DATE NOT NULL,
+    row_count INTEGER NOT NULL,
+    completed_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_backfill_window UNIQUE (account_id, from_date, to_date)
+);
@@ -0,0 +1,12 @@
+-- Intervalli di date (estremi inclusi) i cui movimenti sono già stati scaricati per intero, per account.
+-- Gli intervalli di un account sono disgiunti e non adiacenti: ogni nuova finestra completata
+-- viene fusa con quelli esistenti.
+CREATE TABLE IF NOT EXISTS account_coverage (
+    id BIGSERIAL PRIMARY KEY,
+    account_id VARCHAR(255) NOT NULL,
+    from_date DATE NOT NULL,
+    to_date DATE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_account_coverage_account
+    ON account_coverage (account_id, from_date);
@@ -0,0 +1,23 @@
+-- Riepilogo di ogni esecuzione di scaricamento (bloccante, asincrona o finestra di backfill):
+-- pagine e righe lavorate, esito e durata. I dettagli di latenza sono nelle metriche Prometheus.
+CREATE TABLE IF NOT EXISTS ingestion_run (
+    id BIGSERIAL PRIMARY KEY,
+    account_id VARCHAR(255) NOT NULL,
+    aspsp_code VARCHAR(255) NOT NULL,
+    mode VARCHAR(20) NOT NULL,
+    from_date DATE NOT NULL,
+    to_date DATE NOT NULL,
+    started_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    finished_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    duration_ms BIGINT NOT NULL,
+    pages INTEGER NOT NULL,
+    rows_mapped INTEGER NOT NULL,
+    rows_classified INTEGER NOT NULL,
+    rows_inserted INTEGER NOT NULL,
+    rows_duplicate INTEGER NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    error_message TEXT
+);
+
+CREATE INDEX IF NOT EXISTS idx_ingestion_run_account_started
+    ON ingestion_run (account_id, started_at DESC);
@@ -0,0 +1,144 @@
+package it.coderit.banktestapp.CBISimulation;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+
+@QuarkusTest
+public class CbiTokenManagerTest {
+
+    @Inject
+    CbiTokenManager cbiTokenManager;
+
+    @Inject
+    MockCbiTokenResource mockCbiTokenResource;
+
+    @BeforeEach
+    void setUp() {
+        cbiTokenManager.invalidate();
+    }
+
+    // il token endpoint locale emette un token per il grant client_credentials
+    @Test
+    void tokenEndpoint_shouldIssueToken_whenClientCredentialsAreValid() {
+        given()
+                .contentType("application/x-www-form-urlencoded")
+                .formParam("grant_type", "client_credentials")
+                .formParam("client_id", "my-mock-client-id")
+                .formParam("client_secret", "my-mock-client-secret")
+                .when()
+                .post("/oauth/token")
+                .then()
+                .statusCode(200)
+                .body("access_token", notNullValue())
+                .body("token_type", is("Bearer"));
+    }
+
+    // il token endpoint locale rifiuta credenziali non valide
+    @Test
+    void tokenEndpoint_shouldReturnUnauthorized_whenClientSecretIsWrong() {
+        given()
+                .contentType("application/x-www-form-urlencoded")
+                .formParam("grant_type", "client_credentials")
+                .formParam("client_id", "my-mock-client-id")
+                .formParam("client_secret", "sbagliato")
+                .when()
+                .post("/oauth/token")
+                .then()
+                .statusCode(401);
+    }
+
+    // il token viene riusato finché è valido
+    @Test
+    void getAccessToken_shouldReuseCachedToken() {
+        String first = cbiTokenManager.getAccessToken();
+        int issuedAfterFirst = mockCbiTokenResource.getIssuedTokens();
+        String second = cbiTokenManager.getAccessToken();
+
+        assertTrue(first.startsWith("Bearer MOCK_CBI_TOKEN_"));
+        assertEquals(first, second);
+        assertEquals(issuedAfterFirst, mockCbiTokenResource.getIssuedTokens());
+    }
+
+    // richieste concorrenti senza token condividono un'unica chiamata al token endpoint
+    @Test
+    void getAccessToken_shouldCollapseConcurrentRefreshes() {
+        int issuedBefore = mockCbiTokenResource.getIssuedTokens();
+
+        List<CompletableFuture<String>> calls = IntStream.range(0, 20)
+                .mapToObj(i -> CompletableFuture.supplyAsync(cbiTokenManager::getAccessToken))
+                .toList();
+        List<String> tokens = calls.stream().map(CompletableFuture::join).distinct().toList();
+
+        assertEquals(1, tokens.size());
+        assertEquals(issuedBefore + 1, mockCbiTokenResource.getIssuedTokens());
+    }
+
+    // ogni rinnovo sostituisce quello pianificato in precedenza: una sola catena di refresh
+    @Test
+    void refresh_shouldKeepSingleScheduledRefresh() {
+        cbiTokenManager.refreshAsync().join();
+        ScheduledFuture<?> first = cbiTokenManager.scheduledRefresh();
+        cbiTokenManager.refreshAsync().join();
+        ScheduledFuture<?> second = cbiTokenManager.scheduledRefresh();
+
+        assertTrue(first.isCancelled());
+        assertFalse(second.isDone());
+    }
+
+    // dopo un errore il rinnovo viene ritentato con backoff, senza attendere una richiesta
+    @Test
+    void refresh_shouldRetryWithBackoffAfterFailure() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        CbiTokenManager manager = new CbiTokenManager();
+        manager.cbiAuthClient = (grantType, clientId, clientSecret) -> {
+            if (calls.incrementAndGet() <= 2) {
+                throw new IllegalStateException("token endpoint non disponibile");
+            }
+            return Map.of("access_token", "RETRY_TOKEN", "expires_in", 300);
+        };
+        manager.oauthEnabled = true;
+        manager.clientId = "my-mock-client-id";
+        manager.clientSecret = "my-mock-client-secret";
+        manager.refreshAhead = Duration.ofSeconds(60);
+        manager.defaultExpiresIn = Duration.ofMinutes(5);
+        manager.retryInitialBackoff = Duration.ofMillis(20);
+        manager.retryMaxBackoff = Duration.ofMillis(50);
+        manager.init();
+        try {
+            assertEquals(Duration.ofMillis(20), manager.retryBackoff(1));
+            assertEquals(Duration.ofMillis(40), manager.retryBackoff(2));
+            assertEquals(Duration.ofMillis(50), manager.retryBackoff(10));
+
+            assertThrows(CompletionException.class, () -> manager.refreshAsync().join());
+            for (int i = 0; i < 200 && calls.get() < 3; i++) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(3, calls.get());
+            assertEquals("Bearer RETRY_TOKEN", manager.getAccessToken());
+            assertEquals(3, calls.get());
+        } finally {
+            manager.shutdown();
+        }
+    }
+}
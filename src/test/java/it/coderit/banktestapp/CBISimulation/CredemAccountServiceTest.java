@@ -0,0 +1,159 @@
+package it.coderit.banktestapp.CBISimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import it.coderit.banktestapp.dto.CredemAccountResponse;
+import it.coderit.banktestapp.dto.CredemBalancesResponse;
+import it.coderit.banktestapp.rest.CredemClient;
+import it.coderit.banktestapp.rest.CredemRateLimiter;
+
+public class CredemAccountServiceTest {
+
+    private CredemClient credemClient;
+    private CredemAccountService service;
+    private final AtomicLong nanos = new AtomicLong();
+    private volatile boolean bankDown;
+
+    @BeforeEach
+    void setUp() {
+        // Ogni chiamata restituisce una nuova risposta, con una piccola latenza per sovrapporre le richieste concorrenti
+        credemClient = Mockito.mock(CredemClient.class, invocation -> {
+            Thread.sleep(20);
+            if (bankDown) {
+                throw new IllegalStateException("Banca non disponibile");
+            }
+            return switch (invocation.getMethod().getName()) {
+                case "getAccounts" -> new CredemAccountResponse();
+                case "getAccountBalances" -> new CredemBalancesResponse();
+                default -> null;
+            };
+        });
+
+        service = new CredemAccountService();
+        service.credemClient = credemClient;
+        service.cbiTokenManager = Mockito.mock(CbiTokenManager.class);
+        service.mockCbiAuthService = Mockito.mock(MockCbiAuthService.class);
+        service.credemRateLimiter = new CredemRateLimiter() {
+            @Override
+            public <T> T call(String aspspCode, String consentId, Supplier<T> call) {
+                return call.get();
+            }
+        };
+        service.psuId = "PSU";
+        service.mockConsentId = "consent";
+        service.accountsTtl = Duration.ofHours(1);
+        service.accountsRefreshAfter = Duration.ofMinutes(45);
+        service.detailsTtl = Duration.ofHours(1);
+        service.detailsRefreshAfter = Duration.ofMinutes(45);
+        service.balancesTtl = Duration.ofMinutes(5);
+        service.balancesRefreshAfter = Duration.ofMinutes(4);
+        service.cacheMaximumSize = 100;
+        service.ticker = nanos::get;
+        service.initCaches();
+    }
+
+    // chiamate alla banca per metodo e, se indicato, per account
+    private long calls(String method, String accountId) {
+        return Mockito.mockingDetails(credemClient).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals(method))
+                .filter(invocation -> accountId == null || accountId.equals(invocation.getArgument(0)))
+                .count();
+    }
+
+    // richieste concorrenti sulla stessa chiave condividono un solo caricamento; account diversi no
+    @Test
+    void getBalances_shouldLoadOncePerAccount() {
+        List<CompletableFuture<CredemBalancesResponse>> requests = IntStream.range(0, 10)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> service.getBalancesForSpecificAccount("IT001")))
+                .toList();
+        List<CredemBalancesResponse> responses = requests.stream().map(CompletableFuture::join).distinct().toList();
+
+        assertEquals(1, responses.size());
+        assertEquals(1, calls("getAccountBalances", "IT001"));
+
+        service.getBalancesForSpecificAccount("IT002");
+        service.getBalancesForSpecificAccount("IT002");
+        assertEquals(1, calls("getAccountBalances", "IT002"));
+    }
+
+    // la lista dei conti viene caricata una sola volta per PSU
+    @Test
+    void fetchAccounts_shouldLoadOnce() {
+        CredemAccountResponse first = service.fetchAccounts();
+
+        assertSame(first, service.fetchAccounts());
+        assertEquals(1, calls("getAccounts", null));
+    }
+
+    // dopo l'invalidazione di un account i suoi saldi vengono ricaricati, quelli degli altri account no
+    @Test
+    void invalidateAccount_shouldReloadOnlyThatAccount() {
+        service.getBalancesForSpecificAccount("IT001");
+        service.getBalancesForSpecificAccount("IT002");
+
+        service.invalidateAccount("IT001");
+        service.getBalancesForSpecificAccount("IT001");
+        service.getBalancesForSpecificAccount("IT002");
+
+        assertEquals(2, calls("getAccountBalances", "IT001"));
+        assertEquals(1, calls("getAccountBalances", "IT002"));
+    }
+
+    // i saldi freschi vengono sempre chiesti alla banca e sostituiscono quelli in cache
+    @Test
+    void fetchFreshBalances_shouldBypassAndUpdateCache() {
+        CredemBalancesResponse cached = service.getBalancesForSpecificAccount("IT001");
+
+        CredemBalancesResponse fresh = service.fetchFreshBalances("IT001");
+
+        assertNotSame(cached, fresh);
+        assertEquals(2, calls("getAccountBalances", "IT001"));
+        assertSame(fresh, service.getBalancesForSpecificAccount("IT001"));
+        assertEquals(2, calls("getAccountBalances", "IT001"));
+    }
+
+    // un errore della banca non viene messo in cache: il getter restituisce null e la chiamata successiva riprova
+    @Test
+    void getBalances_shouldReturnNullWithoutCachingFailure() {
+        // Caffeine toglie il future fallito in un callback del thread di caricamento: qui è lo stesso thread del test
+        service.cacheExecutor = Runnable::run;
+        service.initCaches();
+        bankDown = true;
+        assertNull(service.getBalancesForSpecificAccount("IT001"));
+
+        bankDown = false;
+        CredemBalancesResponse loaded = service.getBalancesForSpecificAccount("IT001");
+
+        assertSame(loaded, service.getBalancesForSpecificAccount("IT001"));
+        assertEquals(2, calls("getAccountBalances", "IT001"));
+    }
+
+    // se il refresh-ahead fallisce resta in cache il valore precedente, ancora valido fino al TTL
+    @Test
+    void getBalances_shouldKeepCachedValueWhenRefreshFails() {
+        service.cacheExecutor = Runnable::run;
+        service.initCaches();
+        CredemBalancesResponse cached = service.getBalancesForSpecificAccount("IT001");
+
+        bankDown = true;
+        nanos.addAndGet(Duration.ofMinutes(4).plusSeconds(1).toNanos());
+        assertSame(cached, service.getBalancesForSpecificAccount("IT001"));
+        assertEquals(2, calls("getAccountBalances", "IT001"));
+
+        assertSame(cached, service.getBalancesForSpecificAccount("IT001"));
+    }
+}
@@ -0,0 +1,76 @@
+package it.coderit.banktestapp.CBISimulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import it.coderit.banktestapp.dto.CredemTransactionResponse.TransactionData;
+
+public class SyntheticTransactionGeneratorTest {
+
+    private static final String ACCOUNT = "IT001000000000000000001";
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 1, 31);
+
+    private static SyntheticTransactionGenerator generator(long seed) {
+        return new SyntheticTransactionGenerator(seed, 10, List.of("Esselunga", "Coop", "Enel Energia"),
+                35, 0.9, 0.1, 1500);
+    }
+
+    private static List<String> ids(List<TransactionData> rows) {
+        return rows.stream().map(row -> row.transactionId).toList();
+    }
+
+    // stesso seed, stessi movimenti; seed diverso, movimenti diversi
+    @Test
+    void page_shouldBeDeterministicForSeed() {
+        List<TransactionData> first = generator(42).page(ACCOUNT, FROM, TO, 0, 50).booked;
+        List<TransactionData> second = generator(42).page(ACCOUNT, FROM, TO, 0, 50).booked;
+        List<TransactionData> other = generator(7).page(ACCOUNT, FROM, TO, 0, 50).booked;
+
+        assertEquals(ids(first), ids(second));
+        assertEquals(first.get(10).transactionAmount.amount, second.get(10).transactionAmount.amount);
+        assertNotEquals(first.stream().map(row -> row.transactionAmount.amount).toList(),
+                other.stream().map(row -> row.transactionAmount.amount).toList());
+    }
+
+    // le pagine lette con offset/limit ricompongono esattamente l'intero intervallo, senza buchi né duplicati
+    @Test
+    void page_shouldHonourOffsetAndLimit() {
+        SyntheticTransactionGenerator generator = generator(42);
+        int total = generator.count(ACCOUNT, FROM, TO);
+        List<String> all = ids(generator.page(ACCOUNT, FROM, TO, 0, Integer.MAX_VALUE).booked);
+
+        List<String> paged = new ArrayList<>();
+        for (int offset = 0; offset < total; offset += 37) {
+            List<TransactionData> page = generator.page(ACCOUNT, FROM, TO, offset, 37).booked;
+            assertTrue(page.size() <= 37);
+            paged.addAll(ids(page));
+        }
+
+        assertEquals(total, all.size());
+        assertEquals(all, paged);
+        assertTrue(generator.page(ACCOUNT, FROM, TO, total, 37).booked.isEmpty());
+    }
+
+    // solo movimenti con data di contabilizzazione nell'intervallo richiesto
+    @Test
+    void page_shouldFilterByBookingDate() {
+        LocalDate from = LocalDate.of(2024, 1, 10);
+        LocalDate to = LocalDate.of(2024, 1, 12);
+
+        List<TransactionData> rows = generator(42).page(ACCOUNT, from, to, 0, Integer.MAX_VALUE).booked;
+
+        assertTrue(rows.stream()
+                .map(row -> OffsetDateTime.parse(row.bookingDate).toLocalDate())
+                .allMatch(date -> !date.isBefore(from) && !date.isAfter(to)));
+        assertEquals(generator(42).count(ACCOUNT, from, to), rows.size());
+    }
+}
@@ -0,0 +1,161 @@
+package it.coderit.banktestapp.controller;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.junit.QuarkusTest;
+import it.coderit.banktestapp.dto.BackfillProgress;
+import it.coderit.banktestapp.service.BackfillService;
+
+@QuarkusTest
+public class BackfillControllerTest {
+
+        @InjectMock
+        BackfillService backfillService;
+
+        private static final String DEFAULT_TEST_ACCOUNT_ID = "IT001000000000000000001";
+        private static final String ADMIN_USERNAME = "admin";
+        private static final String ADMIN_PASSWORD = "adminpassword";
+        private static final String VALID_USERNAME = "user";
+        private static final String VALID_PASSWORD = "userpassword";
+
+        @BeforeEach
+        public void setUp() {
+                Mockito.reset(backfillService);
+        }
+
+        private BackfillProgress progress(String jobId) {
+                BackfillProgress progress = new BackfillProgress();
+                progress.jobId = jobId;
+                progress.accountId = DEFAULT_TEST_ACCOUNT_ID;
+                progress.status = BackfillProgress.Status.RUNNING;
+                progress.totalWindows = 12;
+                progress.skippedWindows = 3;
+                return progress;
+        }
+
+        // avvio del backfill con granularità mensile sull'account predefinito
+        @Test
+        void startBackfill_shouldReturnAccepted_whenParametersAreValid() {
+                when(backfillService.start(DEFAULT_TEST_ACCOUNT_ID, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31),
+                                BackfillService.Granularity.MONTH)).thenReturn(progress("job-1"));
+
+                given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .queryParam("from", "2024-01-01")
+                                .queryParam("to", "2024-12-31")
+                                .when()
+                                .post("/backfill")
+                                .then()
+                                .statusCode(202)
+                                .body("jobId", is("job-1"))
+                                .body("totalWindows", is(12))
+                                .body("skippedWindows", is(3));
+        }
+
+        // granularità non valida
+        @Test
+        void startBackfill_shouldReturnBadRequest_whenGranularityIsInvalid() {
+                given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .queryParam("from", "2024-01-01")
+                                .queryParam("to", "2024-12-31")
+                                .queryParam("granularity", "YEAR")
+                                .when()
+                                .post("/backfill")
+                                .then()
+                                .statusCode(400);
+
+                verify(backfillService, never()).start(anyString(), any(), any(), any());
+        }
+
+        // date mancanti o non valide
+        @Test
+        void startBackfill_shouldReturnBadRequest_whenDatesAreInvalid() {
+                given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .queryParam("from", "2024-13-01")
+                                .queryParam("to", "2024-12-31")
+                                .when()
+                                .post("/backfill")
+                                .then()
+                                .statusCode(400);
+
+                given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .queryParam("from", "2024-01-01")
+                                .when()
+                                .post("/backfill")
+                                .then()
+                                .statusCode(400);
+        }
+
+        // il caricamento da file non consente il backfill
+        @Test
+        void startBackfill_shouldReturnConflict_whenBackfillIsNotAvailable() {
+                when(backfillService.start(eq("IT999"), any(), any(), eq(BackfillService.Granularity.WEEK)))
+                                .thenThrow(new IllegalStateException("Backfill non disponibile"));
+
+                given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .queryParam("accountId", "IT999")
+                                .queryParam("from", "2024-01-01")
+                                .queryParam("to", "2024-01-31")
+                                .queryParam("granularity", "week")
+                                .when()
+                                .post("/backfill")
+                                .then()
+                                .statusCode(409);
+        }
+
+        // il backfill è riservato agli amministratori
+        @Test
+        void startBackfill_shouldReturnForbidden_whenUserIsNotAdmin() {
+                given()
+                                .auth().preemptive().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .queryParam("from", "2024-01-01")
+                                .queryParam("to", "2024-12-31")
+                                .when()
+                                .post("/backfill")
+                                .then()
+                                .statusCode(403);
+
+                verify(backfillService, never()).start(anyString(), any(), any(), any());
+        }
+
+        // avanzamento di un backfill esistente e inesistente
+        @Test
+        void getProgress_shouldReturnProgressOrNotFound() {
+                when(backfillService.progress("job-1")).thenReturn(Optional.of(progress("job-1")));
+                when(backfillService.progress("missing")).thenReturn(Optional.empty());
+
+                given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .when()
+                                .get("/backfill/job-1")
+                                .then()
+                                .statusCode(200)
+                                .body("status", is("RUNNING"));
+
+                given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .when()
+                                .get("/backfill/missing")
+                                .then()
+                                .statusCode(404);
+        }
+}
@@ -0,0 +1,81 @@
+package it.coderit.banktestapp.controller;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusIntegrationTest;
+
+/**
+ * Test sull'artefatto impacchettato: con mvn verify -Dnative gira contro l'eseguibile nativo e verifica
+ * ciò che dipende dalla configurazione di NativeImageConfiguration (risorse test-data, DTO Jackson,
+ * entity serializzate, JFR). Senza -Dnative: mvn verify -DskipITs=false, contro il jar.
+ * Usa il profilo prod, quindi il database di application.properties.
+ */
+@QuarkusIntegrationTest
+public class NativeApplicationIT {
+
+        private static final String ADMIN_USERNAME = "admin";
+        private static final String ADMIN_PASSWORD = "adminpassword";
+        private static final String VALID_USERNAME = "user";
+        private static final String VALID_PASSWORD = "userpassword";
+
+        // Il primo download (dai JSON di test-data/) e il warm-up girano in background: si attende la readiness
+        @BeforeEach
+        void waitForReadiness() throws InterruptedException {
+                for (int attempt = 0; attempt < 120; attempt++) {
+                        if (given().when().get("/q/health/ready").statusCode() == 200) {
+                                return;
+                        }
+                        Thread.sleep(500);
+                }
+                throw new IllegalStateException("Applicazione non pronta dopo 60 s");
+        }
+
+        // movimenti letti dai file di test-data/, classificati e restituiti come TransactionView
+        @Test
+        void transactions_shouldReturnInitialSyncRows() {
+                given()
+                                .auth().preemptive().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .when().get("/transactions")
+                                .then()
+                                .statusCode(200)
+                                .body("$", not(empty()))
+                                .body("[0].centerType", notNullValue());
+        }
+
+        // entity Lombok restituita dentro una Response
+        @Test
+        void rules_shouldSerializeEntities() {
+                given()
+                                .auth().preemptive().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .when().get("/rules")
+                                .then()
+                                .statusCode(200)
+                                .body("keyword", hasItem("acquisto"));
+        }
+
+        // JFR incluso nell'eseguibile (quarkus.native.monitoring=jfr)
+        @Test
+        void profiling_shouldStartAndStopRecording() {
+                given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .queryParam("duration", "PT30S")
+                                .when().post("/admin/profiling/recordings")
+                                .then()
+                                .statusCode(202)
+                                .body("status", is("RUNNING"));
+                given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .when().post("/admin/profiling/recordings/stop")
+                                .then()
+                                .statusCode(200)
+                                .body("status", is("COMPLETED"));
+        }
+}
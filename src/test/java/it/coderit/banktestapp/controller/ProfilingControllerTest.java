@@ -0,0 +1,132 @@
+package it.coderit.banktestapp.controller;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+public class ProfilingControllerTest {
+
+        private static final String ADMIN_USERNAME = "admin";
+        private static final String ADMIN_PASSWORD = "adminpassword";
+        private static final String VALID_USERNAME = "user";
+        private static final String VALID_PASSWORD = "userpassword";
+
+        @AfterEach
+        public void tearDown() {
+                given().auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .when().post("/admin/profiling/recordings/stop");
+        }
+
+        // la profilazione è riservata agli amministratori
+        @Test
+        void startRecording_shouldReturnForbidden_whenUserIsNotAdmin() {
+                given()
+                                .auth().preemptive().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .queryParam("duration", "PT1S")
+                                .when().post("/admin/profiling/recordings")
+                                .then()
+                                .statusCode(403);
+        }
+
+        // registrazione fermata in anticipo e scaricabile come file .jfr
+        @Test
+        void startRecording_shouldRecordAndServeJfrFile() {
+                String name = given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .queryParam("duration", "PT5M")
+                                .queryParam("settings", "default")
+                                .when().post("/admin/profiling/recordings")
+                                .then()
+                                .statusCode(202)
+                                .body("status", is("RUNNING"))
+                                .body("settings", is("default"))
+                                .body("reason", is("manual"))
+                                .extract().path("name");
+
+                // una seconda registrazione non parte finché la prima è in corso
+                given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .when().post("/admin/profiling/recordings")
+                                .then()
+                                .statusCode(409);
+
+                // finché è in corso il file non è scaricabile
+                given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .when().get("/admin/profiling/recordings/" + name)
+                                .then()
+                                .statusCode(409);
+
+                given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .when().post("/admin/profiling/recordings/stop")
+                                .then()
+                                .statusCode(200)
+                                .body("name", is(name))
+                                .body("status", is("COMPLETED"));
+
+                given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .when().get("/admin/profiling/recordings")
+                                .then()
+                                .statusCode(200)
+                                .body("[0].name", is(name))
+                                .body("[0].status", is("COMPLETED"));
+
+                byte[] jfr = given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .when().get("/admin/profiling/recordings/" + name)
+                                .then()
+                                .statusCode(200)
+                                .header("Content-Disposition", notNullValue())
+                                .extract().asByteArray();
+                // i file JFR iniziano con il magic number "FLR\0"
+                assertTrue(jfr.length > 4);
+                assertEquals("FLR", new String(Arrays.copyOf(jfr, 3), StandardCharsets.US_ASCII));
+        }
+
+        // durata non ISO-8601 o oltre il massimo configurato
+        @Test
+        void startRecording_shouldReturnBadRequest_whenDurationIsInvalid() {
+                given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .queryParam("duration", "60")
+                                .when().post("/admin/profiling/recordings")
+                                .then()
+                                .statusCode(400);
+
+                given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .queryParam("duration", "PT24H")
+                                .when().post("/admin/profiling/recordings")
+                                .then()
+                                .statusCode(400);
+        }
+
+        // nomi fuori dalla directory delle registrazioni non vengono serviti
+        @Test
+        void downloadRecording_shouldReturnNotFound_whenNameIsUnknownOrInvalid() {
+                given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .when().get("/admin/profiling/recordings/missing.jfr")
+                                .then()
+                                .statusCode(404);
+
+                given()
+                                .auth().preemptive().basic(ADMIN_USERNAME, ADMIN_PASSWORD)
+                                .when().get("/admin/profiling/recordings/..%2Fpom.xml")
+                                .then()
+                                .statusCode(404);
+        }
+}
@@ -0,0 +1,83 @@
+package it.coderit.banktestapp.controller;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+
+@QuarkusTest
+public class RequestPhaseTimerTest {
+
+    @Inject
+    MeterRegistry registry;
+
+    private Timer phase(String endpoint, String phase) {
+        return registry.get("http.request.phase").tags("endpoint", endpoint, "phase", phase).timer();
+    }
+
+    private double queryNanos(String endpoint) {
+        Timer timer = registry.find("http.request.phase").tags("endpoint", endpoint, "phase", "query").timer();
+        return timer == null ? 0 : timer.totalTime(TimeUnit.NANOSECONDS);
+    }
+
+    // Le fasi si registrano dopo la scrittura del corpo, che il client può aver già ricevuto
+    private void awaitQueryTimeAbove(String endpoint, double nanos) throws InterruptedException {
+        for (int i = 0; i < 50 && queryNanos(endpoint) <= nanos; i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    // GET /rules legge regole e versione dal DB: fase query misurata via JDBC, le altre comunque registrate
+    @Test
+    void getAllRules_shouldRecordQueryHydrationAndSerializationPhases() throws Exception {
+        String endpoint = "ClassificationRuleController.getAllRules";
+        double before = queryNanos(endpoint);
+
+        given().when().get("/rules").then().statusCode(200);
+
+        awaitQueryTimeAbove(endpoint, before);
+        assertTrue(phase(endpoint, "query").count() >= 1);
+        assertTrue(phase(endpoint, "query").totalTime(TimeUnit.NANOSECONDS) > 0);
+        assertTrue(phase(endpoint, "hydration").count() >= 1);
+        assertTrue(phase(endpoint, "serialization").count() >= 1);
+    }
+
+    // l'export CSV legge con un cursore JDBC fuori da Hibernate: il suo tempo finisce comunque nella fase query
+    @Test
+    void export_shouldRecordCursorTimeInQueryPhase() throws Exception {
+        String endpoint = "TransactionController.export";
+        double before = queryNanos(endpoint);
+
+        given().auth().basic("user", "userpassword").when().get("/transactions/export").then().statusCode(200);
+
+        awaitQueryTimeAbove(endpoint, before);
+        assertTrue(phase(endpoint, "query").totalTime(TimeUnit.NANOSECONDS) > before);
+    }
+
+    // Fasi, pool Agroal e statistiche Hibernate sono tutte esposte su /q/metrics
+    @Test
+    void metricsEndpoint_shouldExposePhasesPoolAndHibernateStatistics() throws Exception {
+        double before = queryNanos("ClassificationRuleController.getAllRules");
+        given().when().get("/rules").then().statusCode(200);
+        awaitQueryTimeAbove("ClassificationRuleController.getAllRules", before);
+
+        given().when().get("/q/metrics").then()
+                .statusCode(200)
+                .body(containsString("http_request_phase_seconds_count{endpoint=\"ClassificationRuleController.getAllRules\""))
+                .body(containsString("http_request_phase_seconds_bucket"))
+                .body(containsString("agroal_awaiting_count"))
+                .body(containsString("agroal_active_count"))
+                .body(containsString("agroal_available_count"))
+                .body(containsString("hibernate_query_executions_total"))
+                .body(containsString("hibernate_entities_loads_total"))
+                .body(containsString("hibernate_flushes_total"));
+    }
+}
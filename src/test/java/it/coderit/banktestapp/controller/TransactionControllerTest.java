@@ -9,6 +9,8 @@ import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
@@ -21,10 +23,12 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.ArgumentCaptor;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
@@ -33,10 +37,16 @@ import io.quarkus.hibernate.orm.panache.PanacheQuery;
 import io.quarkus.test.InjectMock;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
+import it.coderit.banktestapp.dto.BulkClassificationResult;
 import it.coderit.banktestapp.dto.CredemTransactionResponse;
+import it.coderit.banktestapp.dto.TransactionSearchPage;
+import it.coderit.banktestapp.dto.TransactionView;
+import it.coderit.banktestapp.model.IngestionRun;
 import it.coderit.banktestapp.model.Transaction;
 import it.coderit.banktestapp.repository.TransactionRepository;
 import it.coderit.banktestapp.model.CenterType;
+import it.coderit.banktestapp.service.IngestionMetrics.RowCounts;
+import it.coderit.banktestapp.service.TransactionExportService;
 import it.coderit.banktestapp.service.TransactionService;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
@@ -50,6 +60,9 @@ public class TransactionControllerTest {
         @InjectMock
         TransactionRepository transactionRepository;
 
+        @InjectMock
+        TransactionExportService transactionExportService;
+
         private final String DEFAULT_TEST_ACCOUNT_ID = "IT001000000000000000001";
         private static final String VALID_USERNAME = "user";
         private static final String VALID_PASSWORD = "userpassword";
@@ -65,7 +78,7 @@ public class TransactionControllerTest {
 
         @BeforeEach
         public void setUp() {
-                Mockito.reset(transactionService, transactionRepository);
+                Mockito.reset(transactionService, transactionRepository, transactionExportService);
 
                 transactionTestCosto = new Transaction();
                 transactionTestCosto.setTransactionId(UUID.randomUUID().toString());
@@ -109,15 +122,17 @@ public class TransactionControllerTest {
 
                 when(transactionService.searchTransactions(anyString(), any(LocalDate.class), any(LocalDate.class),
                                 any(CenterType.class)))
-                                .thenReturn(List.of(transactionTestCosto, transactionTestProfitto,
+                                .thenReturn(views(transactionTestCosto, transactionTestProfitto,
                                                 transactionTestUndefined));
 
                 when(transactionService.searchTransactions(eq("testAccountId"), eq(null), eq(null), eq(null)))
-                                .thenReturn(List.of(transactionTestCosto, transactionTestProfitto,
+                                .thenReturn(views(transactionTestCosto, transactionTestProfitto,
                                                 transactionTestUndefined));
 
-                doNothing().when(transactionService).downloadAndSave(anyString(), anyString(), anyString());
-                doNothing().when(transactionService).saveTransactionsFromDTOList(any(List.class), anyString());
+                when(transactionService.downloadAndSave(anyString(), anyString(), anyString()))
+                                .thenReturn(IngestionRun.Status.COMPLETED);
+                when(transactionService.saveTransactionsFromDTOList(any(List.class), anyString()))
+                                .thenReturn(new RowCounts(0, 0, 0, 0));
 
                 PanacheQuery<Transaction> mockQueryFound = Mockito.mock(PanacheQuery.class);
                 Transaction freshUndefinedTransaction = new Transaction();
@@ -156,6 +171,18 @@ public class TransactionControllerTest {
                 doNothing().when(transactionRepository).persist(any(Transaction.class));
         }
 
+        // converte le entity di test nel read model restituito dal service
+        private static List<TransactionView> views(Transaction... transactions) {
+                return Arrays.stream(transactions)
+                                .map(t -> new TransactionView(t.getId(), t.getTransactionId(), t.getAccountId(),
+                                                t.getBookingDate(), t.getValueDate(), t.getCurrency(), t.getAmount(),
+                                                t.getRemittanceInformation(), t.getCreditorName(), t.getDebtorName(),
+                                                t.getBankTransactionCode(), t.getAdditionalInformation(),
+                                                t.getProprietaryBankTransactionCode(), t.getCenterType(),
+                                                t.getIsManuallyClassified()))
+                                .toList();
+        }
+
         // --- TEST per l'ENDPOINT GET /transactions ---
 
         // deve restituire tutte le transazoni quando non sono formiti parametri
@@ -163,7 +190,7 @@ public class TransactionControllerTest {
         void transactions_shouldReturnTransactions_whenNoQueryParams() {
 
                 when(transactionService.searchTransactions(eq(DEFAULT_TEST_ACCOUNT_ID), eq(null), eq(null), eq(null)))
-                                .thenReturn(List.of(transactionTestCosto, transactionTestProfitto));
+                                .thenReturn(views(transactionTestCosto, transactionTestProfitto));
 
                 given()
                                 .auth().basic(VALID_USERNAME, VALID_PASSWORD)
@@ -181,6 +208,79 @@ public class TransactionControllerTest {
                                 eq(null));
         }
 
+        // deve restituire 304 senza interrogare il service quando l'ETag del client è aggiornato
+        @Test
+        void transactions_shouldReturnNotModified_whenETagMatches() {
+                when(transactionService.searchTransactions(eq(DEFAULT_TEST_ACCOUNT_ID), eq(null), eq(null), eq(null)))
+                                .thenReturn(views(transactionTestCosto));
+
+                String etag = given()
+                                .auth().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .when()
+                                .get("/transactions")
+                                .then()
+                                .statusCode(200)
+                                .header("ETag", notNullValue())
+                                .extract().header("ETag");
+
+                given()
+                                .auth().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .header("If-None-Match", etag)
+                                .when()
+                                .get("/transactions")
+                                .then()
+                                .statusCode(304);
+
+                verify(transactionService, times(1)).searchTransactions(eq(DEFAULT_TEST_ACCOUNT_ID), eq(null), eq(null),
+                                eq(null));
+        }
+
+        // l'ETag dipende dai filtri: quello della lista completa non vale per la lista filtrata
+        @Test
+        void transactions_shouldReturnFullResponse_whenETagBelongsToOtherFilters() {
+                when(transactionService.searchTransactions(eq(DEFAULT_TEST_ACCOUNT_ID), eq(null), eq(null), eq(null)))
+                                .thenReturn(views(transactionTestCosto, transactionTestProfitto));
+                when(transactionService.searchTransactions(eq(DEFAULT_TEST_ACCOUNT_ID), eq(null), eq(null),
+                                eq(CenterType.COSTO)))
+                                .thenReturn(views(transactionTestCosto));
+
+                String etag = given()
+                                .auth().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .when()
+                                .get("/transactions")
+                                .then()
+                                .statusCode(200)
+                                .extract().header("ETag");
+
+                given()
+                                .auth().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .header("If-None-Match", etag)
+                                .queryParam("centerType", "COSTO")
+                                .when()
+                                .get("/transactions")
+                                .then()
+                                .statusCode(200)
+                                .header("ETag", not(etag))
+                                .body("size()", is(1));
+        }
+
+        // con If-None-Match non aggiornato If-Modified-Since viene ignorato (RFC 7232, sezione 6)
+        @Test
+        void transactions_shouldIgnoreIfModifiedSince_whenETagDoesNotMatch() {
+                when(transactionService.searchTransactions(eq(DEFAULT_TEST_ACCOUNT_ID), eq(null), eq(null), eq(null)))
+                                .thenReturn(views(transactionTestCosto));
+
+                given()
+                                .auth().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .header("If-None-Match", "\"tx-obsoleto\"")
+                                .header("If-Modified-Since", "Fri, 31 Dec 2100 23:59:59 GMT")
+                                .when()
+                                .get("/transactions")
+                                .then()
+                                .statusCode(200)
+                                .body("size()", is(1));
+        }
+
         // deve ritornare una lista di transazioni quando un range di date è formito
         @Test
         void transactions_shouldReturnFilteredTransactions_whenDateRangeProvided() {
@@ -188,7 +288,7 @@ public class TransactionControllerTest {
                 LocalDate toDate = LocalDate.of(2023, 1, 31);
 
                 when(transactionService.searchTransactions(DEFAULT_TEST_ACCOUNT_ID, fromDate, toDate, null))
-                                .thenReturn(List.of(transactionTestCosto, transactionTestProfitto));
+                                .thenReturn(views(transactionTestCosto, transactionTestProfitto));
 
                 given()
                                 .auth().basic(VALID_USERNAME, VALID_PASSWORD)
@@ -211,7 +311,7 @@ public class TransactionControllerTest {
         void transactions_shouldReturnFilteredTransactions_whenCenterTypeIsProvided() {
                 when(transactionService.searchTransactions(eq(DEFAULT_TEST_ACCOUNT_ID), eq(null), eq(null),
                                 eq(CenterType.COSTO)))
-                                .thenReturn(List.of(transactionTestCosto, transactionTestCosto2));
+                                .thenReturn(views(transactionTestCosto, transactionTestCosto2));
 
                 given()
                                 .auth().basic(VALID_USERNAME, VALID_PASSWORD)
@@ -239,7 +339,7 @@ public class TransactionControllerTest {
 
                 when(transactionService.searchTransactions(eq(DEFAULT_TEST_ACCOUNT_ID), eq(fromDate), eq(toDate),
                                 eq(CenterType.PROFITTO)))
-                                .thenReturn(List.of(transactionTestProfitto));
+                                .thenReturn(views(transactionTestProfitto));
 
                 given()
                                 .auth().basic(VALID_USERNAME, VALID_PASSWORD)
@@ -388,6 +488,56 @@ public class TransactionControllerTest {
                 verify(transactionService, never()).searchTransactions(any(), any(), any(), any());
         }
 
+        // ------ transactions/search test -------
+
+        @Test
+        void search_shouldReturnRankedPage_whenQueryProvided() {
+                when(transactionService.searchFullText(eq(DEFAULT_TEST_ACCOUNT_ID), eq("costo"), eq(50), eq(null)))
+                                .thenReturn(new TransactionSearchPage(views(transactionTestCosto, transactionTestCosto2),
+                                                "bmV4dA"));
+
+                given()
+                                .auth().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .queryParam("q", "costo")
+                                .when()
+                                .get("/transactions/search")
+                                .then()
+                                .statusCode(200)
+                                .contentType(ContentType.JSON)
+                                .body("items.size()", is(2))
+                                .body("items[0].remittanceInformation", is(transactionTestCosto.getRemittanceInformation()))
+                                .body("nextCursor", is("bmV4dA"));
+        }
+
+        @Test
+        void search_shouldReturnBadRequest_whenQueryIsMissing() {
+                given()
+                                .auth().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .when()
+                                .get("/transactions/search")
+                                .then()
+                                .statusCode(400)
+                                .body(is("Parametro q obbligatorio."));
+
+                verify(transactionService, never()).searchFullText(any(), any(), Mockito.anyInt(), any());
+        }
+
+        @Test
+        void search_shouldReturnBadRequest_whenCursorIsInvalid() {
+                when(transactionService.searchFullText(any(), any(), Mockito.anyInt(), eq("rotto")))
+                                .thenThrow(new IllegalArgumentException("Cursore di paginazione non valido: rotto"));
+
+                given()
+                                .auth().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .queryParam("q", "costo")
+                                .queryParam("cursor", "rotto")
+                                .when()
+                                .get("/transactions/search")
+                                .then()
+                                .statusCode(400)
+                                .body(is("Cursore di paginazione non valido: rotto"));
+        }
+
         // ------ transaction/manual-classify test -------
 
        /*  @Test
@@ -500,4 +650,117 @@ public class TransactionControllerTest {
                 verify(transactionRepository, never()).persist(any(Transaction.class));
         }
 
+        // ------ transactions/export test -------
+
+        @Test
+        void export_shouldStreamCsv_whenFiltersAreValid() throws Exception {
+                when(transactionExportService.exportCsv(eq(DEFAULT_TEST_ACCOUNT_ID), eq(null), eq(null),
+                                eq(CenterType.COSTO), any(OutputStream.class)))
+                                .thenAnswer(invocation -> {
+                                        OutputStream out = invocation.getArgument(4);
+                                        out.write("transactionId;centerType\nt1;COSTO\n".getBytes());
+                                        return 1L;
+                                });
+
+                given()
+                                .auth().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .queryParam("centerType", "COSTO")
+                                .when()
+                                .get("/transactions/export")
+                                .then()
+                                .statusCode(200)
+                                .contentType(containsString("text/csv"))
+                                .body(is("transactionId;centerType\nt1;COSTO\n"));
+        }
+
+        @Test
+        void export_shouldReturnBadRequest_whenDatesAreInverted() throws Exception {
+                given()
+                                .auth().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .queryParam("from", "2023-01-31")
+                                .queryParam("to", "2023-01-01")
+                                .when()
+                                .get("/transactions/export")
+                                .then()
+                                .statusCode(400)
+                                .body(is("La data 'from' non può essere successiva alla data 'to'."));
+
+                verify(transactionExportService, never()).exportCsv(any(), any(), any(), any(), any());
+        }
+
+        // ------ transactions/manual-classify (massiva) test -------
+
+        @Test
+        void bulkManualClassify_shouldReturnPerIdResults_whenItemsProvided() {
+                when(transactionService.bulkManualClassify(any(List.class)))
+                                .thenReturn(new BulkClassificationResult(1, List.of(
+                                                new BulkClassificationResult.ItemResult("trans_id_undefined",
+                                                                CenterType.COSTO,
+                                                                BulkClassificationResult.Status.CLASSIFIED),
+                                                new BulkClassificationResult.ItemResult("non_esistente",
+                                                                CenterType.PROFITTO,
+                                                                BulkClassificationResult.Status.NOT_FOUND))));
+
+                given()
+                                .auth().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .contentType(ContentType.JSON)
+                                .body("{\"items\": [{\"transactionId\": \"trans_id_undefined\", \"centerType\": \"COSTO\"},"
+                                                + " {\"transactionId\": \"non_esistente\", \"centerType\": \"PROFITTO\"}]}")
+                                .when()
+                                .put("/transactions/manual-classify")
+                                .then()
+                                .statusCode(200)
+                                .body("updated", is(1))
+                                .body("results[0].status", is("CLASSIFIED"))
+                                .body("results[1].status", is("NOT_FOUND"));
+
+                verify(transactionService, times(1)).bulkManualClassify(any(List.class));
+        }
+
+        @Test
+        void bulkManualClassify_shouldReturnBadRequest_whenItemsAndFilterAreBothMissing() {
+                given()
+                                .auth().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .contentType(ContentType.JSON)
+                                .body("{}")
+                                .when()
+                                .put("/transactions/manual-classify")
+                                .then()
+                                .statusCode(400)
+                                .body(is("Specificare 'items' oppure 'filter', non entrambi."));
+
+                verify(transactionService, never()).bulkManualClassify(any());
+                verify(transactionService, never()).bulkManualClassifyByFilter(any(), any(), any());
+        }
+
+        @Test
+        void bulkManualClassify_shouldReturnBadRequest_whenFilterTargetIsUndefined() {
+                given()
+                                .auth().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .contentType(ContentType.JSON)
+                                .body("{\"filter\": {\"centerType\": \"UNDEFINED\"}, \"centerType\": \"UNDEFINED\"}")
+                                .when()
+                                .put("/transactions/manual-classify")
+                                .then()
+                                .statusCode(400)
+                                .body(containsString("Non si può impostare manualmente il cento UNDEFINED"));
+
+                verify(transactionService, never()).bulkManualClassifyByFilter(any(), any(), any());
+        }
+
+        @Test
+        void bulkManualClassify_shouldReturnBadRequest_whenFilterIsEmpty() {
+                given()
+                                .auth().basic(VALID_USERNAME, VALID_PASSWORD)
+                                .contentType(ContentType.JSON)
+                                .body("{\"filter\": {\"keyword\": \" \"}, \"centerType\": \"COSTO\"}")
+                                .when()
+                                .put("/transactions/manual-classify")
+                                .then()
+                                .statusCode(400)
+                                .body(is("Il filtro deve indicare almeno un criterio: date, centerType o keyword."));
+
+                verify(transactionService, never()).bulkManualClassifyByFilter(any(), any(), any());
+        }
+
 }
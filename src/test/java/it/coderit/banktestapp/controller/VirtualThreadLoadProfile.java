@@ -0,0 +1,22 @@
+package it.coderit.banktestapp.controller;
+
+import java.util.Map;
+
+import io.quarkus.test.junit.QuarkusTestProfile;
+
+/**
+ * Worker pool e pool di connessioni per VirtualThreadLoadTest, regolabili con
+ * -Dvt.loadtest.worker-threads e -Dvt.loadtest.db-pool: il confronto ha senso quando il pool di connessioni
+ * è più grande del worker pool, altrimenti entrambi i modelli sono limitati dalle connessioni.
+ */
+public class VirtualThreadLoadProfile implements QuarkusTestProfile {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        return Map.of(
+                "quarkus.thread-pool.max-threads", System.getProperty("vt.loadtest.worker-threads", "32"),
+                "quarkus.datasource.jdbc.max-size", System.getProperty("vt.loadtest.db-pool", "64"),
+                "quarkus.datasource.jdbc.acquisition-timeout", "PT30S",
+                "quarkus.log.category.\"it.coderit.banktestapp\".level", "INFO");
+    }
+}
@@ -0,0 +1,61 @@
+package it.coderit.banktestapp.controller;
+
+import java.util.List;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.smallrye.common.annotation.Blocking;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import it.coderit.banktestapp.dto.TransactionView;
+import it.coderit.banktestapp.model.CenterType;
+import it.coderit.banktestapp.service.TransactionService;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+
+/**
+ * Stessa richiesta (query lenta simulata con pg_sleep, poi la ricerca di GET /transactions) servita dal
+ * worker pool e da un virtual thread, per il confronto di VirtualThreadLoadTest.
+ */
+@Path("/loadtest/slow-query")
+@Produces(MediaType.APPLICATION_JSON)
+public class VirtualThreadLoadResource {
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    TransactionService transactionService;
+
+    @ConfigProperty(name = "credem.account-id")
+    String accountId;
+
+    @GET
+    @Path("/worker")
+    @Blocking
+    @Transactional
+    public List<TransactionView> worker(@QueryParam("sleepMs") @DefaultValue("50") int sleepMs) {
+        return slowQuery(sleepMs);
+    }
+
+    @GET
+    @Path("/virtual")
+    @RunOnVirtualThread
+    @Transactional
+    public List<TransactionView> virtual(@QueryParam("sleepMs") @DefaultValue("50") int sleepMs) {
+        return slowQuery(sleepMs);
+    }
+
+    private List<TransactionView> slowQuery(int sleepMs) {
+        entityManager.createNativeQuery("SELECT 1 FROM pg_sleep(?1)")
+                .setParameter(1, sleepMs / 1000.0)
+                .getSingleResult();
+        return transactionService.searchTransactions(accountId, null, null, CenterType.COSTO);
+    }
+}
@@ -0,0 +1,154 @@
+package it.coderit.banktestapp.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Confronto tra worker pool e virtual thread sulla stessa richiesta con query lenta (VirtualThreadLoadResource):
+ * stampa throughput, p50 e p99 con molti client concorrenti e verifica, con gli eventi JFR jdk.VirtualThreadPinned,
+ * che nel percorso JDBC/Hibernate i virtual thread non restino bloccati sul carrier.
+ * Non gira nella build normale: mvn test -Dvt.loadtest=true -Dtest=VirtualThreadLoadTest
+ * (eventualmente con -Dvt.loadtest.concurrency=400 -Dvt.loadtest.requests=4000 -Dvt.loadtest.sleep-ms=50).
+ */
+@QuarkusTest
+@TestProfile(VirtualThreadLoadProfile.class)
+@EnabledIfSystemProperty(named = "vt.loadtest", matches = "true")
+class VirtualThreadLoadTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("vt.loadtest.concurrency", 200);
+    private static final int REQUESTS = Integer.getInteger("vt.loadtest.requests", 2000);
+    private static final int SLEEP_MS = Integer.getInteger("vt.loadtest.sleep-ms", 50);
+
+    @TestHTTPResource("/loadtest/slow-query")
+    URL baseUrl;
+
+    record Result(int requests, int errors, long elapsedNanos, long p50Nanos, long p99Nanos) {
+
+        double throughput() {
+            return requests / (elapsedNanos / 1e9);
+        }
+
+        String describe(String mode) {
+            return String.format("%s: %d richieste (%d errori) in %d ms, %.1f req/s, p50 %.1f ms, p99 %.1f ms",
+                    mode, requests, errors, elapsedNanos / 1_000_000, throughput(), p50Nanos / 1e6, p99Nanos / 1e6);
+        }
+    }
+
+    @Test
+    void virtualThreads_shouldServeSlowQueriesWithoutPinning() throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        // Riscaldamento di entrambi i percorsi
+        run(client, "worker", CONCURRENCY, CONCURRENCY * 2);
+        run(client, "virtual", CONCURRENCY, CONCURRENCY * 2);
+
+        Result worker = run(client, "worker", CONCURRENCY, REQUESTS);
+
+        List<String> pinned = new ArrayList<>();
+        Result virtual;
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", event -> {
+                synchronized (pinned) {
+                    pinned.add(describe(event));
+                }
+            });
+            recording.startAsync();
+            virtual = run(client, "virtual", CONCURRENCY, REQUESTS);
+        }
+
+        System.out.printf("Concorrenza %d, query di %d ms%n", CONCURRENCY, SLEEP_MS);
+        System.out.println(worker.describe("Worker pool"));
+        System.out.println(virtual.describe("Virtual thread"));
+        pinned.stream().distinct().forEach(stack -> System.out.println("Pinning: " + stack));
+
+        assertEquals(0, worker.errors());
+        assertEquals(0, virtual.errors());
+        assertTrue(pinned.isEmpty(), "Virtual thread bloccati sul carrier: " + pinned.size());
+    }
+
+    private Result run(HttpClient client, String mode, int concurrency, int requests) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/" + mode + "?sleepMs=" + SLEEP_MS))
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+        long[] latencies = new long[requests];
+        AtomicInteger errors = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(concurrency);
+
+        long start = System.nanoTime();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                int index = i;
+                inFlight.acquire();
+                futures.add(callers.submit(() -> {
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    } finally {
+                        latencies[index] = System.nanoTime() - sent;
+                        inFlight.release();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Result(requests, errors.get(), elapsed, percentile(latencies, 0.50), percentile(latencies, 0.99));
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    // Primi frame dello stack del virtual thread bloccato
+    private static String describe(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "(stack non disponibile)";
+        }
+        return event.getStackTrace().getFrames().stream()
+                .limit(12)
+                .map(RecordedFrame::getMethod)
+                .map(method -> method.getType().getName() + "." + method.getName())
+                .reduce((a, b) -> a + " <- " + b)
+                .orElse("");
+    }
+}
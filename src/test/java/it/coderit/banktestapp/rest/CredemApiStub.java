@@ -0,0 +1,147 @@
+package it.coderit.banktestapp.rest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import it.coderit.banktestapp.CBISimulation.SyntheticTransactionGenerator;
+import it.coderit.banktestapp.dto.CredemAccountResponse;
+import it.coderit.banktestapp.dto.CredemBalancesResponse;
+import it.coderit.banktestapp.dto.CredemSingleAccountResponse;
+
+/**
+ * Stub HTTP locale dell'API PSD2 Credem, servito da Vert.x con i dati di SyntheticTransactionGenerator.
+ * Implementa /accounts, /accounts/{id}, /accounts/{id}/balances e /accounts/{id}/transactions
+ * (limit, offset, fromBookingDate, toBookingDate), così i test di carico passano dal vero
+ * client @RestClient: serializzazione, pool di connessioni e header compresi, senza rete.
+ * La latenza è simulata con un timer, quindi lo stub non blocca thread e non fa da collo di bottiglia.
+ */
+public class CredemApiStub implements AutoCloseable {
+
+    private final SyntheticTransactionGenerator generator;
+    private final List<String> accountIds;
+    private final long latencyMillis;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final AtomicLong requests = new AtomicLong();
+
+    private Vertx vertx;
+    private HttpServer server;
+
+    public CredemApiStub(SyntheticTransactionGenerator generator, List<String> accountIds, long latencyMillis) {
+        this.generator = generator;
+        this.accountIds = List.copyOf(accountIds);
+        this.latencyMillis = latencyMillis;
+    }
+
+    // Stub con i parametri di default di fake.credem.synthetic.*
+    public static CredemApiStub withDefaults(List<String> accountIds, long latencyMillis) {
+        return new CredemApiStub(defaultGenerator(), accountIds, latencyMillis);
+    }
+
+    public static SyntheticTransactionGenerator defaultGenerator() {
+        return new SyntheticTransactionGenerator(42, 20,
+                List.of("Esselunga", "Coop", "Conad", "Enel Energia", "TIM", "Amazon", "Eni Station", "Trenitalia"),
+                35, 0.9, 0.05, 1500);
+    }
+
+    public CredemApiStub start() throws Exception {
+        vertx = Vertx.vertx();
+        Router router = Router.router(vertx);
+        router.get("/accounts").handler(ctx -> reply(ctx, accounts()));
+        router.get("/accounts/:accountId").handler(ctx -> reply(ctx,
+                accountDetails(ctx.pathParam("accountId"), Boolean.parseBoolean(ctx.queryParams().get("withBalance")))));
+        router.get("/accounts/:accountId/balances").handler(ctx -> reply(ctx, balances(ctx.pathParam("accountId"))));
+        router.get("/accounts/:accountId/transactions").handler(ctx -> reply(ctx, transactions(ctx)));
+        server = vertx.createHttpServer()
+                .requestHandler(router)
+                .listen(0)
+                .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        return this;
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.actualPort();
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (vertx != null) {
+            vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private void reply(RoutingContext ctx, Object body) {
+        requests.incrementAndGet();
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            ctx.fail(e);
+            return;
+        }
+        if (latencyMillis <= 0) {
+            send(ctx, json);
+        } else {
+            vertx.setTimer(latencyMillis, t -> send(ctx, json));
+        }
+    }
+
+    private static void send(RoutingContext ctx, String json) {
+        ctx.response()
+                .putHeader("Content-Type", "application/json")
+                .end(json);
+    }
+
+    private CredemAccountResponse accounts() {
+        CredemAccountResponse response = new CredemAccountResponse();
+        response.accounts = new ArrayList<>();
+        for (String accountId : accountIds) {
+            response.accounts.add(generator.account(accountId, false));
+        }
+        return response;
+    }
+
+    private CredemSingleAccountResponse accountDetails(String accountId, boolean withBalance) {
+        CredemSingleAccountResponse response = new CredemSingleAccountResponse();
+        response.account = generator.account(accountId, withBalance);
+        return response;
+    }
+
+    private CredemBalancesResponse balances(String accountId) {
+        CredemBalancesResponse response = new CredemBalancesResponse();
+        response.account = new CredemBalancesResponse.BalancesAccountInfo();
+        response.account.iban = accountId;
+        response.account.currency = "EUR";
+        response.balances = List.of(generator.balance(accountId, LocalDate.now()));
+        return response;
+    }
+
+    private Object transactions(RoutingContext ctx) {
+        String fromParam = ctx.queryParams().get("fromBookingDate");
+        String toParam = ctx.queryParams().get("toBookingDate");
+        String limitParam = ctx.queryParams().get("limit");
+        String offsetParam = ctx.queryParams().get("offset");
+        LocalDate to = toParam != null ? LocalDate.parse(toParam) : LocalDate.now();
+        LocalDate from = fromParam != null ? LocalDate.parse(fromParam) : to.minusDays(365);
+        return generator.page(ctx.pathParam("accountId"), from, to,
+                offsetParam != null ? Integer.parseInt(offsetParam) : 0,
+                limitParam != null ? Integer.parseInt(limitParam) : 100);
+    }
+}
@@ -0,0 +1,205 @@
+package it.coderit.banktestapp.rest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import it.coderit.banktestapp.CBISimulation.SyntheticTransactionGenerator;
+import it.coderit.banktestapp.dto.CredemAccountResponse;
+import it.coderit.banktestapp.dto.CredemBalancesResponse;
+import it.coderit.banktestapp.dto.CredemSingleAccountResponse;
+import it.coderit.banktestapp.dto.CredemTransactionResponse;
+import it.coderit.banktestapp.model.IngestionRun;
+import it.coderit.banktestapp.service.AsyncTransactionIngestionService;
+import it.coderit.banktestapp.service.AsyncTransactionIngestionService.AccountResult;
+import it.coderit.banktestapp.service.TransactionService;
+import jakarta.inject.Inject;
+
+/**
+ * Percorso completo del client REST generato (serializzazione, header, pool di connessioni)
+ * contro CredemApiStub, senza FakeCredemClient e senza rete.
+ * Il test di throughput gira solo con: mvn test -Dcredem.loadtest=true -Dtest=CredemApiStubEndToEndTest
+ * (eventualmente con -Dcredem.stub.accounts=200 -Dcredem.stub.latency-ms=50).
+ */
+@QuarkusTest
+@TestProfile(CredemApiStubProfile.class)
+class CredemApiStubEndToEndTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 1, 31);
+    private static final int PAGE_SIZE = 100;
+
+    @Inject
+    @RestClient
+    CredemClient credemClient;
+
+    @Inject
+    TransactionService transactionService;
+
+    @Inject
+    AsyncTransactionIngestionService asyncIngestionService;
+
+    @Inject
+    InMemorySpans spans;
+
+    @Inject
+    Tracer tracer;
+
+    @Test
+    void restClient_shouldReadAccountsBalancesAndAllTransactionPagesFromStub() {
+        List<String> accountIds = CredemApiStubResource.accountIds();
+        String accountId = accountIds.get(0);
+
+        CredemAccountResponse accounts = credemClient.getAccounts("psu", "Bearer t", "consent", "req", "date",
+                "digest", "sig", "cert", "psu-auth", "127.0.0.1", "ASPSP");
+        assertEquals(accountIds, accounts.accounts.stream().map(account -> account.resourceId).toList());
+
+        CredemSingleAccountResponse details = credemClient.getAccountDetails(accountId, "consent", "psu", "Bearer t",
+                "req", "date", "digest", "sig", "cert", "psu-auth", "127.0.0.1", "ASPSP", true);
+        assertEquals(accountId, details.account.iban);
+
+        CredemBalancesResponse balances = credemClient.getAccountBalances(accountId, "consent", "psu", "Bearer t",
+                "req", "date", "digest", "sig", "cert", "psu-auth", "127.0.0.1", "ASPSP");
+        assertNotNull(balances.balances.get(0).lastCommittedTransactionEntry);
+        assertNotNull(balances.balances.get(0).lastChangeDateTime);
+
+        int rows = 0;
+        int offset = 0;
+        while (true) {
+            CredemTransactionResponse page = credemClient.getTransactions("psu", "Bearer t", "req", "consent", "date",
+                    "digest", "sig", "cert", "psu-auth", "127.0.0.1", "ASPSP", accountId,
+                    FROM.toString(), TO.toString(), PAGE_SIZE, offset);
+            rows += page.booked.size();
+            if (page.booked.size() < PAGE_SIZE) {
+                break;
+            }
+            offset += PAGE_SIZE;
+        }
+
+        SyntheticTransactionGenerator generator = CredemApiStub.defaultGenerator();
+        assertEquals(generator.count(accountId, FROM, TO), rows);
+    }
+
+    // Una sincronizzazione produce lo span della chiamata alla banca (con X-Request-ID), la richiesta HTTP
+    // propagata allo stub, la classificazione della pagina e le query JDBC, tutti nella traccia della sync
+    @Test
+    void downloadAndSave_shouldTraceBankCallClassificationAndQueries() {
+        String accountId = CredemApiStubResource.accountIds().get(1);
+        spans.clear();
+
+        // Stesso ruolo dello span scheduler.sync di TransactionScheduler
+        Span sync = tracer.spanBuilder("test.sync").startSpan();
+        try (Scope scope = sync.makeCurrent()) {
+            transactionService.downloadAndSave(accountId, "2024-06-01", "2024-06-03");
+        } finally {
+            sync.end();
+        }
+
+        List<SpanData> trace = spans.all().stream()
+                .filter(span -> span.getTraceId().equals(sync.getSpanContext().getTraceId()))
+                .toList();
+        SpanData bankCall = trace.stream()
+                .filter(span -> span.getName().equals("credem.call"))
+                .filter(span -> span.getAttributes().get(AttributeKey.stringKey("credem.operation")).startsWith("getTransactions"))
+                .findFirst().orElseThrow();
+        assertTrue(trace.stream().anyMatch(span -> span.getKind() == SpanKind.CLIENT
+                && bankCall.getSpanId().equals(span.getParentSpanId())));
+        assertTrue(trace.stream().anyMatch(span -> span.getAttributes()
+                .get(AttributeKey.stringKey("credem.x_request_id")) != null));
+        assertTrue(trace.stream().anyMatch(span -> span.getName().equals("classification.batch")));
+        assertTrue(trace.stream().anyMatch(span -> span.getAttributes().get(AttributeKey.stringKey("db.statement")) != null));
+    }
+
+    // Nel percorso non bloccante la richiesta HTTP parte alla subscription: lo span credem.call deve essere
+    // ancora corrente, così la richiesta ne è figlia e l'X-Request-ID finisce nella sua traccia
+    @Test
+    void ingestAccount_shouldTraceAsyncBankCall() {
+        String accountId = CredemApiStubResource.accountIds().get(2);
+        spans.clear();
+
+        asyncIngestionService.ingestAccount(accountId, "2024-07-01", "2024-07-03").await().atMost(Duration.ofMinutes(1));
+
+        SpanData bankCall = spans.all().stream()
+                .filter(span -> span.getName().equals("credem.call"))
+                .filter(span -> span.getAttributes().get(AttributeKey.stringKey("credem.operation"))
+                        .startsWith("getTransactions " + accountId))
+                .findFirst().orElseThrow();
+        List<SpanData> trace = spans.all().stream()
+                .filter(span -> span.getTraceId().equals(bankCall.getTraceId()))
+                .toList();
+        assertTrue(trace.stream().anyMatch(span -> span.getKind() == SpanKind.CLIENT
+                && bankCall.getSpanId().equals(span.getParentSpanId())));
+        assertTrue(trace.stream()
+                .filter(span -> span == bankCall || bankCall.getSpanId().equals(span.getParentSpanId()))
+                .anyMatch(span -> span.getAttributes().get(AttributeKey.stringKey("credem.x_request_id")) != null));
+    }
+
+    // il percorso non bloccante segue il piano di copertura: una finestra storica già scaricata non viene richiesta di nuovo
+    @Test
+    void ingestAccount_shouldSkipWindowAlreadyCovered() {
+        String accountId = CredemApiStubResource.accountIds().get(0);
+        LocalDate from = LocalDate.of(2024, 3, 1);
+        LocalDate to = LocalDate.of(2024, 3, 31);
+
+        AccountResult first = asyncIngestionService.ingestAccount(accountId, from.toString(), to.toString())
+                .await().atMost(Duration.ofMinutes(1));
+        AccountResult second = asyncIngestionService.ingestAccount(accountId, from.toString(), to.toString())
+                .await().atMost(Duration.ofMinutes(1));
+
+        assertEquals(IngestionRun.Status.COMPLETED, first.status());
+        assertEquals(CredemApiStub.defaultGenerator().count(accountId, from, to), first.received());
+        assertEquals(IngestionRun.Status.SKIPPED, second.status());
+        assertEquals(0, second.received());
+    }
+
+    // Scaricamento e salvataggio di tutti i conti dello stub, con il percorso non bloccante e con quello bloccante
+    @Test
+    @EnabledIfSystemProperty(named = "credem.loadtest", matches = "true")
+    void ingestion_shouldReportEndToEndThroughput() {
+        List<String> accountIds = CredemApiStubResource.accountIds();
+        SyntheticTransactionGenerator generator = CredemApiStub.defaultGenerator();
+        long expectedRows = accountIds.stream().mapToLong(id -> generator.count(id, FROM, TO)).sum();
+
+        // Prima il percorso non bloccante, su una finestra storica che nessun altro test copre
+        LocalDate asyncFrom = FROM.minusMonths(1);
+        LocalDate asyncTo = FROM.minusDays(1);
+        long expectedAsyncRows = accountIds.stream().mapToLong(id -> generator.count(id, asyncFrom, asyncTo)).sum();
+        long start = System.nanoTime();
+        int asyncRows = asyncIngestionService.ingestAccounts(accountIds, asyncFrom.toString(), asyncTo.toString())
+                .await().atMost(Duration.ofMinutes(10))
+                .stream().mapToInt(AccountResult::received).sum();
+        long asyncNanos = System.nanoTime() - start;
+
+        // Poi il percorso bloccante su una finestra diversa, così non trova nulla di già coperto
+        start = System.nanoTime();
+        for (String accountId : accountIds) {
+            transactionService.downloadAndSave(accountId, FROM.toString(), TO.toString());
+        }
+        long blockingNanos = System.nanoTime() - start;
+
+        System.out.printf("Bloccante: %d conti, %d movimenti in %d ms, %.1f movimenti/s%n",
+                accountIds.size(), expectedRows, blockingNanos / 1_000_000, expectedRows / (blockingNanos / 1e9));
+        System.out.printf("Non bloccante: %d conti, %d movimenti in %d ms, %.1f movimenti/s%n",
+                accountIds.size(), asyncRows, asyncNanos / 1_000_000, asyncRows / (asyncNanos / 1e9));
+
+        assertEquals(expectedAsyncRows, asyncRows);
+        assertTrue(expectedRows > 0);
+    }
+}
@@ -0,0 +1,25 @@
+package it.coderit.banktestapp.rest;
+
+import java.util.List;
+import java.util.Map;
+
+import io.quarkus.test.junit.QuarkusTestProfile;
+
+/**
+ * Profilo di test che disattiva FakeCredemClient (use.fake.credem=false, proprietà di build:
+ * il profilo riavvia l'applicazione) e usa i client REST generati contro CredemApiStub.
+ */
+public class CredemApiStubProfile implements QuarkusTestProfile {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        return Map.of(
+                "use.fake.credem", "false",
+                "scheduler.load-from-file", "false");
+    }
+
+    @Override
+    public List<TestResourceEntry> testResources() {
+        return List.of(new TestResourceEntry(CredemApiStubResource.class));
+    }
+}
@@ -0,0 +1,50 @@
+package it.coderit.banktestapp.rest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import io.quarkus.test.common.QuarkusTestResourceLifecycleManager;
+
+/**
+ * Avvia CredemApiStub prima dell'applicazione e punta il client credem-api allo stub.
+ * Numero di conti e latenza si regolano con -Dcredem.stub.accounts e -Dcredem.stub.latency-ms.
+ */
+public class CredemApiStubResource implements QuarkusTestResourceLifecycleManager {
+
+    static final int ACCOUNTS = Integer.getInteger("credem.stub.accounts", 3);
+    static final long LATENCY_MS = Long.getLong("credem.stub.latency-ms", 0);
+
+    private CredemApiStub stub;
+
+    static List<String> accountIds() {
+        return IntStream.rangeClosed(1, ACCOUNTS)
+                .mapToObj(i -> String.format("IT-STUB-%05d", i))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Map<String, String> start() {
+        try {
+            stub = CredemApiStub.withDefaults(accountIds(), LATENCY_MS).start();
+        } catch (Exception e) {
+            throw new IllegalStateException("Impossibile avviare lo stub Credem", e);
+        }
+        return Map.of(
+                "credem-api/mp-rest/url", stub.baseUrl(),
+                "quarkus.rest-client.credem-api.url", stub.baseUrl(),
+                "credem.account-id", accountIds().get(0));
+    }
+
+    @Override
+    public void stop() {
+        try {
+            if (stub != null) {
+                stub.close();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Impossibile fermare lo stub Credem", e);
+        }
+    }
+}
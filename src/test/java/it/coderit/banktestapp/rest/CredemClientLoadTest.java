@@ -0,0 +1,149 @@
+package it.coderit.banktestapp.rest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import io.quarkus.rest.client.reactive.QuarkusRestClientBuilder;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import it.coderit.banktestapp.CBISimulation.SyntheticTransactionGenerator;
+import it.coderit.banktestapp.dto.CredemTransactionResponse;
+
+/**
+ * Confronto di throughput tra CredemClient (bloccante, pool di thread limitato) e
+ * CredemReactiveClient (non bloccante) contro CredemApiStub con latenza simulata.
+ * Scarica tutte le pagine di molti account e stampa il numero di pagine al secondo.
+ * Non gira nella build normale: mvn test -Dcredem.loadtest=true -Dtest=CredemClientLoadTest
+ */
+@QuarkusTest
+@EnabledIfSystemProperty(named = "credem.loadtest", matches = "true")
+class CredemClientLoadTest {
+
+    private static final int ACCOUNTS = Integer.getInteger("credem.loadtest.accounts", 200);
+    private static final int LATENCY_MS = Integer.getInteger("credem.loadtest.latency-ms", 50);
+    private static final int BLOCKING_THREADS = Integer.getInteger("credem.loadtest.blocking-threads", 20);
+    private static final int ASYNC_CONCURRENCY = Integer.getInteger("credem.loadtest.async-concurrency", 200);
+    private static final int PAGE_SIZE = 100;
+
+    private static final String FROM = "2025-01-01";
+    private static final String TO = "2025-01-15";
+
+    private static CredemApiStub stub;
+
+    @BeforeAll
+    static void startStub() throws Exception {
+        stub = CredemApiStub.withDefaults(List.of(), LATENCY_MS).start();
+    }
+
+    @AfterAll
+    static void stopStub() throws Exception {
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void reactiveClientOutperformsBlockingClient() throws Exception {
+        URI baseUri = URI.create(stub.baseUrl());
+        CredemClient blockingClient = QuarkusRestClientBuilder.newBuilder().baseUri(baseUri).build(CredemClient.class);
+        CredemReactiveClient reactiveClient = QuarkusRestClientBuilder.newBuilder().baseUri(baseUri)
+                .build(CredemReactiveClient.class);
+        List<String> accounts = IntStream.range(0, ACCOUNTS).mapToObj(i -> "IT-LOAD-" + i).collect(Collectors.toList());
+
+        // Riscaldamento di entrambi i percorsi
+        fetchBlocking(blockingClient, accounts.subList(0, 10));
+        fetchReactive(reactiveClient, accounts.subList(0, 10));
+
+        long start = System.nanoTime();
+        int blockingPages = fetchBlocking(blockingClient, accounts);
+        long blockingNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int reactivePages = fetchReactive(reactiveClient, accounts);
+        long reactiveNanos = System.nanoTime() - start;
+
+        double blockingThroughput = blockingPages / (blockingNanos / 1e9);
+        double reactiveThroughput = reactivePages / (reactiveNanos / 1e9);
+        System.out.printf("Bloccante (%d thread): %d pagine in %d ms, %.1f pagine/s%n",
+                BLOCKING_THREADS, blockingPages, blockingNanos / 1_000_000, blockingThroughput);
+        System.out.printf("Reattivo (concorrenza %d): %d pagine in %d ms, %.1f pagine/s%n",
+                ASYNC_CONCURRENCY, reactivePages, reactiveNanos / 1_000_000, reactiveThroughput);
+
+        SyntheticTransactionGenerator generator = CredemApiStub.defaultGenerator();
+        int expectedPages = accounts.stream()
+                .mapToInt(id -> generator.count(id, LocalDate.parse(FROM), LocalDate.parse(TO)) / PAGE_SIZE + 1)
+                .sum();
+        assertEquals(expectedPages, blockingPages);
+        assertEquals(expectedPages, reactivePages);
+        assertTrue(reactiveThroughput > blockingThroughput,
+                "Il client reattivo dovrebbe avere un throughput maggiore del client bloccante");
+    }
+
+    // Ogni account scarica le sue pagine in sequenza su un thread del pool, come downloadAndSave
+    private int fetchBlocking(CredemClient client, List<String> accounts) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(BLOCKING_THREADS);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (String accountId : accounts) {
+                futures.add(pool.submit(() -> {
+                    int pages = 0;
+                    int offset = 0;
+                    while (true) {
+                        CredemTransactionResponse response = client.getTransactions("psu", "Bearer t", "req", "consent",
+                                "date", "digest", "sig", "cert", "psu-auth", "127.0.0.1", "ASPSP", accountId,
+                                FROM, TO, PAGE_SIZE, offset);
+                        pages++;
+                        if (response.booked == null || response.booked.size() < PAGE_SIZE) {
+                            return pages;
+                        }
+                        offset += PAGE_SIZE;
+                    }
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> future : futures) {
+                total += future.get();
+            }
+            return total;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Stessa sequenza di pagine per account, ma con gli account in parallelo tramite merge
+    private int fetchReactive(CredemReactiveClient client, List<String> accounts) {
+        return Multi.createFrom().iterable(accounts)
+                .onItem().transformToUni(accountId -> fetchReactivePages(client, accountId, 0, 0))
+                .merge(ASYNC_CONCURRENCY)
+                .collect().with(Collectors.summingInt(Integer::intValue))
+                .await().atMost(Duration.ofMinutes(5));
+    }
+
+    private Uni<Integer> fetchReactivePages(CredemReactiveClient client, String accountId, int offset, int pages) {
+        return client.getTransactions("psu", "Bearer t", "req", "consent", "date", "digest", "sig", "cert",
+                        "psu-auth", "127.0.0.1", "ASPSP", accountId, FROM, TO, PAGE_SIZE, offset)
+                .onItem().transformToUni(response -> {
+                    if (response.booked == null || response.booked.size() < PAGE_SIZE) {
+                        return Uni.createFrom().item(pages + 1);
+                    }
+                    return fetchReactivePages(client, accountId, offset + PAGE_SIZE, pages + 1);
+                });
+    }
+}
@@ -0,0 +1,76 @@
+package it.coderit.banktestapp.rest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class CredemRateLimiterTest {
+
+    // il burst è disponibile subito, le chiamate successive vengono distanziate alla velocità configurata
+    @Test
+    void tokenBucket_shouldSpaceCallsAfterBurst() {
+        TokenBucket bucket = new TokenBucket(10, 2);
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        long wait = bucket.reserve();
+        assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(50) && wait <= TimeUnit.MILLISECONDS.toNanos(100),
+                "attesa inattesa: " + wait);
+        // la prenotazione successiva si accoda dopo la precedente
+        assertTrue(bucket.reserve() > wait);
+    }
+
+    // il limite cresce solo se raggiunto con latenze basse e si dimezza su 429/503
+    @Test
+    void adaptiveLimit_shouldIncreaseAdditivelyAndDecreaseMultiplicatively() {
+        long threshold = TimeUnit.SECONDS.toNanos(1);
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 8, threshold, 0.5);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limit.tryAcquire());
+            assertTrue(limit.tryAcquire());
+            limit.release(TimeUnit.MILLISECONDS.toNanos(10), false);
+            limit.release(TimeUnit.MILLISECONDS.toNanos(10), false);
+        }
+        int increased = limit.currentLimit();
+        assertTrue(increased > 2, "il limite dovrebbe essere cresciuto: " + increased);
+
+        assertTrue(limit.tryAcquire());
+        limit.release(TimeUnit.MILLISECONDS.toNanos(10), true);
+        assertEquals(Math.max(1, increased / 2), limit.currentLimit(), 1);
+    }
+
+    // oltre il limite corrente tryAcquire fallisce finché un posto non viene rilasciato
+    @Test
+    void adaptiveLimit_shouldRejectWhenFull() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 4, TimeUnit.SECONDS.toNanos(1), 0.5);
+
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        limit.release();
+        assertTrue(limit.tryAcquire());
+    }
+
+    // Retry-After accetta sia i secondi sia una data HTTP
+    @Test
+    void parseRetryAfter_shouldSupportSecondsAndHttpDate() {
+        assertEquals(Duration.ofSeconds(30), CredemRateLimiter.parseRetryAfter("30"));
+
+        String httpDate = ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(120)
+                .format(DateTimeFormatter.RFC_1123_DATE_TIME);
+        Duration delay = CredemRateLimiter.parseRetryAfter(httpDate);
+        assertTrue(delay.toSeconds() > 100 && delay.toSeconds() <= 120, "ritardo inatteso: " + delay);
+
+        assertNull(CredemRateLimiter.parseRetryAfter(null));
+        assertNull(CredemRateLimiter.parseRetryAfter("domani"));
+    }
+}
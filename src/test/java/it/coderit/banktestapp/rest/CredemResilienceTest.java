@@ -0,0 +1,168 @@
+package it.coderit.banktestapp.rest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.WebApplicationException;
+
+public class CredemResilienceTest {
+
+    // dopo la soglia di errori consecutivi il circuito si apre e rifiuta le chiamate
+    @Test
+    void circuitBreaker_shouldOpenAfterConsecutiveFailures() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(3, TimeUnit.MINUTES.toNanos(1));
+
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        assertTrue(circuitBreaker.allowRequest());
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    // trascorso il tempo di apertura passa una sola chiamata di prova; se riesce il circuito si richiude
+    @Test
+    void circuitBreaker_shouldCloseAfterSuccessfulProbe() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 0);
+        circuitBreaker.onFailure();
+
+        assertTrue(circuitBreaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.state());
+        assertFalse(circuitBreaker.allowRequest());
+
+        circuitBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    // la chiamata di prova in HALF_OPEN riporta sempre l'esito: un 404 richiude il circuito, un'attesa interrotta lo riapre
+    @Test
+    void call_shouldReportNonTransientProbeResultToCircuitBreaker() {
+        CredemResilience resilience = resilience();
+        String aspsp = "MOCK_ASPSP_CODE";
+
+        assertThrows(WebApplicationException.class, () -> resilience.call(aspsp, "consent", "test", () -> {
+            throw new WebApplicationException(503);
+        }));
+        assertEquals("OPEN", resilience.circuitState(aspsp));
+
+        assertThrows(WebApplicationException.class, () -> resilience.call(aspsp, "consent", "test", () -> {
+            throw new WebApplicationException(404);
+        }));
+        assertEquals("CLOSED", resilience.circuitState(aspsp));
+
+        assertThrows(WebApplicationException.class, () -> resilience.call(aspsp, "consent", "test", () -> {
+            throw new WebApplicationException(503);
+        }));
+        assertThrows(IllegalStateException.class, () -> resilience.call(aspsp, "consent", "test", () -> {
+            throw new IllegalStateException("Attesa del rate limit interrotta");
+        }));
+        assertEquals("OPEN", resilience.circuitState(aspsp));
+    }
+
+    // stesso comportamento nel percorso non bloccante
+    @Test
+    void callAsync_shouldReportNonTransientProbeResultToCircuitBreaker() {
+        CredemResilience resilience = resilience();
+        String aspsp = "MOCK_ASPSP_CODE";
+
+        assertThrows(WebApplicationException.class, () -> resilience.<String>callAsync(aspsp, "consent", "test",
+                () -> Uni.createFrom().failure(new WebApplicationException(503))).await().indefinitely());
+        assertEquals("OPEN", resilience.circuitState(aspsp));
+
+        assertThrows(WebApplicationException.class, () -> resilience.<String>callAsync(aspsp, "consent", "test",
+                () -> Uni.createFrom().failure(new WebApplicationException(404))).await().indefinitely());
+        assertEquals("CLOSED", resilience.circuitState(aspsp));
+
+        assertThrows(WebApplicationException.class, () -> resilience.<String>callAsync(aspsp, "consent", "test",
+                () -> Uni.createFrom().failure(new WebApplicationException(503))).await().indefinitely());
+        assertThrows(IllegalStateException.class, () -> resilience.<String>callAsync(aspsp, "consent", "test",
+                () -> Uni.createFrom().failure(new IllegalStateException("Attesa del rate limit interrotta")))
+                .await().indefinitely());
+        assertEquals("OPEN", resilience.circuitState(aspsp));
+    }
+
+    // il backoff raddoppia a ogni tentativo, resta nel jitter configurato e non supera il massimo
+    @Test
+    void backoff_shouldGrowExponentiallyWithinJitterAndCap() {
+        CredemResilience resilience = new CredemResilience();
+        resilience.initialBackoff = Duration.ofMillis(100);
+        resilience.maxBackoff = Duration.ofMillis(1000);
+        resilience.jitter = 0.5;
+
+        for (int i = 0; i < 50; i++) {
+            long first = resilience.backoff(1).toMillis();
+            long third = resilience.backoff(3).toMillis();
+            long tenth = resilience.backoff(10).toMillis();
+            assertTrue(first >= 50 && first <= 150, "backoff inatteso: " + first);
+            assertTrue(third >= 200 && third <= 600, "backoff inatteso: " + third);
+            assertTrue(tenth >= 500 && tenth <= 1500, "backoff inatteso: " + tenth);
+        }
+    }
+
+    // vengono ritentati solo 429, 408, 5xx ed errori di connessione
+    @Test
+    void isTransient_shouldRetryOnlyTransientErrors() {
+        assertTrue(CredemResilience.isTransient(new WebApplicationException(429)));
+        assertTrue(CredemResilience.isTransient(new WebApplicationException(503)));
+        assertTrue(CredemResilience.isTransient(new ProcessingException("connection refused")));
+        assertFalse(CredemResilience.isTransient(new WebApplicationException(404)));
+        assertFalse(CredemResilience.isTransient(new CredemCircuitOpenException("MOCK_ASPSP_CODE")));
+        assertFalse(CredemResilience.isTransient(new IllegalArgumentException()));
+        assertTrue(CredemResilience.isBankRejection(new WebApplicationException(404)));
+        assertFalse(CredemResilience.isBankRejection(new WebApplicationException(503)));
+        assertFalse(CredemResilience.isBankRejection(new IllegalStateException()));
+    }
+
+    // un errore apre il circuito, riaperto subito per la chiamata di prova; nessun retry e nessun rate limit
+    // la Uni del client viene sottoscritta dopo la sua creazione: lo span credem.call deve essere ancora corrente
+    @Test
+    void callAsync_shouldKeepSpanCurrentDuringSubscription() {
+        InMemorySpans spans = new InMemorySpans();
+        CredemResilience resilience = resilience();
+        resilience.tracer = SdkTracerProvider.builder().addSpanProcessor(spans).build().get("test");
+
+        SpanContext current = resilience.callAsync("ASPSP", null, "test",
+                () -> Uni.createFrom().item(() -> Span.current().getSpanContext()))
+                .await().atMost(Duration.ofSeconds(5));
+
+        assertEquals(spans.named("credem.call").get(0).getSpanId(), current.getSpanId());
+    }
+
+    private static CredemResilience resilience() {
+        CredemResilience resilience = new CredemResilience();
+        resilience.tracer = OpenTelemetry.noop().getTracer("test");
+        resilience.credemRateLimiter = new CredemRateLimiter() {
+            @Override
+            public <T> T call(String aspspCode, String consentId, Supplier<T> call) {
+                return call.get();
+            }
+
+            @Override
+            public <T> Uni<T> callAsync(String aspspCode, String consentId, Supplier<Uni<T>> call) {
+                return Uni.createFrom().deferred(call::get);
+            }
+        };
+        resilience.maxAttempts = 1;
+        resilience.initialBackoff = Duration.ofMillis(1);
+        resilience.maxBackoff = Duration.ofMillis(1);
+        resilience.failureThreshold = 1;
+        resilience.openDuration = Duration.ZERO;
+        return resilience;
+    }
+}
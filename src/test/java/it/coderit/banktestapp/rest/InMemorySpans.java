@@ -0,0 +1,55 @@
+package it.coderit.banktestapp.rest;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import jakarta.inject.Singleton;
+
+/**
+ * SpanProcessor di test: Quarkus lo aggiunge al TracerProvider e tiene in memoria gli span conclusi.
+ */
+@Singleton
+public class InMemorySpans implements SpanProcessor {
+
+    private static final int MAX_SPANS = 10_000;
+
+    private final ConcurrentLinkedQueue<SpanData> spans = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        if (spans.size() < MAX_SPANS) {
+            spans.add(span.toSpanData());
+        }
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    public List<SpanData> named(String name) {
+        return spans.stream().filter(span -> span.getName().equals(name)).toList();
+    }
+
+    public List<SpanData> all() {
+        return List.copyOf(spans);
+    }
+
+    public void clear() {
+        spans.clear();
+    }
+}
@@ -0,0 +1,64 @@
+package it.coderit.banktestapp.scheduler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class InitialSyncHealthCheckTest {
+
+    private InitialSyncStatus status;
+    private InitialSyncHealthCheck readiness;
+    private ApplicationLivenessCheck liveness;
+
+    @BeforeEach
+    void setUp() {
+        status = new InitialSyncStatus();
+        readiness = new InitialSyncHealthCheck();
+        readiness.status = status;
+        liveness = new ApplicationLivenessCheck();
+        liveness.status = status;
+    }
+
+    private Object data(HealthCheckResponse response, String key) {
+        return response.getData().orElseThrow().get(key);
+    }
+
+    // avviata subito, pronta solo quando il primo download è concluso (anche se fallito)
+    @Test
+    void readiness_shouldBeDownWhileInitialSyncIsRunning() {
+        status.syncing();
+
+        assertEquals(HealthCheckResponse.Status.UP, liveness.call().getStatus());
+        assertEquals("started, syncing", data(liveness.call(), "status"));
+        assertEquals(HealthCheckResponse.Status.DOWN, readiness.call().getStatus());
+        assertEquals("syncing", data(readiness.call(), "state"));
+
+        status.finished("Servizio Credem non disponibile");
+
+        assertEquals("started", data(liveness.call(), "status"));
+        assertEquals(HealthCheckResponse.Status.UP, readiness.call().getStatus());
+        assertEquals("ready", data(readiness.call(), "state"));
+        assertEquals("Servizio Credem non disponibile", data(readiness.call(), "lastError"));
+    }
+
+    // primo download differito: l'app è pronta prima e resta pronta mentre scarica
+    @Test
+    void readiness_shouldBeUpWhenInitialSyncIsDeferred() {
+        status.deferred();
+        assertEquals(HealthCheckResponse.Status.UP, readiness.call().getStatus());
+        assertEquals("deferred", data(readiness.call(), "state"));
+
+        status.syncing();
+        assertEquals(HealthCheckResponse.Status.UP, readiness.call().getStatus());
+        assertEquals("started, syncing", data(liveness.call(), "status"));
+    }
+
+    // prima dell'evento di avvio l'app non è ancora pronta
+    @Test
+    void readiness_shouldBeDownBeforeStartup() {
+        assertEquals(HealthCheckResponse.Status.DOWN, readiness.call().getStatus());
+        assertEquals("starting", data(readiness.call(), "state"));
+    }
+}
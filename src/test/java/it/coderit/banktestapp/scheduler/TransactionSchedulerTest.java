@@ -0,0 +1,104 @@
+package it.coderit.banktestapp.scheduler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.smallrye.mutiny.Uni;
+import it.coderit.banktestapp.model.IngestionRun;
+import it.coderit.banktestapp.service.AsyncTransactionIngestionService;
+import it.coderit.banktestapp.service.AsyncTransactionIngestionService.AccountResult;
+import it.coderit.banktestapp.service.TransactionService;
+
+public class TransactionSchedulerTest {
+
+    private static final String ACCOUNT_ID = "IT-SCHEDULER-TEST";
+
+    private TransactionScheduler scheduler;
+    private TransactionService transactionService;
+    private AsyncTransactionIngestionService asyncIngestionService;
+
+    @BeforeEach
+    void setUp() {
+        transactionService = mock(TransactionService.class);
+        scheduler = new TransactionScheduler();
+        scheduler.transactionService = transactionService;
+        asyncIngestionService = mock(AsyncTransactionIngestionService.class);
+        scheduler.asyncIngestionService = asyncIngestionService;
+        scheduler.tracer = OpenTelemetry.noop().getTracer("test");
+        scheduler.daysBack = 1;
+        scheduler.accountId = ACCOUNT_ID;
+        scheduler.ingestionMode = "blocking";
+    }
+
+    // il cron che parte mentre il sync iniziale è ancora in corso salta, invece di scaricare in parallelo
+    @Test
+    void loadTransactions_shouldSkipWhileAnotherSyncIsRunning() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return IngestionRun.Status.COMPLETED;
+        }).when(transactionService).downloadAndSave(eq(ACCOUNT_ID), anyString(), anyString());
+
+        CompletableFuture<String> startup = CompletableFuture.supplyAsync(() -> scheduler.loadTransactions("startup"));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        assertNull(scheduler.loadTransactions("cron"));
+        release.countDown();
+        assertNull(startup.get(10, TimeUnit.SECONDS));
+        verify(transactionService, times(1)).downloadAndSave(eq(ACCOUNT_ID), anyString(), anyString());
+
+        // concluso il primo, il successivo scarica di nuovo
+        assertNull(scheduler.loadTransactions("cron"));
+        verify(transactionService, times(2)).downloadAndSave(eq(ACCOUNT_ID), anyString(), anyString());
+    }
+
+    // una pagina fallita chiude l'esecuzione come FAILED senza eccezioni: l'errore arriva comunque allo stato
+    @Test
+    void loadTransactions_shouldReportFailedRun() {
+        when(transactionService.downloadAndSave(eq(ACCOUNT_ID), anyString(), anyString()))
+                .thenReturn(IngestionRun.Status.FAILED);
+
+        assertEquals("Scaricamento movimenti non completato per accountId " + ACCOUNT_ID
+                + ": riprenderà dal checkpoint.", scheduler.loadTransactions("startup"));
+    }
+
+    // stesso controllo sul percorso non bloccante
+    @Test
+    void loadTransactions_shouldReportFailedAsyncRun() {
+        scheduler.ingestionMode = "async";
+        when(asyncIngestionService.ingestAccounts(eq(List.of(ACCOUNT_ID)), anyString(), anyString()))
+                .thenReturn(Uni.createFrom().item(List.of(
+                        new AccountResult(ACCOUNT_ID, IngestionRun.Status.FAILED, 120))));
+
+        assertEquals("Scaricamento movimenti non completato per accountId " + ACCOUNT_ID
+                + ": riprenderà dal checkpoint.", scheduler.loadTransactions("cron"));
+    }
+
+    // nulla da scaricare non è un errore
+    @Test
+    void loadTransactions_shouldReturnNullWhenSkipped() {
+        when(transactionService.downloadAndSave(eq(ACCOUNT_ID), anyString(), anyString()))
+                .thenReturn(IngestionRun.Status.SKIPPED);
+
+        assertNull(scheduler.loadTransactions("startup"));
+    }
+}
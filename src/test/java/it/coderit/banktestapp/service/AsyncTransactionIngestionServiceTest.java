@@ -0,0 +1,74 @@
+package it.coderit.banktestapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import it.coderit.banktestapp.CBISimulation.CbiTokenManager;
+import it.coderit.banktestapp.CBISimulation.MockCbiAuthService;
+import it.coderit.banktestapp.model.IngestionRun;
+import it.coderit.banktestapp.service.AsyncTransactionIngestionService.AccountResult;
+import it.coderit.banktestapp.service.IngestionMetrics.Run;
+
+public class AsyncTransactionIngestionServiceTest {
+
+    private static final String FAILING_ACCOUNT = "IT-FAILING";
+    private static final String OTHER_ACCOUNT = "IT-OTHER";
+
+    private AsyncTransactionIngestionService service;
+    private IngestionMetrics ingestionMetrics;
+    private final Map<String, Run> runs = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        ingestionMetrics = mock(IngestionMetrics.class);
+        when(ingestionMetrics.start(anyString(), anyString(), anyString(), any(), any())).thenAnswer(invocation -> {
+            Run run = new Run(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2),
+                    invocation.getArgument(3), invocation.getArgument(4));
+            runs.put(invocation.getArgument(0), run);
+            return run;
+        });
+
+        // Il piano fallisce per un solo account; per l'altro non c'è nulla da scaricare
+        CoverageService coverageService = mock(CoverageService.class);
+        when(coverageService.plan(eq(FAILING_ACCOUNT), any(), any())).thenThrow(new IllegalStateException("DB non disponibile"));
+        when(coverageService.plan(eq(OTHER_ACCOUNT), any(), any())).thenReturn(List.of());
+
+        service = new AsyncTransactionIngestionService();
+        service.ingestionMetrics = ingestionMetrics;
+        service.coverageService = coverageService;
+        service.cbiTokenManager = mock(CbiTokenManager.class);
+        service.mockCbiAuthService = mock(MockCbiAuthService.class);
+        service.concurrency = 2;
+    }
+
+    // un errore nella preparazione chiude l'esecuzione dell'account come FAILED senza fermare gli altri account
+    @Test
+    void ingestAccounts_shouldFinishFailedAccountAndContinueWithOthers() {
+        List<AccountResult> results = service.ingestAccounts(List.of(FAILING_ACCOUNT, OTHER_ACCOUNT),
+                LocalDate.of(2024, 1, 1).toString(), LocalDate.of(2024, 1, 31).toString())
+                .await().atMost(Duration.ofSeconds(10));
+
+        Map<String, IngestionRun.Status> statuses = results.stream()
+                .collect(Collectors.toMap(AccountResult::accountId, AccountResult::status));
+        assertEquals(Map.of(FAILING_ACCOUNT, IngestionRun.Status.FAILED, OTHER_ACCOUNT, IngestionRun.Status.SKIPPED),
+                statuses);
+        verify(ingestionMetrics).finish(runs.get(FAILING_ACCOUNT), IngestionRun.Status.FAILED);
+        verify(ingestionMetrics).finish(runs.get(OTHER_ACCOUNT), IngestionRun.Status.SKIPPED);
+        assertEquals("DB non disponibile", runs.get(FAILING_ACCOUNT).error);
+    }
+}
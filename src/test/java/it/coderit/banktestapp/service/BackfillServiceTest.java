@@ -0,0 +1,86 @@
+package it.coderit.banktestapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import it.coderit.banktestapp.service.BackfillService.Granularity;
+import it.coderit.banktestapp.service.BackfillService.Job;
+import it.coderit.banktestapp.service.BackfillService.Window;
+
+public class BackfillServiceTest {
+
+    // le finestre mensili seguono il calendario e la prima e l'ultima vengono troncate all'intervallo
+    @Test
+    void split_shouldAlignMonthlyWindowsToCalendar() {
+        List<Window> windows = BackfillService.split(LocalDate.of(2024, 1, 15), LocalDate.of(2024, 3, 10),
+                Granularity.MONTH);
+
+        assertEquals(List.of(
+                new Window(LocalDate.of(2024, 1, 15), LocalDate.of(2024, 1, 31)),
+                new Window(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29)),
+                new Window(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 10))), windows);
+    }
+
+    // le finestre settimanali vanno da lunedì a domenica
+    @Test
+    void split_shouldAlignWeeklyWindowsToIsoWeeks() {
+        // 2024-01-03 è un mercoledì
+        List<Window> windows = BackfillService.split(LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 16),
+                Granularity.WEEK);
+
+        assertEquals(List.of(
+                new Window(LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 7)),
+                new Window(LocalDate.of(2024, 1, 8), LocalDate.of(2024, 1, 14)),
+                new Window(LocalDate.of(2024, 1, 15), LocalDate.of(2024, 1, 16))), windows);
+    }
+
+    // un intervallo di un solo giorno produce una sola finestra
+    @Test
+    void split_shouldReturnSingleWindowForSingleDay() {
+        LocalDate day = LocalDate.of(2024, 5, 31);
+        assertEquals(List.of(new Window(day, day)), BackfillService.split(day, day, Granularity.MONTH));
+    }
+
+    // in backfill_window solo le finestre che finiscono prima dei giorni ancora modificabili
+    @Test
+    void isStable_shouldExcludeWindowsReachingMutableDays() {
+        LocalDate cutoff = LocalDate.of(2024, 6, 10);
+
+        assertTrue(BackfillService.isStable(new Window(LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 9)), cutoff));
+        assertFalse(BackfillService.isStable(new Window(LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 10)), cutoff));
+        assertFalse(BackfillService.isStable(new Window(LocalDate.of(2024, 6, 10), LocalDate.of(2024, 6, 16)), cutoff));
+    }
+
+    // vengono scartati i backfill terminati scaduti e, oltre il massimo, i terminati più vecchi; mai quelli in corso
+    @Test
+    void evictFinishedJobs_shouldDropExpiredAndOldestFinishedJobs() {
+        BackfillService service = new BackfillService();
+        service.jobRetention = Duration.ofHours(1);
+        service.maxJobs = 3;
+        OffsetDateTime now = OffsetDateTime.now();
+        addJob(service, "expired", now.minusHours(2));
+        addJob(service, "old", now.minusMinutes(30));
+        addJob(service, "recent", now.minusMinutes(5));
+        addJob(service, "running", null);
+
+        service.evictFinishedJobs();
+
+        // resta posto per il nuovo backfill
+        assertEquals(Set.of("recent", "running"), service.jobs.keySet());
+    }
+
+    private static void addJob(BackfillService service, String id, OffsetDateTime finishedAt) {
+        Job job = new Job(id, "IT001", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), Granularity.MONTH, 1, 0);
+        job.finishedAt = finishedAt;
+        service.jobs.put(id, job);
+    }
+}
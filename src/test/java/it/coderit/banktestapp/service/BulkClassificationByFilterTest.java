@@ -0,0 +1,117 @@
+package it.coderit.banktestapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import it.coderit.banktestapp.dto.BulkClassificationRequest;
+import it.coderit.banktestapp.dto.BulkClassificationResult;
+import it.coderit.banktestapp.dto.CredemTransactionResponse.TransactionData;
+import it.coderit.banktestapp.model.CenterType;
+import it.coderit.banktestapp.model.Currency;
+import it.coderit.banktestapp.model.Transaction;
+import it.coderit.banktestapp.repository.TransactionRepository;
+import it.coderit.banktestapp.repository.TransactionRepository.FilterClassification;
+import jakarta.inject.Inject;
+
+@QuarkusTest
+public class BulkClassificationByFilterTest {
+
+    private static final String ACCOUNT_ID = "IT-BULK-FILTER-TEST";
+
+    @Inject
+    TransactionService transactionService;
+
+    @Inject
+    TransactionRepository transactionRepository;
+
+    @AfterEach
+    void cleanUp() {
+        QuarkusTransaction.requiringNew().run(() -> transactionRepository.delete("accountId", ACCOUNT_ID));
+    }
+
+    private static TransactionData transaction(String id, String bookingDate, String remittance) {
+        TransactionData transaction = new TransactionData();
+        transaction.transactionId = id;
+        transaction.bookingDate = bookingDate;
+        transaction.transactionAmount = new TransactionData.Amount();
+        transaction.transactionAmount.amount = new BigDecimal("-10.00");
+        transaction.transactionAmount.currency = Currency.EUR;
+        transaction.remittanceInformationUnstructured = remittance;
+        return transaction;
+    }
+
+    private static BulkClassificationRequest.Filter filter(LocalDate from, LocalDate to, String keyword) {
+        BulkClassificationRequest.Filter filter = new BulkClassificationRequest.Filter();
+        filter.from = from;
+        filter.to = to;
+        filter.keyword = keyword;
+        return filter;
+    }
+
+    private CenterType centerTypeOf(String transactionId) {
+        return QuarkusTransaction.requiringNew().call(() -> transactionRepository.findByTransactionId(transactionId)
+                .map(Transaction::getCenterType).orElseThrow());
+    }
+
+    // aggiorna solo le righe del filtro (data 'to' inclusa) e restituisce esattamente gli id aggiornati
+    @Test
+    void bulkManualClassifyByFilter_shouldReturnUpdatedIds() {
+        transactionService.saveTransactionsFromDTOList(List.of(
+                transaction("BULKF-1", "2024-04-01T10:00:00Z", "Noleggio sala"),
+                transaction("BULKF-2", "2024-04-30T23:00:00Z", "Noleggio auto"),
+                transaction("BULKF-3", "2024-05-01T10:00:00Z", "Noleggio furgone"),
+                transaction("BULKF-4", "2024-04-15T10:00:00Z", "Canone")), ACCOUNT_ID);
+
+        BulkClassificationResult result = transactionService.bulkManualClassifyByFilter(ACCOUNT_ID,
+                filter(LocalDate.of(2024, 4, 1), LocalDate.of(2024, 4, 30), "noleggio"), CenterType.PROFITTO);
+
+        assertEquals(2, result.updated);
+        assertEquals(List.of("BULKF-1", "BULKF-2"),
+                result.results.stream().map(item -> item.transactionId).sorted().toList());
+        assertTrue(result.results.stream().allMatch(item -> item.status == BulkClassificationResult.Status.CLASSIFIED));
+        assertEquals(CenterType.PROFITTO, centerTypeOf("BULKF-2"));
+        assertTrue(centerTypeOf("BULKF-3") != CenterType.PROFITTO);
+    }
+
+    // le transazioni già classificate manualmente non vengono sovrascritte dal filtro
+    @Test
+    void bulkManualClassifyByFilter_shouldSkipManuallyClassified() {
+        transactionService.saveTransactionsFromDTOList(List.of(
+                transaction("BULKF-5", "2024-04-01T10:00:00Z", "Noleggio sala"),
+                transaction("BULKF-6", "2024-04-02T10:00:00Z", "Noleggio auto")), ACCOUNT_ID);
+        transactionService.bulkManualClassifyByFilter(ACCOUNT_ID, filter(null, null, "sala"), CenterType.COSTO);
+
+        BulkClassificationResult result = transactionService.bulkManualClassifyByFilter(ACCOUNT_ID,
+                filter(null, null, "noleggio"), CenterType.PROFITTO);
+
+        assertEquals(1, result.updated);
+        assertEquals("BULKF-6", result.results.get(0).transactionId);
+        assertEquals(CenterType.COSTO, centerTypeOf("BULKF-5"));
+    }
+
+    // vengono aggiornate tutte le righe del filtro, ma restituiti al massimo maxIds transactionId
+    @Test
+    void classifyByFilter_shouldCapReturnedIdsAndCountAllUpdates() {
+        transactionService.saveTransactionsFromDTOList(List.of(
+                transaction("BULKF-7", "2024-04-01T10:00:00Z", "Noleggio sala"),
+                transaction("BULKF-8", "2024-04-02T10:00:00Z", "Noleggio auto"),
+                transaction("BULKF-9", "2024-04-03T10:00:00Z", "Noleggio furgone")), ACCOUNT_ID);
+
+        FilterClassification classification = QuarkusTransaction.requiringNew().call(() -> transactionRepository
+                .classifyByFilter(ACCOUNT_ID, null, null, null, "noleggio", CenterType.COSTO, 2));
+
+        assertEquals(3, classification.updated());
+        assertEquals(2, classification.transactionIds().size());
+        assertEquals(CenterType.COSTO, centerTypeOf("BULKF-7"));
+        assertEquals(CenterType.COSTO, centerTypeOf("BULKF-9"));
+    }
+}
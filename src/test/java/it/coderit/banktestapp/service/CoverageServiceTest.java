@@ -0,0 +1,58 @@
+package it.coderit.banktestapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import it.coderit.banktestapp.service.CoverageService.DateRange;
+
+public class CoverageServiceTest {
+
+    private static DateRange range(String from, String to) {
+        return new DateRange(LocalDate.parse(from), LocalDate.parse(to));
+    }
+
+    // intervalli sovrapposti o adiacenti vengono fusi, quelli separati restano distinti
+    @Test
+    void merge_shouldJoinOverlappingAndAdjacentRanges() {
+        List<DateRange> merged = CoverageService.merge(List.of(
+                range("2024-03-01", "2024-03-31"),
+                range("2024-01-01", "2024-01-31"),
+                range("2024-02-01", "2024-02-10"),
+                range("2024-01-20", "2024-01-25"),
+                range("2024-02-15", "2024-02-20"),
+                range("2024-02-21", "2024-02-29")));
+
+        assertEquals(List.of(
+                range("2024-01-01", "2024-02-10"),
+                range("2024-02-15", "2024-03-31")), merged);
+    }
+
+    // restano solo i buchi dell'intervallo richiesto non coperti
+    @Test
+    void subtract_shouldReturnUncoveredGaps() {
+        List<DateRange> covered = List.of(
+                range("2024-01-01", "2024-01-31"),
+                range("2024-02-15", "2024-02-20"));
+
+        assertEquals(List.of(
+                range("2024-02-01", "2024-02-14"),
+                range("2024-02-21", "2024-03-10")),
+                CoverageService.subtract(range("2024-01-10", "2024-03-10"), covered));
+    }
+
+    // intervallo interamente coperto o senza copertura
+    @Test
+    void subtract_shouldHandleFullAndEmptyCoverage() {
+        List<DateRange> covered = List.of(range("2024-01-01", "2024-12-31"));
+
+        assertEquals(List.of(), CoverageService.subtract(range("2024-05-01", "2024-05-31"), covered));
+        assertEquals(List.of(range("2025-01-01", "2025-01-31")),
+                CoverageService.subtract(range("2025-01-01", "2025-01-31"), covered));
+        assertEquals(List.of(range("2024-05-01", "2024-05-31")),
+                CoverageService.subtract(range("2024-05-01", "2024-05-31"), List.of()));
+    }
+}
@@ -0,0 +1,51 @@
+package it.coderit.banktestapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.StringWriter;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+
+import org.junit.jupiter.api.Test;
+
+public class CsvRowFormatterTest {
+
+    // ResultSet di una riga con una colonna numerica (amount) seguita da colonne di testo
+    private static ResultSet row(String amount, String... texts) throws Exception {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnType(1)).thenReturn(Types.NUMERIC);
+        when(rs.getString(1)).thenReturn(amount);
+        for (int i = 0; i < texts.length; i++) {
+            when(metaData.getColumnType(i + 2)).thenReturn(Types.VARCHAR);
+            when(rs.getString(i + 2)).thenReturn(texts[i]);
+        }
+        return rs;
+    }
+
+    private static String format(ResultSet rs, int columnCount) throws Exception {
+        StringWriter out = new StringWriter();
+        new CsvRowFormatter(';', columnCount).writeRow(rs, out);
+        return out.toString();
+    }
+
+    // i testi che un foglio di calcolo leggerebbe come formule vengono preceduti da un apice
+    @Test
+    void writeRow_shouldEscapeFormulaPrefixesInTextColumns() throws Exception {
+        ResultSet rs = row("-10.00", "=SUM(A1:A2)", "+39 055", "-storno", "@cmd", "\tinizio", "Acquisto");
+
+        assertEquals("-10.00;'=SUM(A1:A2);'+39 055;'-storno;'@cmd;'\tinizio;Acquisto\n", format(rs, 7));
+    }
+
+    // l'apice precede il valore anche quando il campo va racchiuso tra virgolette
+    @Test
+    void writeRow_shouldEscapeBeforeQuoting() throws Exception {
+        ResultSet rs = row("5.00", "\rriga", "=\"x\";y", null);
+
+        assertEquals("5.00;\"'\rriga\";\"'=\"\"x\"\";y\";\n", format(rs, 4));
+    }
+}
@@ -0,0 +1,68 @@
+package it.coderit.banktestapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.coderit.banktestapp.service.IngestionMetrics.RowCounts;
+import it.coderit.banktestapp.service.IngestionMetrics.Run;
+import it.coderit.banktestapp.service.IngestionMetrics.Stage;
+
+public class IngestionMetricsTest {
+
+    private static final String ACCOUNT = "IT001000000000000000001";
+    private static final String ASPSP = "MOCK_ASPSP_CODE";
+
+    private SimpleMeterRegistry registry;
+    private IngestionMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new IngestionMetrics();
+        metrics.registry = registry;
+        metrics.profilingService = new ProfilingService();
+    }
+
+    private double rows(String result) {
+        return registry.get("ingestion.rows").tags("account", ACCOUNT, "aspsp", ASPSP, "result", result)
+                .counter().count();
+    }
+
+    // i contatori per account/ASPSP si sommano pagina dopo pagina, le pagine invariate contano come duplicate
+    @Test
+    void recordRows_shouldAccumulateCountersByResult() {
+        Run run = metrics.start(ACCOUNT, ASPSP, "blocking", LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31));
+
+        metrics.recordPage(run);
+        metrics.recordRows(ACCOUNT, ASPSP, new RowCounts(100, 40, 90, 10));
+        metrics.recordPage(run);
+        metrics.recordRows(ACCOUNT, ASPSP, RowCounts.unchangedPage(50));
+
+        assertEquals(2, run.pages());
+        assertEquals(2.0, registry.get("ingestion.pages").tags("account", ACCOUNT, "aspsp", ASPSP).counter().count());
+        assertEquals(100.0, rows("mapped"));
+        assertEquals(40.0, rows("classified"));
+        assertEquals(90.0, rows("inserted"));
+        assertEquals(60.0, rows("duplicate"));
+    }
+
+    // un timer per fase, con i tag di account e ASPSP
+    @Test
+    void recordStage_shouldTimeEachStageSeparately() {
+        metrics.recordStage(Stage.BANK_CALL, ACCOUNT, ASPSP, TimeUnit.MILLISECONDS.toNanos(120));
+        metrics.recordStage(Stage.BANK_CALL, ACCOUNT, ASPSP, TimeUnit.MILLISECONDS.toNanos(80));
+        metrics.recordStage(Stage.DB_WRITE, ACCOUNT, ASPSP, TimeUnit.MILLISECONDS.toNanos(30));
+
+        assertEquals(2, registry.get("ingestion.stage.duration").tags("stage", "bank_call").timer().count());
+        assertEquals(200.0, registry.get("ingestion.stage.duration").tags("stage", "bank_call").timer()
+                .totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(1, registry.get("ingestion.stage.duration").tags("stage", "db_write", "account", ACCOUNT)
+                .timer().count());
+    }
+}
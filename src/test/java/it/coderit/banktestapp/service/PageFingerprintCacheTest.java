@@ -0,0 +1,103 @@
+package it.coderit.banktestapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import it.coderit.banktestapp.dto.CredemTransactionResponse.TransactionData;
+import it.coderit.banktestapp.service.PageFingerprintCache.PageKey;
+
+public class PageFingerprintCacheTest {
+
+    private static final PageKey KEY = new PageKey("IT001", "2025-01-01", "2025-01-31", 0, 100);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private PageFingerprintCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new PageFingerprintCache();
+        cache.objectMapper = new ObjectMapper();
+        cache.enabled = true;
+        cache.ttl = Duration.ofMinutes(15);
+        cache.maximumSize = 100;
+        cache.ticker = nanos::get;
+        cache.initCache();
+    }
+
+    private static TransactionData transaction(String id, String amount) {
+        TransactionData transaction = new TransactionData();
+        transaction.transactionId = id;
+        transaction.bookingDate = "2025-01-10";
+        transaction.transactionAmount = new TransactionData.Amount();
+        transaction.transactionAmount.amount = new BigDecimal(amount);
+        return transaction;
+    }
+
+    // stessa chiave e stesso contenuto: la pagina viene saltata
+    @Test
+    void isUnchanged_shouldSkipSamePageWithSameContent() {
+        String fingerprint = cache.fingerprint(List.of(transaction("TX-1", "-10.00")));
+        cache.remember(KEY, fingerprint);
+
+        assertEquals(fingerprint, cache.fingerprint(List.of(transaction("TX-1", "-10.00"))));
+        assertTrue(cache.isUnchanged(KEY, cache.fingerprint(List.of(transaction("TX-1", "-10.00")))));
+    }
+
+    // contenuto diverso sulla stessa chiave: la pagina va salvata
+    @Test
+    void isUnchanged_shouldNotSkipWhenContentChanges() {
+        cache.remember(KEY, cache.fingerprint(List.of(transaction("TX-1", "-10.00"))));
+        String changed = cache.fingerprint(List.of(transaction("TX-1", "-12.00")));
+
+        assertNotEquals(cache.fingerprint(List.of(transaction("TX-1", "-10.00"))), changed);
+        assertFalse(cache.isUnchanged(KEY, changed));
+    }
+
+    // stesso contenuto ma offset, limit o finestra diversi: la pagina va salvata
+    @Test
+    void isUnchanged_shouldNotSkipForDifferentKey() {
+        String fingerprint = cache.fingerprint(List.of(transaction("TX-1", "-10.00")));
+        cache.remember(KEY, fingerprint);
+
+        assertFalse(cache.isUnchanged(new PageKey("IT001", "2025-01-01", "2025-01-31", 100, 100), fingerprint));
+        assertFalse(cache.isUnchanged(new PageKey("IT001", "2025-01-01", "2025-01-31", 0, 200), fingerprint));
+        assertFalse(cache.isUnchanged(new PageKey("IT001", "2025-01-02", "2025-01-31", 0, 100), fingerprint));
+        assertFalse(cache.isUnchanged(new PageKey("IT002", "2025-01-01", "2025-01-31", 0, 100), fingerprint));
+    }
+
+    // trascorso il TTL l'impronta scade e la pagina viene salvata di nuovo
+    @Test
+    void isUnchanged_shouldNotSkipAfterTtl() {
+        String fingerprint = cache.fingerprint(List.of(transaction("TX-1", "-10.00")));
+        cache.remember(KEY, fingerprint);
+
+        nanos.addAndGet(Duration.ofMinutes(14).toNanos());
+        assertTrue(cache.isUnchanged(KEY, fingerprint));
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertFalse(cache.isUnchanged(KEY, fingerprint));
+    }
+
+    // con la funzionalità disabilitata non c'è impronta e nessuna pagina viene saltata
+    @Test
+    void fingerprint_shouldBeNullWhenDisabled() {
+        cache.enabled = false;
+        String fingerprint = cache.fingerprint(List.of(transaction("TX-1", "-10.00")));
+        cache.remember(KEY, fingerprint);
+
+        assertNull(fingerprint);
+        assertFalse(cache.isUnchanged(KEY, fingerprint));
+    }
+}
@@ -0,0 +1,88 @@
+package it.coderit.banktestapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import it.coderit.banktestapp.service.PageSizeTuner.BankState;
+import it.coderit.banktestapp.service.PageSizeTuner.BestSize;
+
+public class PageSizeTunerTest {
+
+    // finché la latenza per riga migliora la pagina raddoppia e la migliore segue
+    @Test
+    void onPage_shouldDoubleWhileLatencyPerRowImproves() {
+        BankState state = new BankState(25, 500, 100, null);
+
+        state.onPage(100, 1000, false);
+        assertEquals(200, state.current());
+        state.onPage(200, 800, false);
+        assertEquals(400, state.current());
+        assertEquals(new BestSize(200, 800), state.bestIfChanged());
+    }
+
+    // una pagina più grande ma peggiore fa tornare alla migliore, che poi non viene più superata
+    @Test
+    void onPage_shouldBackOffToBestWhenLargerPageIsWorse() {
+        BankState state = new BankState(25, 500, 100, null);
+        state.onPage(100, 1000, false);
+        state.onPage(200, 800, false);
+
+        state.onPage(400, 1200, false);
+        assertEquals(200, state.current());
+        state.onPage(200, 800, false);
+        assertEquals(200, state.current());
+    }
+
+    // una pagina oltre target-latency dimezza la dimensione
+    @Test
+    void onPage_shouldHalveWhenPageIsTooSlow() {
+        BankState state = new BankState(25, 500, 100, null);
+
+        state.onPage(100, 1000, true);
+        assertEquals(50, state.current());
+    }
+
+    // un errore dimezza la dimensione corrente e abbassa la migliore
+    @Test
+    void onError_shouldHalvePageSizeAndBest() {
+        BankState state = new BankState(25, 500, 200, 800.0);
+
+        state.onError(200);
+        assertEquals(100, state.current());
+        state.onPage(100, 900, false);
+        assertEquals(100, state.bestIfChanged().pageSize());
+    }
+
+    // la dimensione non scende sotto il minimo né supera il massimo
+    @Test
+    void bankState_shouldStayWithinBounds() {
+        BankState small = new BankState(25, 500, 40, null);
+        small.onError(40);
+        assertEquals(25, small.current());
+        small.onError(25);
+        assertEquals(25, small.current());
+        small.onPage(25, 1000, true);
+        assertEquals(25, small.current());
+
+        BankState large = new BankState(25, 500, 400, null);
+        large.onPage(400, 1000, false);
+        assertEquals(500, large.current());
+        large.onPage(500, 900, false);
+        assertEquals(500, large.current());
+    }
+
+    // la migliore viene restituita per il salvataggio solo quando cambia
+    @Test
+    void bestIfChanged_shouldReportOnlyChanges() {
+        BankState state = new BankState(25, 500, 100, 1000.0);
+        assertNull(state.bestIfChanged());
+
+        state.onPage(100, 1000, true);
+        assertNull(state.bestIfChanged());
+        state.onPage(50, 500, false);
+        assertEquals(50, state.bestIfChanged().pageSize());
+        assertNull(state.bestIfChanged());
+    }
+}
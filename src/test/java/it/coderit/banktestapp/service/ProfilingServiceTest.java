@@ -0,0 +1,105 @@
+package it.coderit.banktestapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import it.coderit.banktestapp.dto.RecordingInfo;
+import jdk.jfr.Configuration;
+
+public class ProfilingServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private ProfilingService profilingService;
+
+    @BeforeEach
+    void setUp() {
+        profilingService = new ProfilingService();
+        profilingService.directory = directory.toString();
+        profilingService.defaultSettings = "default";
+        profilingService.settingsDirectory = Optional.of(directory.toString());
+        profilingService.defaultDuration = Duration.ofSeconds(30);
+        profilingService.maxDuration = Duration.ofMinutes(1);
+        profilingService.autoEnabled = true;
+        profilingService.syncThreshold = Duration.ofMillis(100);
+        profilingService.autoDuration = Duration.ofSeconds(30);
+        profilingService.autoCooldown = Duration.ofMinutes(30);
+        profilingService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        profilingService.shutdown();
+    }
+
+    // una sincronizzazione ancora in corso oltre la soglia avvia una registrazione "slow-sync"
+    @Test
+    void watchSlowSync_shouldStartRecording_whenSyncExceedsThreshold() throws Exception {
+        profilingService.watchSlowSync("blocking IT001 da 2025-01-01 a 2025-01-31");
+
+        List<RecordingInfo> recordings = List.of();
+        for (int i = 0; i < 50 && recordings.isEmpty(); i++) {
+            Thread.sleep(50);
+            recordings = profilingService.list();
+        }
+        assertEquals(1, recordings.size());
+        assertEquals(RecordingInfo.Status.RUNNING, recordings.get(0).status);
+        assertEquals("slow-sync", recordings.get(0).reason);
+
+        RecordingInfo stopped = profilingService.stop().orElseThrow();
+        assertEquals(RecordingInfo.Status.COMPLETED, stopped.status);
+        assertTrue(stopped.sizeBytes > 0);
+    }
+
+    // sincronizzazione conclusa prima della soglia: il watchdog annullato non registra nulla
+    @Test
+    void watchSlowSync_shouldNotRecord_whenCancelledBeforeThreshold() throws Exception {
+        Future<?> watch = profilingService.watchSlowSync("blocking IT001 da 2025-01-01 a 2025-01-31");
+        watch.cancel(false);
+
+        Thread.sleep(300);
+        assertTrue(profilingService.list().isEmpty());
+    }
+
+    // le richieste non possono indicare percorsi: solo default, profile o un file della directory configurata
+    @Test
+    void start_shouldRejectSettingsPaths() throws Exception {
+        Path outside = Files.createTempFile("outside", ".jfc");
+        Files.writeString(outside, Configuration.getConfiguration("default").getContents());
+        try {
+            assertThrows(IllegalArgumentException.class,
+                    () -> profilingService.start(null, outside.toString(), "manual"));
+            assertThrows(IllegalArgumentException.class,
+                    () -> profilingService.start(null, "../" + outside.getFileName(), "manual"));
+            assertTrue(profilingService.list().isEmpty());
+        } finally {
+            Files.delete(outside);
+        }
+    }
+
+    // un file .jfc della directory configurata si sceglie per nome
+    @Test
+    void start_shouldUseSettingsFileFromConfiguredDirectory() throws Exception {
+        Files.writeString(directory.resolve("custom.jfc"), Configuration.getConfiguration("default").getContents());
+
+        RecordingInfo info = profilingService.start(null, "custom.jfc", "manual");
+
+        assertEquals(RecordingInfo.Status.RUNNING, info.status);
+        assertEquals("custom.jfc", info.settings);
+        profilingService.stop();
+    }
+}
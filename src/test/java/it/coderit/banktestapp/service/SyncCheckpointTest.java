@@ -0,0 +1,123 @@
+package it.coderit.banktestapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import it.coderit.banktestapp.dto.CredemTransactionResponse.TransactionData;
+import it.coderit.banktestapp.model.AccountSyncMarker;
+import it.coderit.banktestapp.model.Currency;
+import it.coderit.banktestapp.repository.AccountCoverageRepository;
+import it.coderit.banktestapp.repository.AccountSyncMarkerRepository;
+import it.coderit.banktestapp.repository.SyncCheckpointRepository;
+import it.coderit.banktestapp.repository.TransactionRepository;
+import it.coderit.banktestapp.service.CoverageService.DateRange;
+import jakarta.inject.Inject;
+
+@QuarkusTest
+public class SyncCheckpointTest {
+
+    private static final String ACCOUNT_ID = "IT-CHECKPOINT-TEST";
+    private static final LocalDate FROM = LocalDate.of(2024, 2, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 2, 29);
+
+    @Inject
+    TransactionService transactionService;
+
+    @Inject
+    CoverageService coverageService;
+
+    @Inject
+    TransactionRepository transactionRepository;
+
+    @Inject
+    SyncCheckpointRepository syncCheckpointRepository;
+
+    @Inject
+    AccountCoverageRepository accountCoverageRepository;
+
+    @Inject
+    AccountSyncMarkerRepository accountSyncMarkerRepository;
+
+    @AfterEach
+    void cleanUp() {
+        QuarkusTransaction.requiringNew().run(() -> {
+            transactionRepository.delete("accountId", ACCOUNT_ID);
+            syncCheckpointRepository.clear(ACCOUNT_ID);
+            accountCoverageRepository.deleteByAccount(ACCOUNT_ID);
+            accountSyncMarkerRepository.deleteById(ACCOUNT_ID);
+        });
+    }
+
+    private static TransactionData transaction(String id, String bookingDate) {
+        TransactionData transaction = new TransactionData();
+        transaction.transactionId = id;
+        transaction.bookingDate = bookingDate;
+        transaction.transactionAmount = new TransactionData.Amount();
+        transaction.transactionAmount.amount = new BigDecimal("-10.00");
+        transaction.transactionAmount.currency = Currency.EUR;
+        transaction.remittanceInformationUnstructured = "Acquisto checkpoint";
+        return transaction;
+    }
+
+    // ogni pagina salvata sposta il checkpoint, che vale solo per la stessa finestra
+    @Test
+    void savePage_shouldAdvanceCheckpointForSameWindow() {
+        transactionService.savePage(List.of(transaction("CKP-1", "2024-02-05T00:00:00Z")), ACCOUNT_ID, FROM, TO, 100);
+        assertEquals(100, transactionService.resumeOffset(ACCOUNT_ID, FROM, TO));
+
+        transactionService.savePage(List.of(transaction("CKP-2", "2024-02-06T00:00:00Z")), ACCOUNT_ID, FROM, TO, 200);
+        assertEquals(200, transactionService.resumeOffset(ACCOUNT_ID, FROM, TO));
+
+        assertEquals(0, transactionService.resumeOffset(ACCOUNT_ID, FROM, TO.minusDays(1)));
+        assertEquals(0, transactionService.resumeOffset("IT-ALTRO-ACCOUNT", FROM, TO));
+        assertEquals(2, QuarkusTransaction.requiringNew().call(() -> transactionRepository.count("accountId", ACCOUNT_ID)));
+    }
+
+    // se il salvataggio della pagina fallisce il checkpoint non avanza: si riprende dalla stessa pagina
+    @Test
+    void savePage_shouldNotAdvanceCheckpointWhenPageFails() {
+        transactionService.savePage(List.of(transaction("CKP-1", "2024-02-05T00:00:00Z")), ACCOUNT_ID, FROM, TO, 100);
+
+        assertThrows(RuntimeException.class, () -> transactionService.savePage(
+                List.of(transaction("CKP-2", "2024-02-06T00:00:00Z"), transaction("CKP-3", "non-una-data")),
+                ACCOUNT_ID, FROM, TO, 200));
+
+        assertEquals(100, transactionService.resumeOffset(ACCOUNT_ID, FROM, TO));
+        assertEquals(1, QuarkusTransaction.requiringNew().call(() -> transactionRepository.count("accountId", ACCOUNT_ID)));
+    }
+
+    // a fine finestra il checkpoint sparisce, la finestra entra nella copertura e il marker viene salvato con la finestra
+    @Test
+    void completeSync_shouldClearCheckpointAndRecordCoverageAndMarker() {
+        transactionService.savePage(List.of(transaction("CKP-1", "2024-02-05T00:00:00Z")), ACCOUNT_ID, FROM, TO, 100);
+
+        transactionService.completeSync(ACCOUNT_ID, FROM, TO, "M1");
+
+        assertEquals(0, transactionService.resumeOffset(ACCOUNT_ID, FROM, TO));
+        assertEquals(List.of(new DateRange(FROM, TO)), coverageService.covered(ACCOUNT_ID));
+        AccountSyncMarker marker = QuarkusTransaction.requiringNew()
+                .call(() -> accountSyncMarkerRepository.findById(ACCOUNT_ID));
+        assertEquals("M1", marker.balanceMarker);
+        assertEquals(FROM, marker.syncedFrom);
+        assertEquals(TO, marker.syncedTo);
+    }
+
+    // senza marker (finestra storica o saldi non disponibili) non viene salvato nulla per il salto
+    @Test
+    void completeSync_shouldNotStoreMarkerWhenAbsent() {
+        transactionService.completeSync(ACCOUNT_ID, FROM, TO, null);
+
+        assertNull(QuarkusTransaction.requiringNew().call(() -> accountSyncMarkerRepository.findById(ACCOUNT_ID)));
+        assertEquals(List.of(new DateRange(FROM, TO)), coverageService.covered(ACCOUNT_ID));
+    }
+}
@@ -0,0 +1,99 @@
+package it.coderit.banktestapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import it.coderit.banktestapp.dto.CredemAccountResponse.AccountBalance;
+import it.coderit.banktestapp.dto.CredemBalancesResponse;
+import it.coderit.banktestapp.model.AccountSyncMarker;
+import it.coderit.banktestapp.service.CoverageService.DateRange;
+
+public class TransactionServiceTest {
+
+    private static AccountBalance balance(String type, String lastEntry, OffsetDateTime lastChange) {
+        AccountBalance balance = new AccountBalance();
+        balance.balanceType = type;
+        balance.lastCommittedTransactionEntry = lastEntry;
+        balance.lastChangeDateTime = lastChange;
+        return balance;
+    }
+
+    private static CredemBalancesResponse balances(AccountBalance... balances) {
+        CredemBalancesResponse response = new CredemBalancesResponse();
+        response.balances = new ArrayList<>(List.of(balances));
+        return response;
+    }
+
+    private static AccountSyncMarker stored(String balanceMarker, String from, String to) {
+        AccountSyncMarker marker = new AccountSyncMarker();
+        marker.balanceMarker = balanceMarker;
+        marker.syncedFrom = LocalDate.parse(from);
+        marker.syncedTo = LocalDate.parse(to);
+        return marker;
+    }
+
+    private static DateRange range(String from, String to) {
+        return new DateRange(LocalDate.parse(from), LocalDate.parse(to));
+    }
+
+    // il marker non dipende dall'ordine dei saldi né dal fuso di lastChangeDateTime
+    @Test
+    void balanceMarker_shouldBeStableAcrossOrderAndOffset() {
+        OffsetDateTime change = OffsetDateTime.of(2025, 1, 31, 10, 0, 0, 0, ZoneOffset.UTC);
+        String marker = TransactionService.balanceMarker(balances(
+                balance("expected", "TX-2", change),
+                balance("closingBooked", "TX-1", null)));
+
+        assertEquals("closingBooked|TX-1|null;expected|TX-2|2025-01-31T10:00:00Z", marker);
+        assertEquals(marker, TransactionService.balanceMarker(balances(
+                balance("closingBooked", "TX-1", null),
+                balance("expected", "TX-2", change.withOffsetSameInstant(ZoneOffset.ofHours(2))))));
+    }
+
+    // senza saldi o senza né ultimo movimento né data di modifica non c'è marker: la sincronizzazione non si salta
+    @Test
+    void balanceMarker_shouldBeNullWithoutUsableBalances() {
+        assertNull(TransactionService.balanceMarker(null));
+        assertNull(TransactionService.balanceMarker(new CredemBalancesResponse()));
+        assertNull(TransactionService.balanceMarker(balances(balance("expected", null, null))));
+    }
+
+    // stesso marker e finestra contenuta in quella già scaricata: si salta
+    @Test
+    void canSkip_shouldSkipWhenMarkerMatchesAndRangeIsCovered() {
+        AccountSyncMarker stored = stored("M1", "2025-01-28", "2025-01-31");
+
+        assertTrue(TransactionService.canSkip("M1", stored, range("2025-01-28", "2025-01-31")));
+        assertTrue(TransactionService.canSkip("M1", stored, range("2025-01-30", "2025-01-31")));
+    }
+
+    // saldi cambiati, nessun marker salvato o marker non disponibile: si scarica
+    @Test
+    void canSkip_shouldNotSkipWhenMarkerDiffersOrIsMissing() {
+        AccountSyncMarker stored = stored("M1", "2025-01-28", "2025-01-31");
+        DateRange range = range("2025-01-28", "2025-01-31");
+
+        assertFalse(TransactionService.canSkip("M2", stored, range));
+        assertFalse(TransactionService.canSkip("M1", null, range));
+        assertFalse(TransactionService.canSkip(null, stored, range));
+    }
+
+    // daysback da 1 a 3 o un giorno in più: la finestra richiesta esce da quella scaricata e va riscaricata
+    @Test
+    void canSkip_shouldNotSkipWhenRangeExtendsSyncedWindow() {
+        AccountSyncMarker stored = stored("M1", "2025-01-30", "2025-01-31");
+
+        assertFalse(TransactionService.canSkip("M1", stored, range("2025-01-28", "2025-01-31")));
+        assertFalse(TransactionService.canSkip("M1", stored, range("2025-01-30", "2025-02-01")));
+    }
+}
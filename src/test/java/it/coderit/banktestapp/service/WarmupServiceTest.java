@@ -0,0 +1,73 @@
+package it.coderit.banktestapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import it.coderit.banktestapp.model.CenterType;
+import it.coderit.banktestapp.repository.ClassificationRuleRepository;
+import it.coderit.banktestapp.repository.ClassificationRuleRepository.RuleSet;
+import it.coderit.banktestapp.repository.DataVersionRepository;
+import jakarta.inject.Inject;
+
+@QuarkusTest
+public class WarmupServiceTest {
+
+    @Inject
+    WarmupService warmupService;
+
+    @Inject
+    @Readiness
+    WarmupHealthCheck warmupHealthCheck;
+
+    @Inject
+    ClassificationRuleRepository ruleRepository;
+
+    @Inject
+    DataVersionRepository dataVersionRepository;
+
+    // regole di default in memoria, movimenti sintetici classificati, durata per fase riportata nella readiness
+    @Test
+    void run_shouldPreloadRulesClassifySyntheticWorkloadAndReportDuration() {
+        WarmupService.Report report = warmupService.run();
+
+        assertTrue(report.rules() >= 2);
+        assertEquals(2000, report.transactions());
+        // "acquisto" (POS) e "fattura" (bonifici in accredito) coprono tutti i movimenti sintetici
+        assertEquals(2000, report.classified());
+        assertEquals(List.of("rules", "queries", "classification"), List.copyOf(report.stepsMs().keySet()));
+
+        HealthCheckResponse health = warmupHealthCheck.call();
+        assertEquals(HealthCheckResponse.Status.UP, health.getStatus());
+        assertEquals("completed", health.getData().orElseThrow().get("state"));
+        assertEquals(report.durationMs(), health.getData().orElseThrow().get("durationMs"));
+    }
+
+    // le regole restano in memoria finché la versione dello scope "rules" non cambia
+    @Test
+    void rules_shouldReloadOnlyAfterRuleChange() {
+        RuleSet first = QuarkusTransaction.requiringNew().call(ruleRepository::rules);
+        assertSame(first, QuarkusTransaction.requiringNew().call(ruleRepository::rules));
+
+        QuarkusTransaction.requiringNew().run(() -> ruleRepository.saveIfNotExists("WarmupTestKeyword", CenterType.COSTO));
+        try {
+            RuleSet reloaded = QuarkusTransaction.requiringNew().call(ruleRepository::rules);
+            assertNotSame(first, reloaded);
+            assertTrue(reloaded.rules().stream().anyMatch(rule -> rule.keyword().equals("warmuptestkeyword")));
+        } finally {
+            QuarkusTransaction.requiringNew().run(() -> {
+                ruleRepository.delete("LOWER(keyword) = ?1", "warmuptestkeyword");
+                dataVersionRepository.bumpRules();
+            });
+        }
+    }
+}